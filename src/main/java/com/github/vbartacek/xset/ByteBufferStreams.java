@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+
+/**
+ * Streams reading and writing the remaining bytes of a buffer.
+ * <p>
+ * The streams use the relative methods, so the position of the buffer is advanced.
+ *
+ * @author Vaclav Bartacek
+ */
+final class ByteBufferStreams {
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private ByteBufferStreams() {
+    }
+
+    static InputStream input(final ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "input must not be null");
+
+        return new InputStream() {
+
+            @Override
+            public int read() {
+                return buffer.hasRemaining() ? buffer.get() & BYTE_MASK : -1;
+            }
+
+            @Override
+            public int read(final byte[] bytes, final int offset, final int length) {
+                if (length == 0) {
+                    return 0;
+                }
+                else if (!buffer.hasRemaining()) {
+                    return -1;
+                }
+
+                final int count = Math.min(length, buffer.remaining());
+                buffer.get(bytes, offset, count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return buffer.remaining();
+            }
+        };
+    }
+
+    static OutputStream output(final ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "input must not be null");
+
+        return new OutputStream() {
+
+            @Override
+            public void write(final int b) {
+                buffer.put((byte) b);
+            }
+
+            @Override
+            public void write(final byte[] bytes, final int offset, final int length) {
+                buffer.put(bytes, offset, length);
+            }
+        };
+    }
+
+}
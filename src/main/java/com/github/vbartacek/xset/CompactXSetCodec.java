@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * The compact binary format of {@link XSetCodec}.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the element type
+ */
+abstract class CompactXSetCodec<E> implements XSetCodec<E> {
+
+    static final int COMPLEMENTARY_FLAG = 1;
+
+    static final int LONG_ITEMS = 0x02;
+
+    static final int INTEGER_ITEMS = 0x04;
+
+    static final int STRING_ITEMS = 0x06;
+
+    static final XSetCodec<Long> LONGS = new Longs();
+
+    static final XSetCodec<Integer> INTEGERS = new Integers();
+
+    static final XSetCodec<String> STRINGS = new Strings();
+
+    /**
+     * Maximal size of an array supported by the JVMs.
+     */
+    static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The arrays of the decoded items (and of the bytes of an item) are allocated lazily up to the count stored in the stream,
+     * so that a corrupted count does not allocate a huge array before the end of the stream is reached.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The varints are written in groups of 7 bits, the highest bit of a byte marks that another byte follows.
+     */
+    static final int GROUP_BITS = 7;
+
+    static final int GROUP_MASK = 0x7F;
+
+    static final int CONTINUATION_BIT = 0x80;
+
+    private final int itemType;
+
+    private CompactXSetCodec(final int itemType) {
+        this.itemType = itemType;
+    }
+
+    @Override
+    public final void encode(final XSet<E> xset, final OutputStream output) throws IOException {
+        Objects.requireNonNull(xset, "other XSet must not be null");
+        Objects.requireNonNull(output, "input must not be null");
+
+        final Encoder encoder = new Encoder(output);
+        encoder.writeByte(itemType | (xset.isComplementary() ? COMPLEMENTARY_FLAG : 0));
+        encoder.writeVarint(xset.getItems().size());
+        encodeItems(xset.getItems(), encoder);
+        encoder.flush();
+    }
+
+    @Override
+    public final XSet<E> decode(final InputStream input) throws IOException {
+        Objects.requireNonNull(input, "input must not be null");
+
+        final Decoder decoder = new Decoder(input);
+        final int flags = decoder.readByte();
+        if ((flags & ~COMPLEMENTARY_FLAG) != itemType) {
+            throw new IOException("unexpected flags of the encoded XSet: " + flags);
+        }
+
+        final long count = decoder.readVarint();
+        if (count < 0 || count > MAX_ARRAY_SIZE) {
+            throw new IOException("invalid count of the encoded items: " + count);
+        }
+
+        Object[] items = new Object[(int) Math.min(count, INITIAL_CAPACITY)];
+        for (int i = 0; i < count; i++) {
+            if (i == items.length) {
+                items = Arrays.copyOf(items, (int) Math.min(count, items.length * 2L));
+            }
+            items[i] = decodeItem(decoder);
+        }
+
+        return XSet.wrap(items, (flags & COMPLEMENTARY_FLAG) != 0);
+    }
+
+    @Override
+    public final XSet<E> view(final ByteBuffer buffer) throws IOException {
+        return EncodedItemSet.view(buffer, itemType);
+    }
+
+    abstract void encodeItems(Set<E> items, Encoder encoder) throws IOException;
+
+    /**
+     * Reads the next item - the numeric items are deltas to the previous item kept by the decoder.
+     */
+    abstract E decodeItem(Decoder decoder) throws IOException;
+
+    static long zigzag(final long value) {
+        return (value << 1) ^ (value >> (Long.SIZE - 1));
+    }
+
+    static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * The ascending {@code long} values as deltas.
+     */
+    private static final class Longs extends CompactXSetCodec<Long> {
+
+        Longs() {
+            super(LONG_ITEMS);
+        }
+
+        @Override
+        void encodeItems(final Set<Long> items, final Encoder encoder) throws IOException {
+            final long[] values = new long[items.size()];
+            int i = 0;
+            for (final Long item : items) {
+                values[i++] = item;
+            }
+            Arrays.sort(values);
+
+            encodeSorted(values, encoder);
+        }
+
+        @Override
+        Long decodeItem(final Decoder decoder) throws IOException {
+            return decoder.readDelta();
+        }
+    }
+
+    /**
+     * The ascending {@code int} values as deltas.
+     */
+    private static final class Integers extends CompactXSetCodec<Integer> {
+
+        Integers() {
+            super(INTEGER_ITEMS);
+        }
+
+        @Override
+        void encodeItems(final Set<Integer> items, final Encoder encoder) throws IOException {
+            final long[] values = new long[items.size()];
+            int i = 0;
+            for (final Integer item : items) {
+                values[i++] = item;
+            }
+            Arrays.sort(values);
+
+            encodeSorted(values, encoder);
+        }
+
+        @Override
+        Integer decodeItem(final Decoder decoder) throws IOException {
+            final long value = decoder.readDelta();
+            if (value != (int) value) {
+                throw new IOException("encoded item is not an int: " + value);
+            }
+            return (int) value;
+        }
+    }
+
+    /**
+     * The UTF-8 bytes of the {@code String} items prefixed by their lengths.
+     */
+    private static final class Strings extends CompactXSetCodec<String> {
+
+        Strings() {
+            super(STRING_ITEMS);
+        }
+
+        @Override
+        void encodeItems(final Set<String> items, final Encoder encoder) throws IOException {
+            for (final String item : items) {
+                final byte[] bytes = item.getBytes(StandardCharsets.UTF_8);
+                encoder.writeVarint(bytes.length);
+                encoder.writeBytes(bytes);
+            }
+        }
+
+        @Override
+        String decodeItem(final Decoder decoder) throws IOException {
+            final long length = decoder.readVarint();
+            if (length < 0 || length > MAX_ARRAY_SIZE) {
+                throw new IOException("invalid length of the encoded item: " + length);
+            }
+            return new String(decoder.readBytes((int) length), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void encodeSorted(final long[] values, final Encoder encoder) throws IOException {
+        if (values.length > 0) {
+            encoder.writeVarint(zigzag(values[0]));
+        }
+        for (int i = 1; i < values.length; i++) {
+            // the difference is positive, but it might overflow to the sign bit, so it is unsigned:
+            encoder.writeVarint(values[i] - values[i - 1]);
+        }
+    }
+
+    /**
+     * Buffered writing of the bytes and the varints to the stream.
+     */
+    static final class Encoder {
+
+        private static final int CHUNK_SIZE = 8192;
+
+        private static final int MAX_VARINT_SIZE = 10;
+
+        private final byte[] chunk = new byte[CHUNK_SIZE];
+
+        private final OutputStream output;
+
+        private int position;
+
+        Encoder(final OutputStream output) {
+            this.output = output;
+        }
+
+        void writeByte(final int value) throws IOException {
+            if (position == CHUNK_SIZE) {
+                flush();
+            }
+            chunk[position++] = (byte) value;
+        }
+
+        void writeVarint(final long value) throws IOException {
+            if (position > CHUNK_SIZE - MAX_VARINT_SIZE) {
+                flush();
+            }
+
+            long remaining = value;
+            while ((remaining & ~GROUP_MASK) != 0) {
+                chunk[position++] = (byte) (remaining & GROUP_MASK | CONTINUATION_BIT);
+                remaining >>>= GROUP_BITS;
+            }
+            chunk[position++] = (byte) remaining;
+        }
+
+        void writeBytes(final byte[] bytes) throws IOException {
+            if (bytes.length > CHUNK_SIZE - position) {
+                flush();
+                output.write(bytes);
+            }
+            else {
+                System.arraycopy(bytes, 0, chunk, position, bytes.length);
+                position += bytes.length;
+            }
+        }
+
+        void flush() throws IOException {
+            output.write(chunk, 0, position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Reading of the bytes and the varints from the stream.
+     * <p>
+     * The stream is read byte by byte, so that no byte following the encoded set is consumed.
+     */
+    static final class Decoder {
+
+        private final InputStream input;
+
+        private boolean first = true;
+
+        private long previous;
+
+        Decoder(final InputStream input) {
+            this.input = input;
+        }
+
+        int readByte() throws IOException {
+            final int value = input.read();
+            if (value < 0) {
+                throw new EOFException("unexpected end of the encoded XSet");
+            }
+            return value;
+        }
+
+        long readVarint() throws IOException {
+            long result = 0;
+            int shift = 0;
+            int value;
+
+            do {
+                if (shift >= Long.SIZE) {
+                    throw new IOException("malformed varint of the encoded XSet");
+                }
+                value = readByte();
+                result |= (long) (value & GROUP_MASK) << shift;
+                shift += GROUP_BITS;
+            }
+            while ((value & CONTINUATION_BIT) != 0);
+
+            return result;
+        }
+
+        /**
+         * Reads the next of the ascending numeric items.
+         */
+        long readDelta() throws IOException {
+            if (first) {
+                first = false;
+                previous = unzigzag(readVarint());
+            }
+            else {
+                final long delta = readVarint();
+                if (delta == 0) {
+                    throw new IOException("duplicate item of the encoded XSet");
+                }
+                // the delta is unsigned, so the overflow past Long.MAX_VALUE is the only way to descend:
+                final long next = previous + delta;
+                if (next < previous) {
+                    throw new IOException("items of the encoded XSet are not ascending");
+                }
+                previous = next;
+            }
+            return previous;
+        }
+
+        /**
+         * Reads the given number of bytes.
+         * <p>
+         * The length comes from the stream, so the array grows only as the bytes are really read
+         * and a corrupted length fails by the end of the stream instead of allocating a huge array.
+         */
+        byte[] readBytes(final int length) throws IOException {
+            byte[] result = new byte[Math.min(length, INITIAL_CAPACITY)];
+            int offset = 0;
+
+            while (offset < length) {
+                if (offset == result.length) {
+                    result = Arrays.copyOf(result, (int) Math.min(length, result.length * 2L));
+                }
+                final int count = input.read(result, offset, result.length - offset);
+                if (count < 0) {
+                    throw new EOFException("unexpected end of the encoded XSet");
+                }
+                offset += count;
+            }
+
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Mutable extended set that can be updated and queried concurrently.
+ * <p>
+ * This class has the same semantics as {@link XSet}: it maintains a set of {@code items} and a {@code complementary} flag.
+ * The current state is an immutable extended set with the {@code items} stored in a persistent hash array mapped trie,
+ * each modification derives a new trie sharing all but one path with the previous one and publishes it by compare-and-set.
+ * <ul>
+ * <li>{@link #add(Object)} and {@link #remove(Object)} take a time logarithmic in the size of the set,
+ * they retry if another modification was published meanwhile</li>
+ * <li>{@link #complement()} flips the flag only, so it takes a constant time</li>
+ * <li>{@link #contains(Object)}, {@link #snapshot()} and {@link #toString()} never block and they do not copy the items,
+ * because the current state is already immutable</li>
+ * </ul>
+ * <p>
+ * This class is thread-safe and lock-free. The {@code items} cannot hold {@code null} elements.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> - the type of elements maintained by this extended set
+ * @see XSetRef
+ */
+public final class ConcurrentXSet<E> {
+
+    /**
+     * The current state - its items are a trie unless they are empty.
+     */
+    private final AtomicReference<XSet<E>> current;
+
+    private ConcurrentXSet(final XSet<E> xset) {
+        current = new AtomicReference<>(XSet.backedBy(trie(xset.getItems()), xset.isComplementary()));
+    }
+
+    /**
+     * Creates a new empty concurrent extended set.
+     *
+     * @param <T> the element type
+     * @return the new set
+     */
+    public static <T> ConcurrentXSet<T> empty() {
+        return new ConcurrentXSet<>(XSet.empty());
+    }
+
+    /**
+     * Creates a new concurrent extended set with the same elements as the given extended set.
+     *
+     * @param xset the extended set
+     * @param <T> the element type
+     * @return the new set
+     * @throws NullPointerException if the extended set is {@code null}
+     */
+    public static <T> ConcurrentXSet<T> copyOf(final XSet<T> xset) {
+        Objects.requireNonNull(xset, "other XSet must not be null");
+
+        return new ConcurrentXSet<>(xset);
+    }
+
+    /**
+     * Returns {@code true} if this set contains the element.
+     *
+     * @param item the element
+     * @return {@code true} if this set contains the element
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public boolean contains(final E item) {
+        requireNonNullItem(item);
+
+        return current.get().contains(item);
+    }
+
+    /**
+     * Adds the element to this set.
+     *
+     * @param item the element
+     * @return {@code true} if this set did not contain the element
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public boolean add(final E item) {
+        return modify(item, true);
+    }
+
+    /**
+     * Removes the element from this set.
+     *
+     * @param item the element
+     * @return {@code true} if this set contained the element
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public boolean remove(final E item) {
+        return modify(item, false);
+    }
+
+    /**
+     * Replaces this set by its complement.
+     * <p>
+     * Only the {@code complementary} flag is flipped, the items are not touched.
+     */
+    public void complement() {
+        current.updateAndGet(XSet::complement);
+    }
+
+    /**
+     * Returns {@code true} if this set is a complement of a finite set.
+     *
+     * @return complementary flag
+     */
+    public boolean isComplementary() {
+        return current.get().isComplementary();
+    }
+
+    /**
+     * Returns the immutable copy of this set.
+     * <p>
+     * The current state is returned as is, so the snapshot takes a constant time and it does not block the modifications.
+     * The same instance is returned until this set is modified.
+     *
+     * @return the immutable extended set
+     */
+    public XSet<E> snapshot() {
+        return current.get();
+    }
+
+    private boolean modify(final E item, final boolean adding) {
+        requireNonNullItem(item);
+
+        final Set<E> change = Collections.singleton(item);
+        while (true) {
+            final XSet<E> before = current.get();
+            final HamtItemSet<E> items = trie(before.getItems());
+            // the complementary items are the excluded ones, so the operation on the items is inverted:
+            final HamtItemSet<E> changed = adding != before.isComplementary() ? items.plusAll(change) : items.minusAll(change);
+
+            if (changed == items) {
+                return false;
+            }
+            if (current.compareAndSet(before, XSet.backedBy(changed, before.isComplementary()))) {
+                return true;
+            }
+        }
+    }
+
+    private static <T> HamtItemSet<T> trie(final Set<T> items) {
+        final HamtItemSet<T> existing = HamtItemSet.existingTrie(items);
+        return existing != null ? existing : HamtItemSet.copyOf(items);
+    }
+
+    private static void requireNonNullItem(final Object item) {
+        Objects.requireNonNull(item, "items must not be null");
+    }
+
+    @Override
+    public String toString() {
+        return "Concurrent" + current.get();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/**
+ * Allocation and explicit release of the direct (off-heap) memory.
+ * <p>
+ * The direct buffers are normally released only after they are garbage collected.
+ * This class releases them immediately by their cleaners - by {@code sun.misc.Unsafe.invokeCleaner(ByteBuffer)}
+ * on Java 9 or newer, or by {@code sun.nio.ch.DirectBuffer.cleaner().clean()} on Java 8.
+ * If none of them is accessible, then the memory is left to the garbage collector.
+ *
+ * @author Vaclav Bartacek
+ */
+final class DirectMemory {
+
+    private static final Releaser RELEASER = releaser();
+
+    private DirectMemory() {
+    }
+
+    /**
+     * Allocates the direct buffer of the native byte order.
+     *
+     * @param bytes the capacity
+     * @return the new buffer
+     */
+    static ByteBuffer allocate(final int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Releases the memory of the direct buffer. The buffer must not be used any more.
+     *
+     * @param buffer the buffer allocated by {@link #allocate(int)}
+     */
+    static void release(final ByteBuffer buffer) {
+        try {
+            RELEASER.release(buffer);
+        }
+        catch (final ReflectiveOperationException | RuntimeException e) {
+            // the memory is released by the garbage collector then
+        }
+    }
+
+    private static Releaser releaser() {
+        try {
+            // Java 9 or newer:
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        }
+        catch (final ReflectiveOperationException | RuntimeException e) {
+            // try the Java 8 way
+        }
+
+        try {
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+
+            return buffer -> clean.invoke(cleaner.invoke(buffer));
+        }
+        catch (final ReflectiveOperationException | RuntimeException e) {
+            return buffer -> {
+                // left to the garbage collector
+            };
+        }
+    }
+
+    /**
+     * Strategy of releasing the direct buffers.
+     */
+    @FunctionalInterface
+    private interface Releaser {
+
+        void release(ByteBuffer buffer) throws ReflectiveOperationException;
+    }
+
+}
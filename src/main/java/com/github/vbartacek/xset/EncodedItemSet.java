@@ -0,0 +1,439 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * Immutable set of items read lazily from the compact format of {@link XSetCodec}.
+ * <p>
+ * The items are decoded only as far as needed by the query, nothing is materialized on the heap.
+ * The sorted numeric items are scanned up to the probed value and every {@value #SKIP_INTERVAL}th
+ * item is remembered together with its offset, so the following queries of the already scanned part
+ * binary search these skip pointers and decode at most {@value #SKIP_INTERVAL} items.
+ * The {@code String} items are not sorted, so they are scanned comparing the UTF-8 bytes.
+ * <p>
+ * The buffer is read only by the absolute methods. The malformed bytes are reported
+ * by {@link UncheckedIOException} once they are reached.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the element type
+ */
+abstract class EncodedItemSet<E> extends AbstractSet<E> {
+
+    /**
+     * The number of the items between two skip pointers.
+     */
+    static final int SKIP_INTERVAL = 64;
+
+    private static final int BYTE_MASK = 0xFF;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * The offset of the first item.
+     */
+    private final int start;
+
+    private final int size;
+
+    private EncodedItemSet(final ByteBuffer buffer, final int start, final int size) {
+        this.buffer = buffer;
+        this.start = start;
+        this.size = size;
+    }
+
+    /**
+     * Creates the view of the extended set encoded in the remaining bytes of the buffer.
+     *
+     * @param buffer the buffer - its position is not changed
+     * @param itemType the expected item type
+     * @param <T> the element type
+     * @return the extended set backed by the buffer
+     * @throws IOException if the buffer does not start with a valid header
+     */
+    @SuppressWarnings("unchecked")
+    static <T> XSet<T> view(final ByteBuffer buffer, final int itemType) throws IOException {
+        Objects.requireNonNull(buffer, "input must not be null");
+
+        final Cursor cursor = new Cursor(buffer.slice(), 0);
+        final int flags;
+        final long count;
+        try {
+            flags = cursor.readByte();
+            count = cursor.readVarint();
+        }
+        catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        if ((flags & ~CompactXSetCodec.COMPLEMENTARY_FLAG) != itemType) {
+            throw new IOException("unexpected flags of the encoded XSet: " + flags);
+        }
+        // each item takes at least one byte:
+        if (count < 0 || count > cursor.buffer.limit() - cursor.position) {
+            throw new IOException("invalid count of the encoded items: " + count);
+        }
+
+        final boolean complementary = (flags & CompactXSetCodec.COMPLEMENTARY_FLAG) != 0;
+        if (count == 0) {
+            return complementary ? XSet.full() : XSet.empty();
+        }
+
+        final EncodedItemSet<?> items = itemType == CompactXSetCodec.STRING_ITEMS
+            ? new Strings(cursor.buffer, cursor.position, (int) count)
+            : new Numbers<>(cursor.buffer, cursor.position, (int) count, itemType == CompactXSetCodec.INTEGER_ITEMS);
+
+        return XSet.backedBy((Set<T>) items, complementary);
+    }
+
+    abstract E next(Cursor cursor);
+
+    Cursor cursor(final int position) {
+        return new Cursor(buffer, position);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            private final Cursor cursor = cursor(start);
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public E next() {
+                if (next == size) {
+                    throw new NoSuchElementException();
+                }
+                next++;
+                return EncodedItemSet.this.next(cursor);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    int start() {
+        return start;
+    }
+
+    /**
+     * Sorted {@code Long} or {@code Integer} items as zigzag and delta varints.
+     *
+     * @param <E> the element type
+     */
+    private static final class Numbers<E> extends EncodedItemSet<E> {
+
+        private final boolean integers;
+
+        /**
+         * The skip pointers of the already scanned part.
+         */
+        private volatile SkipPointers pointers = SkipPointers.NONE;
+
+        Numbers(final ByteBuffer buffer, final int start, final int size, final boolean integers) {
+            super(buffer, start, size);
+            this.integers = integers;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        E next(final Cursor cursor) {
+            final long value = readItem(cursor);
+            // not a conditional expression - it would unbox both the alternatives to long:
+            if (integers) {
+                return (E) Integer.valueOf((int) value);
+            }
+            else {
+                return (E) Long.valueOf(value);
+            }
+        }
+
+        @Override
+        public boolean contains(final Object item) {
+            if (integers ? !(item instanceof Integer) : !(item instanceof Long)) {
+                return false;
+            }
+
+            final long value = ((Number) item).longValue();
+            SkipPointers current = pointers;
+            if (!current.covers(value)) {
+                current = scan(value);
+            }
+
+            final int index = current.floor(value);
+            if (index < 0) {
+                return false;
+            }
+            else if (current.values[index] == value) {
+                return true;
+            }
+
+            // decode the items following the skip pointer:
+            final Cursor cursor = cursor(current.offsets[index]);
+            cursor.previous = current.values[index];
+            cursor.first = false;
+            final int end = Math.min(size(), (index + 1) * SKIP_INTERVAL);
+
+            for (int i = index * SKIP_INTERVAL + 1; i < end; i++) {
+                final long next = readItem(cursor);
+                if (next >= value) {
+                    return next == value;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Reads the next item and checks that an {@code Integer} item fits into int.
+         */
+        private long readItem(final Cursor cursor) {
+            final long value = cursor.readDelta();
+            if (integers && value != (int) value) {
+                throw new UncheckedIOException(new IOException("encoded item is not an int: " + value));
+            }
+            return value;
+        }
+
+        /**
+         * Extends the skip pointers at least up to the given value or to the end of the items.
+         */
+        private synchronized SkipPointers scan(final long value) {
+            SkipPointers current = pointers;
+            long[] values = current.values;
+            int[] offsets = current.offsets;
+            int count = current.count;
+            final Cursor cursor;
+
+            if (count == 0) {
+                cursor = cursor(start());
+                values = new long[Math.min(size() / SKIP_INTERVAL + 1, SKIP_INTERVAL)];
+                offsets = new int[values.length];
+                values[0] = readItem(cursor);
+                offsets[0] = cursor.position;
+                count = 1;
+            }
+            else {
+                cursor = cursor(offsets[count - 1]);
+                cursor.previous = values[count - 1];
+                cursor.first = false;
+            }
+
+            // the skip pointers are only appended, so the readers of the previous ones are not affected:
+            while (values[count - 1] < value && count * (long) SKIP_INTERVAL < size()) {
+                for (int i = 1; i < SKIP_INTERVAL; i++) {
+                    readItem(cursor);
+                }
+                if (count == values.length) {
+                    final int capacity = (int) Math.min(count * 2L, size() / SKIP_INTERVAL + 1);
+                    values = Arrays.copyOf(values, capacity);
+                    offsets = Arrays.copyOf(offsets, capacity);
+                }
+                values[count] = readItem(cursor);
+                offsets[count] = cursor.position;
+                count++;
+            }
+
+            current = new SkipPointers(values, offsets, count, count * (long) SKIP_INTERVAL >= size());
+            pointers = current;
+            return current;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the skip pointers - the value and the offset following every {@value #SKIP_INTERVAL}th item.
+     */
+    private static final class SkipPointers {
+
+        static final SkipPointers NONE = new SkipPointers(new long[0], new int[0], 0, false);
+
+        private final long[] values;
+
+        private final int[] offsets;
+
+        private final int count;
+
+        /**
+         * Whether all the items have been scanned.
+         */
+        private final boolean complete;
+
+        SkipPointers(final long[] values, final int[] offsets, final int count, final boolean complete) {
+            this.values = values;
+            this.offsets = offsets;
+            this.count = count;
+            this.complete = complete;
+        }
+
+        boolean covers(final long value) {
+            return complete || count > 0 && value <= values[count - 1];
+        }
+
+        /**
+         * Returns the index of the last skip pointer not greater than the value, or {@code -1}.
+         */
+        int floor(final long value) {
+            int low = 0;
+            int high = count - 1;
+
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+
+                if (values[middle] < value) {
+                    low = middle + 1;
+                }
+                else if (values[middle] > value) {
+                    high = middle - 1;
+                }
+                else {
+                    return middle;
+                }
+            }
+
+            return high;
+        }
+    }
+
+    /**
+     * {@code String} items as the UTF-8 bytes prefixed by their lengths.
+     */
+    private static final class Strings extends EncodedItemSet<String> {
+
+        Strings(final ByteBuffer buffer, final int start, final int size) {
+            super(buffer, start, size);
+        }
+
+        @Override
+        String next(final Cursor cursor) {
+            final int length = cursor.readLength();
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = cursor.buffer.get(cursor.position + i);
+            }
+            cursor.position += length;
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public boolean contains(final Object item) {
+            if (!(item instanceof String)) {
+                return false;
+            }
+
+            final byte[] bytes = ((String) item).getBytes(StandardCharsets.UTF_8);
+            final Cursor cursor = cursor(start());
+
+            for (int i = 0; i < size(); i++) {
+                final int length = cursor.readLength();
+                if (length == bytes.length && cursor.matches(bytes)) {
+                    return true;
+                }
+                cursor.position += length;
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Reading position in the buffer.
+     */
+    private static final class Cursor {
+
+        private final ByteBuffer buffer;
+
+        private int position;
+
+        private boolean first = true;
+
+        private long previous;
+
+        Cursor(final ByteBuffer buffer, final int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int readByte() {
+            if (position >= buffer.limit()) {
+                throw new UncheckedIOException(new EOFException("unexpected end of the encoded XSet"));
+            }
+            return buffer.get(position++) & BYTE_MASK;
+        }
+
+        long readVarint() {
+            long result = 0;
+            int shift = 0;
+            int value;
+
+            do {
+                if (shift >= Long.SIZE) {
+                    throw new UncheckedIOException(new IOException("malformed varint of the encoded XSet"));
+                }
+                value = readByte();
+                result |= (long) (value & CompactXSetCodec.GROUP_MASK) << shift;
+                shift += CompactXSetCodec.GROUP_BITS;
+            }
+            while ((value & CompactXSetCodec.CONTINUATION_BIT) != 0);
+
+            return result;
+        }
+
+        long readDelta() {
+            if (first) {
+                first = false;
+                previous = CompactXSetCodec.unzigzag(readVarint());
+            }
+            else {
+                final long next = previous + readVarint();
+                if (next <= previous) {
+                    throw new UncheckedIOException(new IOException("items of the encoded XSet are not ascending"));
+                }
+                previous = next;
+            }
+            return previous;
+        }
+
+        int readLength() {
+            final long length = readVarint();
+            if (length < 0 || length > buffer.limit() - position) {
+                throw new UncheckedIOException(new EOFException("unexpected end of the encoded XSet"));
+            }
+            return (int) length;
+        }
+
+        boolean matches(final byte[] bytes) {
+            for (int i = 0; i < bytes.length; i++) {
+                if (buffer.get(position + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
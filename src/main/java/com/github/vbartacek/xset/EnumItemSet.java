@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Immutable set of enum constants stored as a bit mask.
+ * <p>
+ * The bit at the position {@code ordinal} is set if the enum constant belongs to the set.
+ * One {@code long} word holds up to 64 constants, larger enums use more words.
+ * The set operations between two sets of the same enum type are bitwise operations of the words.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the enum type
+ */
+final class EnumItemSet<E extends Enum<E>> extends AbstractSet<E> {
+
+    private static final int WORD_SHIFT = 6;
+
+    private final Class<E> type;
+
+    private final E[] universe;
+
+    private final long[] words;
+
+    private final int size;
+
+    private EnumItemSet(final Class<E> type, final E[] universe, final long[] words) {
+        this.type = type;
+        this.universe = universe;
+        this.words = words;
+        this.size = countBits(words);
+    }
+
+    static <E extends Enum<E>> EnumItemSet<E> copyOf(final Class<E> type, final Collection<E> collection) {
+        final E[] universe = type.getEnumConstants();
+        final long[] words = new long[wordCount(universe.length)];
+
+        for (final E item : collection) {
+            final int ordinal = item.ordinal();
+            words[ordinal >>> WORD_SHIFT] |= 1L << ordinal;
+        }
+
+        return new EnumItemSet<>(type, universe, words);
+    }
+
+    boolean isCompatible(final EnumItemSet<?> other) {
+        return type == other.type;
+    }
+
+    static <E extends Enum<E>> EnumItemSet<E> intersect(final EnumItemSet<E> set1, final EnumItemSet<E> set2) {
+        final long[] result = new long[set1.words.length];
+        boolean equals1 = true;
+        boolean equals2 = true;
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = set1.words[i] & set2.words[i];
+            equals1 &= result[i] == set1.words[i];
+            equals2 &= result[i] == set2.words[i];
+        }
+
+        return reuse(set1, set2, result, equals1, equals2);
+    }
+
+    static <E extends Enum<E>> EnumItemSet<E> union(final EnumItemSet<E> set1, final EnumItemSet<E> set2) {
+        final long[] result = new long[set1.words.length];
+        boolean equals1 = true;
+        boolean equals2 = true;
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = set1.words[i] | set2.words[i];
+            equals1 &= result[i] == set1.words[i];
+            equals2 &= result[i] == set2.words[i];
+        }
+
+        return reuse(set1, set2, result, equals1, equals2);
+    }
+
+    static <E extends Enum<E>> EnumItemSet<E> minus(final EnumItemSet<E> set1, final EnumItemSet<E> set2) {
+        final long[] result = new long[set1.words.length];
+        boolean equals1 = true;
+
+        for (int i = 0; i < result.length; i++) {
+            result[i] = set1.words[i] & ~set2.words[i];
+            equals1 &= result[i] == set1.words[i];
+        }
+
+        return reuse(set1, set2, result, equals1, false);
+    }
+
+    private static <E extends Enum<E>> EnumItemSet<E> reuse(
+            final EnumItemSet<E> set1,
+            final EnumItemSet<E> set2,
+            final long[] result,
+            final boolean equals1,
+            final boolean equals2) {
+
+        if (equals1) {
+            return set1;
+        }
+        else if (equals2) {
+            return set2;
+        }
+        else {
+            return new EnumItemSet<>(set1.type, set1.universe, result);
+        }
+    }
+
+    @Override
+    public boolean contains(final Object item) {
+        if (!type.isInstance(item)) {
+            return false;
+        }
+
+        final int ordinal = ((Enum<?>) item).ordinal();
+        return (words[ordinal >>> WORD_SHIFT] & (1L << ordinal)) != 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int wordIndex;
+
+            private long remaining = words.length == 0 ? 0 : words[0];
+
+            @Override
+            public boolean hasNext() {
+                while (remaining == 0 && wordIndex < words.length - 1) {
+                    remaining = words[++wordIndex];
+                }
+                return remaining != 0;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                final long lowestBit = remaining & -remaining;
+                remaining -= lowestBit;
+                return universe[(wordIndex << WORD_SHIFT) + Long.numberOfTrailingZeros(lowestBit)];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof EnumItemSet) {
+            final EnumItemSet<?> that = (EnumItemSet<?>) other;
+            return this.type == that.type ? Arrays.equals(this.words, that.words) : this.isEmpty() && that.isEmpty();
+        }
+        else {
+            return super.equals(other);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private static int wordCount(final int universeSize) {
+        return (universeSize + Long.SIZE - 1) >>> WORD_SHIFT;
+    }
+
+    private static int countBits(final long[] words) {
+        int result = 0;
+        for (final long word : words) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+}
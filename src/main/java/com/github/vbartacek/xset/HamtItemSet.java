@@ -0,0 +1,762 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+
+
+/**
+ * Immutable set of items stored in a persistent hash array mapped trie (HAMT).
+ * <p>
+ * Adding or removing an item copies only the path from the root to the item, all the other nodes are shared
+ * with the original set. So a set derived from a large set by a small change costs {@code O(k log n)} time
+ * and memory, where {@code k} is the size of the change, instead of {@code O(n)} needed for copying the whole set.
+ * <p>
+ * Each trie node consumes 5 bits of the (mixed) hash code of the item, starting from the most significant bits.
+ * The nodes store the items and the child nodes compactly in a single array indexed by two bit maps.
+ * A subtree of a single item is always replaced by the item itself, so the shape of the trie is canonical.
+ * The items with equal hash codes end up in a collision node at the bottom of the trie.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the element type
+ */
+final class HamtItemSet<E> extends AbstractSet<E> {
+
+    /**
+     * Minimal size of the base set when the derived sets are stored in the trie.
+     */
+    static final int MIN_SIZE = 1024;
+
+    /**
+     * Minimal ratio of the sizes of the base set and the change when the derived set is stored in the trie.
+     */
+    private static final int DERIVATION_RATIO = 32;
+
+    private static final int BITS_PER_LEVEL = 5;
+
+    private static final int FRAGMENT_MASK = 0x1F;
+
+    private static final int TOP_SHIFT = Integer.SIZE - BITS_PER_LEVEL;
+
+    /**
+     * The level of the collision nodes, all the bits of the key are consumed by the levels above.
+     */
+    private static final int COLLISION_LEVEL = 7;
+
+    /**
+     * Odd multiplier (the golden ratio) mixing the hash codes into the keys - it is a bijection,
+     * so only the items with equal hash codes collide.
+     */
+    private static final int KEY_MULTIPLIER = 0x9E3779B9;
+
+    private static final long INDEX_MASK = 0xFFFF_FFFFL;
+
+    private static final HamtItemSet<?> EMPTY = new HamtItemSet<>(BitmapNode.EMPTY, 0, 0);
+
+    private final Node root;
+
+    private final int size;
+
+    private final int hashCode;
+
+    private HamtItemSet(final Node root, final int size, final int hashCode) {
+        this.root = root;
+        this.size = size;
+        this.hashCode = hashCode;
+    }
+
+    /**
+     * Returns {@code true} if a set derived from the base set by the (small) change should be stored in the trie.
+     *
+     * @param base the base set
+     * @param change the items to be added to or removed from the base set
+     * @return true if the base is a trie, a hash or a sorted set and it is much larger than the change
+     */
+    static boolean isDerivable(final Set<?> base, final Set<?> change) {
+        return (base instanceof HamtItemSet || base instanceof HashItemSet || base instanceof SortedItemSet)
+            && base.size() >= MIN_SIZE
+            && (long) change.size() * DERIVATION_RATIO <= base.size();
+    }
+
+    /**
+     * Returns the trie of the base set.
+     *
+     * @param base the trie, the hash or the sorted set
+     * @param <E> the element type
+     * @return the base itself if it is a trie, otherwise the trie cached by the base
+     * @see #isDerivable(Set, Set)
+     */
+    @SuppressWarnings("unchecked")
+    static <E> HamtItemSet<E> of(final Set<E> base) {
+        if (base instanceof HamtItemSet) {
+            return (HamtItemSet<E>) base;
+        }
+        else if (base instanceof HashItemSet) {
+            return ((HashItemSet<E>) base).persistent();
+        }
+        else {
+            return ((SortedItemSet<E>) base).persistent();
+        }
+    }
+
+    /**
+     * Returns the trie of the items if it is available without building it.
+     *
+     * @param items the items
+     * @param <E> the element type
+     * @return the items themselves if they are a trie, the trie already cached by the hash or the sorted set or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    static <E> HamtItemSet<E> existingTrie(final Set<E> items) {
+        if (items instanceof HamtItemSet) {
+            return (HamtItemSet<E>) items;
+        }
+        else if (items instanceof HashItemSet) {
+            return ((HashItemSet<E>) items).cachedPersistent();
+        }
+        else if (items instanceof SortedItemSet) {
+            return ((SortedItemSet<E>) items).cachedPersistent();
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Passes the items missing in the older trie to the {@code added} consumer
+     * and the items missing in the newer trie to the {@code removed} consumer.
+     * <p>
+     * The subtrees shared by both tries are skipped, so the tries derived from each other by small changes
+     * are compared in {@code O(k log n)} time, where {@code k} is the size of the change.
+     *
+     * @param older the older trie
+     * @param newer the newer trie
+     * @param added the consumer of the added items
+     * @param removed the consumer of the removed items
+     * @param <E> the element type
+     */
+    @SuppressWarnings("unchecked")
+    static <E> void diff(final HamtItemSet<E> older, final HamtItemSet<E> newer,
+            final Consumer<? super E> added, final Consumer<? super E> removed) {
+        diff(older.root, newer.root, 0, (Consumer<Object>) added, (Consumer<Object>) removed);
+    }
+
+    private static void diff(final Node older, final Node newer, final int level,
+            final Consumer<Object> added, final Consumer<Object> removed) {
+        if (older == newer) {
+            return;
+        }
+
+        if (older instanceof BitmapNode && newer instanceof BitmapNode) {
+            final BitmapNode olderNode = (BitmapNode) older;
+            final BitmapNode newerNode = (BitmapNode) newer;
+            int bits = olderNode.dataMap | olderNode.nodeMap | newerNode.dataMap | newerNode.nodeMap;
+
+            while (bits != 0) {
+                final int bit = Integer.lowestOneBit(bits);
+                bits ^= bit;
+                diffSlots(olderNode.slot(bit), newerNode.slot(bit), level + 1, added, removed);
+            }
+        }
+        else {
+            // the collision nodes are small:
+            diffSlots(older, newer, level, added, removed);
+        }
+    }
+
+    /**
+     * Compares the slots of the nodes - each slot is an item, a node or {@code null}.
+     */
+    private static void diffSlots(final Object older, final Object newer, final int level,
+            final Consumer<Object> added, final Consumer<Object> removed) {
+        if (older == newer) {
+            return;
+        }
+
+        if (older instanceof Node && newer instanceof Node && level < COLLISION_LEVEL) {
+            diff((Node) older, (Node) newer, level, added, removed);
+        }
+        else {
+            forEachItem(newer, item -> {
+                if (!slotContains(older, item, level)) {
+                    added.accept(item);
+                }
+            });
+            forEachItem(older, item -> {
+                if (!slotContains(newer, item, level)) {
+                    removed.accept(item);
+                }
+            });
+        }
+    }
+
+    private static void forEachItem(final Object slot, final Consumer<Object> action) {
+        if (slot instanceof Node) {
+            final Node node = (Node) slot;
+
+            for (int i = 0; i < node.dataCount(); i++) {
+                action.accept(node.data(i));
+            }
+            for (int i = 0; i < node.nodeCount(); i++) {
+                forEachItem(node.node(i), action);
+            }
+        }
+        else if (slot != null) {
+            action.accept(slot);
+        }
+    }
+
+    private static boolean slotContains(final Object slot, final Object item, final int level) {
+        if (slot instanceof Node) {
+            return ((Node) slot).contains(item, key(item), level);
+        }
+        else {
+            return item.equals(slot);
+        }
+    }
+
+    /**
+     * Returns the trie of the distinct items of the collection.
+     * <p>
+     * The trie is built bottom-up from the items sorted by their keys, so no intermediate nodes are created.
+     *
+     * @param collection the collection without {@code null} items, possibly with duplicates
+     * @param <E> the element type
+     * @return the set of the items
+     */
+    @SuppressWarnings("unchecked")
+    static <E> HamtItemSet<E> copyOf(final Collection<E> collection) {
+        final Object[] array = collection.toArray();
+        if (array.length == 0) {
+            return (HamtItemSet<E>) EMPTY;
+        }
+
+        // sort the pairs (key, index) by the unsigned key - the key in the upper bits drives the ordering:
+        final long[] sortKeys = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            sortKeys[i] = (long) (key(array[i]) ^ Integer.MIN_VALUE) << Integer.SIZE | i;
+        }
+        Arrays.sort(sortKeys);
+
+        // the distinct items ordered by the keys:
+        final Object[] items = new Object[array.length];
+        final int[] keys = new int[array.length];
+        int size = 0;
+        int hashCode = 0;
+        int runStart = 0;
+
+        for (final long sortKey : sortKeys) {
+            final int key = (int) (sortKey >> Integer.SIZE) ^ Integer.MIN_VALUE;
+            final Object item = array[(int) (sortKey & INDEX_MASK)];
+
+            if (size == 0 || keys[size - 1] != key) {
+                runStart = size;
+            }
+            if (indexOf(items, runStart, size, item) < 0) {
+                items[size] = item;
+                keys[size] = key;
+                hashCode += item.hashCode();
+                size++;
+            }
+        }
+
+        return new HamtItemSet<>(build(items, keys, 0, size, 0), size, hashCode);
+    }
+
+    /**
+     * Returns the set with all the items added.
+     *
+     * @param otherItems the items without {@code null}
+     * @return this set if all the items are already present
+     */
+    HamtItemSet<E> plusAll(final Collection<? extends E> otherItems) {
+        Node resultRoot = root;
+        int resultSize = size;
+        int resultHashCode = hashCode;
+
+        for (final E item : otherItems) {
+            final Node newRoot = resultRoot.plus(item, key(item), 0);
+
+            if (newRoot != resultRoot) {
+                resultRoot = newRoot;
+                resultSize++;
+                resultHashCode += item.hashCode();
+            }
+        }
+
+        return resultRoot == root ? this : new HamtItemSet<>(resultRoot, resultSize, resultHashCode);
+    }
+
+    /**
+     * Returns the set with all the items removed.
+     *
+     * @param otherItems the items without {@code null}
+     * @return this set if none of the items is present
+     */
+    HamtItemSet<E> minusAll(final Collection<?> otherItems) {
+        Node resultRoot = root;
+        int resultSize = size;
+        int resultHashCode = hashCode;
+
+        for (final Object item : otherItems) {
+            final Node newRoot = resultRoot.minus(item, key(item), 0);
+
+            if (newRoot != resultRoot) {
+                resultRoot = newRoot;
+                resultSize--;
+                resultHashCode -= item.hashCode();
+            }
+        }
+
+        return resultRoot == root ? this : new HamtItemSet<>(resultRoot, resultSize, resultHashCode);
+    }
+
+    @Override
+    public boolean contains(final Object item) {
+        return root.contains(item, key(item), 0);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new TrieIterator<>(root);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof HamtItemSet || other instanceof SortedItemSet) {
+            // the hash codes are cached by both:
+            return hashCode == other.hashCode() && super.equals(other);
+        }
+        else {
+            return super.equals(other);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        // the sum of the hash codes of the items as required by Set.hashCode()
+        return hashCode;
+    }
+
+    private static int key(final Object item) {
+        return item.hashCode() * KEY_MULTIPLIER;
+    }
+
+    /**
+     * Returns the 5 bits of the key consumed by the level, the last level consumes the remaining 2 bits only.
+     */
+    private static int fragment(final int key, final int level) {
+        final int shift = TOP_SHIFT - BITS_PER_LEVEL * level;
+        return (shift >= 0 ? key >>> shift : key << -shift) & FRAGMENT_MASK;
+    }
+
+    private static int indexOf(final Object[] items, final int from, final int to, final Object item) {
+        for (int i = from; i < to; i++) {
+            if (items[i].equals(item)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the node of the distinct items sorted by the unsigned keys, having the same fragments above the level.
+     */
+    private static Node build(final Object[] items, final int[] keys, final int from, final int to, final int level) {
+        if (level == COLLISION_LEVEL) {
+            return new CollisionNode(Arrays.copyOfRange(items, from, to));
+        }
+
+        int dataMap = 0;
+        int nodeMap = 0;
+        int i = from;
+        while (i < to) {
+            final int fragment = fragment(keys[i], level);
+            final int end = groupEnd(keys, i, to, level, fragment);
+
+            if (end - i == 1) {
+                dataMap |= 1 << fragment;
+            }
+            else {
+                nodeMap |= 1 << fragment;
+            }
+            i = end;
+        }
+
+        final Object[] content = new Object[Integer.bitCount(dataMap) + Integer.bitCount(nodeMap)];
+        int dataIndex = 0;
+        int nodeIndex = content.length;
+        i = from;
+        while (i < to) {
+            final int end = groupEnd(keys, i, to, level, fragment(keys[i], level));
+
+            if (end - i == 1) {
+                content[dataIndex++] = items[i];
+            }
+            else {
+                // the nodes are stored from the end of the array:
+                content[--nodeIndex] = build(items, keys, i, end, level + 1);
+            }
+            i = end;
+        }
+
+        return new BitmapNode(dataMap, nodeMap, content);
+    }
+
+    private static int groupEnd(final int[] keys, final int from, final int to, final int level, final int fragment) {
+        int end = from + 1;
+        while (end < to && fragment(keys[end], level) == fragment) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Creates the node of two distinct items.
+     */
+    private static Node mergeTwo(final Object item1, final int key1, final Object item2, final int key2, final int level) {
+        if (level == COLLISION_LEVEL) {
+            return new CollisionNode(new Object[] {item1, item2});
+        }
+
+        final int fragment1 = fragment(key1, level);
+        final int fragment2 = fragment(key2, level);
+
+        if (fragment1 == fragment2) {
+            return new BitmapNode(0, 1 << fragment1, new Object[] {mergeTwo(item1, key1, item2, key2, level + 1)});
+        }
+        else {
+            final Object[] content = fragment1 < fragment2 ? new Object[] {item1, item2} : new Object[] {item2, item1};
+            return new BitmapNode(1 << fragment1 | 1 << fragment2, 0, content);
+        }
+    }
+
+    /**
+     * Immutable node of the trie.
+     * <p>
+     * The modifying operations return the same node if nothing has been changed.
+     */
+    private abstract static class Node {
+
+        abstract boolean contains(Object item, int key, int level);
+
+        abstract Node plus(Object item, int key, int level);
+
+        abstract Node minus(Object item, int key, int level);
+
+        abstract int dataCount();
+
+        abstract Object data(int index);
+
+        abstract int nodeCount();
+
+        abstract Node node(int index);
+
+        /**
+         * Returns {@code true} if the subtree has a single item, so it should be replaced by the item.
+         */
+        final boolean isSingleItem() {
+            return dataCount() == 1 && nodeCount() == 0;
+        }
+    }
+
+    /**
+     * Node having the items and the child nodes indexed by the bit maps of the fragments of their keys.
+     * The items are stored at the beginning of the content array, the nodes in the reverse order at its end.
+     */
+    private static final class BitmapNode extends Node {
+
+        static final BitmapNode EMPTY = new BitmapNode(0, 0, new Object[0]);
+
+        private final int dataMap;
+
+        private final int nodeMap;
+
+        private final Object[] content;
+
+        BitmapNode(final int dataMap, final int nodeMap, final Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        @Override
+        boolean contains(final Object item, final int key, final int level) {
+            final int bit = 1 << fragment(key, level);
+
+            if ((dataMap & bit) != 0) {
+                return content[dataIndex(bit)].equals(item);
+            }
+            else if ((nodeMap & bit) != 0) {
+                return nodeAt(bit).contains(item, key, level + 1);
+            }
+            else {
+                return false;
+            }
+        }
+
+        @Override
+        Node plus(final Object item, final int key, final int level) {
+            final int bit = 1 << fragment(key, level);
+
+            if ((dataMap & bit) != 0) {
+                final int index = dataIndex(bit);
+                final Object current = content[index];
+
+                if (current.equals(item)) {
+                    return this;
+                }
+
+                // the item is replaced by the node of both items:
+                final Node node = mergeTwo(current, key(current), item, key, level + 1);
+                final int nodeIndex = nodeIndex(bit);
+                final Object[] result = new Object[content.length];
+                System.arraycopy(content, 0, result, 0, index);
+                System.arraycopy(content, index + 1, result, index, nodeIndex - index);
+                result[nodeIndex] = node;
+                System.arraycopy(content, nodeIndex + 1, result, nodeIndex + 1, content.length - nodeIndex - 1);
+                return new BitmapNode(dataMap ^ bit, nodeMap | bit, result);
+            }
+            else if ((nodeMap & bit) != 0) {
+                final int nodeIndex = nodeIndex(bit);
+                final Node node = (Node) content[nodeIndex];
+                final Node newNode = node.plus(item, key, level + 1);
+
+                return newNode == node ? this : withContent(nodeIndex, newNode);
+            }
+            else {
+                final int index = dataIndex(bit);
+                final Object[] result = new Object[content.length + 1];
+                System.arraycopy(content, 0, result, 0, index);
+                result[index] = item;
+                System.arraycopy(content, index, result, index + 1, content.length - index);
+                return new BitmapNode(dataMap | bit, nodeMap, result);
+            }
+        }
+
+        @Override
+        Node minus(final Object item, final int key, final int level) {
+            final int bit = 1 << fragment(key, level);
+
+            if ((dataMap & bit) != 0) {
+                final int index = dataIndex(bit);
+
+                if (!content[index].equals(item)) {
+                    return this;
+                }
+
+                final Object[] result = new Object[content.length - 1];
+                System.arraycopy(content, 0, result, 0, index);
+                System.arraycopy(content, index + 1, result, index, content.length - index - 1);
+                return new BitmapNode(dataMap ^ bit, nodeMap, result);
+            }
+            else if ((nodeMap & bit) != 0) {
+                final int nodeIndex = nodeIndex(bit);
+                final Node node = (Node) content[nodeIndex];
+                final Node newNode = node.minus(item, key, level + 1);
+
+                if (newNode == node) {
+                    return this;
+                }
+                else if (newNode.isSingleItem()) {
+                    // the node of a single item is replaced by the item (inlined):
+                    final int index = dataIndex(bit);
+                    final Object[] result = new Object[content.length];
+                    System.arraycopy(content, 0, result, 0, index);
+                    result[index] = newNode.data(0);
+                    System.arraycopy(content, index, result, index + 1, nodeIndex - index);
+                    System.arraycopy(content, nodeIndex + 1, result, nodeIndex + 1, content.length - nodeIndex - 1);
+                    return new BitmapNode(dataMap | bit, nodeMap ^ bit, result);
+                }
+                else {
+                    return withContent(nodeIndex, newNode);
+                }
+            }
+            else {
+                return this;
+            }
+        }
+
+        @Override
+        int dataCount() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        Object data(final int index) {
+            return content[index];
+        }
+
+        @Override
+        int nodeCount() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node node(final int index) {
+            return (Node) content[content.length - 1 - index];
+        }
+
+        /**
+         * Returns the item or the child node of the fragment bit, {@code null} if there is none.
+         */
+        Object slot(final int bit) {
+            if ((dataMap & bit) != 0) {
+                return content[dataIndex(bit)];
+            }
+            else if ((nodeMap & bit) != 0) {
+                return nodeAt(bit);
+            }
+            else {
+                return null;
+            }
+        }
+
+        private int dataIndex(final int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(final int bit) {
+            return content.length - 1 - Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        private Node nodeAt(final int bit) {
+            return (Node) content[nodeIndex(bit)];
+        }
+
+        private BitmapNode withContent(final int index, final Object value) {
+            final Object[] result = content.clone();
+            result[index] = value;
+            return new BitmapNode(dataMap, nodeMap, result);
+        }
+    }
+
+    /**
+     * Node of the distinct items having the same keys.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final Object[] items;
+
+        CollisionNode(final Object[] items) {
+            this.items = items;
+        }
+
+        @Override
+        boolean contains(final Object item, final int key, final int level) {
+            return indexOf(items, 0, items.length, item) >= 0;
+        }
+
+        @Override
+        Node plus(final Object item, final int key, final int level) {
+            if (contains(item, key, level)) {
+                return this;
+            }
+
+            final Object[] result = Arrays.copyOf(items, items.length + 1);
+            result[items.length] = item;
+            return new CollisionNode(result);
+        }
+
+        @Override
+        Node minus(final Object item, final int key, final int level) {
+            final int index = indexOf(items, 0, items.length, item);
+            if (index < 0) {
+                return this;
+            }
+
+            final Object[] result = new Object[items.length - 1];
+            System.arraycopy(items, 0, result, 0, index);
+            System.arraycopy(items, index + 1, result, index, items.length - index - 1);
+            return new CollisionNode(result);
+        }
+
+        @Override
+        int dataCount() {
+            return items.length;
+        }
+
+        @Override
+        Object data(final int index) {
+            return items[index];
+        }
+
+        @Override
+        int nodeCount() {
+            return 0;
+        }
+
+        @Override
+        Node node(final int index) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+    }
+
+    /**
+     * Depth-first iterator of the trie.
+     *
+     * @param <E> the element type
+     */
+    private static final class TrieIterator<E> implements Iterator<E> {
+
+        private final Node[] nodes = new Node[COLLISION_LEVEL + 1];
+
+        private final int[] nextNodes = new int[COLLISION_LEVEL + 1];
+
+        private int depth = -1;
+
+        private int nextData;
+
+        TrieIterator(final Node root) {
+            push(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            // the items of a node are returned before the items of its child nodes:
+            while (nextData == nodes[depth].dataCount()) {
+                if (nextNodes[depth] < nodes[depth].nodeCount()) {
+                    push(nodes[depth].node(nextNodes[depth]++));
+                }
+                else if (depth == 0) {
+                    return false;
+                }
+                else {
+                    depth--;
+                    nextData = nodes[depth].dataCount();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (E) nodes[depth].data(nextData++);
+        }
+
+        private void push(final Node node) {
+            nodes[++depth] = node;
+            nextNodes[depth] = 0;
+            nextData = 0;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+
+
+/**
+ * Immutable set of items stored in a hash table.
+ * <p>
+ * This is the default store of the sets larger than {@link SmallItemSet#MAX_SIZE}, because its {@link #contains(Object)}
+ * is the fastest one. The set operations between such sets copy the items into new hash tables,
+ * the sets stored by {@link SortedItemSet} are merged instead.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the element type
+ */
+final class HashItemSet<E> extends AbstractSet<E> {
+
+    private final Set<E> items;
+
+    /**
+     * Trie of the same items - lazily created, because the class is immutable.
+     */
+    private HamtItemSet<E> persistent;
+
+    private HashItemSet(final Set<E> items) {
+        this.items = items;
+    }
+
+    /**
+     * Returns the immutable view of the hash set.
+     * <p>
+     * The hash set is handed over, so it must not be modified later.
+     *
+     * @param items the hash set without {@code null} items
+     * @param <E> the element type
+     * @return the set backed by the hash set
+     */
+    static <E> HashItemSet<E> wrap(final Set<E> items) {
+        return new HashItemSet<>(items);
+    }
+
+    /**
+     * Returns the persistent trie of the same items, so that the sets derived by small changes can share it.
+     * <p>
+     * The trie is created once and cached (by the racy single-check idiom, the trie itself is immutable).
+     *
+     * @return the trie of the items
+     */
+    HamtItemSet<E> persistent() {
+        HamtItemSet<E> result = persistent;
+        if (result == null) {
+            result = HamtItemSet.copyOf(this);
+            persistent = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the persistent trie if it has been already created.
+     *
+     * @return the trie or {@code null}
+     * @see #persistent()
+     */
+    HamtItemSet<E> cachedPersistent() {
+        return persistent;
+    }
+
+    @Override
+    public boolean contains(final Object item) {
+        return items.contains(item);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableSet(items).iterator();
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        return other == this || items.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        return items.hashCode();
+    }
+
+}
@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * Extended set of primitive {@code long} values.
+ * <p>
+ * This class has the same semantics as {@link XSet XSet&lt;Long&gt;}, but it does not box its elements.
+ * The {@code items} are stored in a sorted array of distinct values, so {@link #contains(long)} is a binary search
+ * and the set operations are linear merges of the sorted arrays.
+ * <p>
+ * This class is immutable - once created its content cannot be changed.
+ * It also means that this class is thread-safe.
+ *
+ * @author Vaclav Bartacek
+ * @see XSet
+ * @see IntXSet
+ */
+public final class LongXSet {
+
+    private static final LongXSet EMPTY = new LongXSet(SortedLongs.EMPTY, false);
+
+    private static final LongXSet FULL = new LongXSet(SortedLongs.EMPTY, true);
+
+    private final long[] items;
+
+    private final boolean complementary;
+
+    private LongXSet(final long[] items, final boolean complementary) {
+        this.items = items;
+        this.complementary = complementary;
+    }
+
+    /**
+     * Convenient method for obtaining an empty extended set.
+     *
+     * @return empty extended set
+     */
+    public static LongXSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Convenient method for obtaining a full extended set.
+     *
+     * @return full extended set = a complement of an empty extended set
+     */
+    public static LongXSet full() {
+        return FULL;
+    }
+
+    /**
+     * Creates a new finite extended set.
+     *
+     * @param items the items of the finite set
+     * @return the finite extended set
+     * @throws NullPointerException if the items array is {@code null}
+     */
+    public static LongXSet of(final long... items) {
+        requireNonNull(items);
+
+        return canonicalXSet(SortedLongs.sortedDistinct(items), false);
+    }
+
+    /**
+     * Creates a new complementary extended set.
+     *
+     * @param items the complementary items of the result set
+     * @return the complement of the finite extended set
+     * @throws NullPointerException if the items array is {@code null}
+     */
+    public static LongXSet complementOf(final long... items) {
+        requireNonNull(items);
+
+        return canonicalXSet(SortedLongs.sortedDistinct(items), true);
+    }
+
+    /**
+     * Converts the generic extended set to the primitive one.
+     *
+     * @param xset the generic extended set
+     * @return the primitive extended set
+     * @throws NullPointerException if the set is {@code null}
+     */
+    public static LongXSet fromXSet(final XSet<Long> xset) {
+        requireNonNull(xset);
+
+        final Set<Long> xsetItems = xset.getItems();
+        final long[] array = new long[xsetItems.size()];
+        int i = 0;
+        for (final Long item : xsetItems) {
+            array[i++] = item;
+        }
+
+        return canonicalXSet(SortedLongs.sortedDistinct(array), xset.isComplementary());
+    }
+
+    /**
+     * Converts this primitive extended set to the generic one.
+     *
+     * @return the generic extended set
+     */
+    public XSet<Long> toXSet() {
+        final List<Long> list = new ArrayList<>(items.length);
+        for (final long item : items) {
+            list.add(item);
+        }
+
+        return complementary ? XSet.complementOf(list) : XSet.of(list);
+    }
+
+    /**
+     * Returns the {@code items} without the {@code complementary} flag.
+     * <p>
+     * For finite sets this method returns the items belonging to the set.
+     * For complementary sets this method returns the complementary items.
+     *
+     * @return a sorted copy of the items
+     */
+    public long[] getItems() {
+        return items.clone();
+    }
+
+    /**
+     * Returns {@code true} if this set is a complement of a finite set.
+     *
+     * @return complementary flag
+     */
+    public boolean isComplementary() {
+        return complementary;
+    }
+
+    /**
+     * Returns true if this set is a finite set.
+     *
+     * @return finite flag
+     */
+    public boolean isFinite() {
+        return !complementary;
+    }
+
+    /**
+     * Returns true if this set is an empty set.
+     *
+     * @return empty flag
+     */
+    public boolean isEmpty() {
+        return !complementary && items.length == 0;
+    }
+
+    /**
+     * Returns true if this set is a complement of an empty set.
+     *
+     * @return full flag
+     */
+    public boolean isFull() {
+        return complementary && items.length == 0;
+    }
+
+    /**
+     * Returns true if this set is trivial - either empty or full.
+     *
+     * @return trivial flag
+     */
+    public boolean isTrivial() {
+        return items.length == 0;
+    }
+
+    /**
+     * Returns {@code true} if this extended set contains the specified element.
+     *
+     * @param item element whose presence in this set is to be tested
+     * @return true if this extended set contains the element
+     * @see XSet#contains(Object)
+     */
+    public boolean contains(final long item) {
+        final boolean containsItem = SortedLongs.contains(items, item);
+        return complementary ? !containsItem : containsItem;
+    }
+
+    /**
+     * Returns {@code true} if this extended set contains all the specified elements.
+     * <p>
+     * That also means that this method returns {@code true} for empty {@code otherItems}.
+     *
+     * @param otherItems elements whose presence in this set is to be tested
+     * @return true if this extended set contains all the elements
+     * @throws NullPointerException if the specified array is {@code null}
+     * @see XSet#containsAll(java.util.Collection)
+     */
+    public boolean containsAll(final long... otherItems) {
+        requireNonNull(otherItems);
+
+        for (final long item : otherItems) {
+            if (!contains(item)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this extended set contains at least one of the specified elements or there is no element.
+     *
+     * @param otherItems elements whose presence in this set is to be tested
+     * @return true if this extended set contains any of the elements or the specified array is empty
+     * @throws NullPointerException if the specified array is {@code null}
+     * @see XSet#containsAny(java.util.Collection)
+     */
+    public boolean containsAny(final long... otherItems) {
+        requireNonNull(otherItems);
+
+        for (final long item : otherItems) {
+            if (contains(item)) {
+                return true;
+            }
+        }
+
+        return otherItems.length == 0;
+    }
+
+    /**
+     * Tests the presence of each of the specified elements in this extended set.
+     * <p>
+     * The bit {@code i} of the result is set if and only if {@code this.contains(otherItems[i])} returns {@code true}.
+     *
+     * @param otherItems elements whose presence in this set is to be tested
+     * @return the bits of the elements contained in this extended set
+     * @throws NullPointerException if the specified array is {@code null}
+     * @see XSet#containsEach(java.util.List)
+     */
+    public BitSet containsEach(final long... otherItems) {
+        requireNonNull(otherItems);
+
+        final BitSet result = new BitSet(otherItems.length);
+        for (int i = 0; i < otherItems.length; i++) {
+            if (SortedLongs.contains(items, otherItems[i])) {
+                result.set(i);
+            }
+        }
+
+        // the complement branch is hoisted out of the loop:
+        if (complementary) {
+            result.flip(0, otherItems.length);
+        }
+
+        return result;
+    }
+
+    /**
+     * Tests the presence of each of the specified elements in this extended set.
+     * <p>
+     * The element {@code result[i]} is set to {@code this.contains(otherItems[i])} for each index of {@code otherItems},
+     * the rest of the {@code result} array is left untouched.
+     *
+     * @param otherItems elements whose presence in this set is to be tested
+     * @param result array receiving the presence of the elements
+     * @throws NullPointerException if any of the specified arrays is {@code null}
+     * @throws IllegalArgumentException if the {@code result} array is shorter than the {@code otherItems} array
+     * @see XSet#containsEach(Object[], boolean[])
+     */
+    public void containsEach(final long[] otherItems, final boolean[] result) {
+        requireNonNull(otherItems);
+        requireNonNull(result);
+        XSet.requireLength(otherItems.length, result);
+
+        // the complement branch is hoisted out of the loop - XOR with the flag:
+        final boolean flip = complementary;
+        for (int i = 0; i < otherItems.length; i++) {
+            result[i] = SortedLongs.contains(items, otherItems[i]) != flip;
+        }
+    }
+
+    /**
+     * Returns the complement of this extended set.
+     *
+     * @return a complementary set to this one
+     */
+    public LongXSet complement() {
+        if (items.length == 0) {
+            return complementary ? empty() : full();
+        }
+        else {
+            return new LongXSet(items, !complementary);
+        }
+    }
+
+    /**
+     * Returns the subtraction of the other set from this set.
+     *
+     * @param other the other extended set
+     * @return the subtraction
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public LongXSet subtract(final LongXSet other) {
+        requireNonNull(other);
+
+        return intersect(other.complement());
+    }
+
+    /**
+     * Returns the intersection of this and the other extended sets.
+     *
+     * @param other the other extended set
+     * @return the intersection
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public LongXSet intersect(final LongXSet other) {
+        requireNonNull(other);
+
+        if (this.items.length == 0) {
+            return this.complementary ? other : this;
+        }
+        else if (other.items.length == 0) {
+            return other.complementary ? this : other;
+        }
+        else {
+            final long[] resultItems;
+
+            if (this.complementary) {
+                resultItems = other.complementary
+                    ? SortedLongs.union(this.items, other.items)
+                    : SortedLongs.minus(other.items, this.items);
+            }
+            else {
+                resultItems = other.complementary
+                    ? SortedLongs.minus(this.items, other.items)
+                    : SortedLongs.intersect(this.items, other.items);
+            }
+
+            return toResult(other, resultItems, this.complementary && other.complementary);
+        }
+    }
+
+    /**
+     * Returns the union of this and the other extended sets.
+     *
+     * @param other the other extended set
+     * @return the union
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public LongXSet union(final LongXSet other) {
+        requireNonNull(other);
+
+        if (this.items.length == 0) {
+            return this.complementary ? this : other;
+        }
+        else if (other.items.length == 0) {
+            return other.complementary ? other : this;
+        }
+        else {
+            final long[] resultItems;
+
+            if (this.complementary) {
+                resultItems = other.complementary
+                    ? SortedLongs.intersect(this.items, other.items)
+                    : SortedLongs.minus(this.items, other.items);
+            }
+            else {
+                resultItems = other.complementary
+                    ? SortedLongs.minus(other.items, this.items)
+                    : SortedLongs.union(this.items, other.items);
+            }
+
+            return toResult(other, resultItems, this.complementary || other.complementary);
+        }
+    }
+
+    private LongXSet toResult(final LongXSet other, final long[] resultItems, final boolean resultComplementary) {
+        if (resultItems == this.items && this.complementary == resultComplementary) {
+            return this;
+        }
+        else if (resultItems == other.items && other.complementary == resultComplementary) {
+            return other;
+        }
+        else {
+            return canonicalXSet(resultItems, resultComplementary);
+        }
+    }
+
+    private static LongXSet canonicalXSet(final long[] items, final boolean complementary) {
+        if (items.length == 0) {
+            return complementary ? full() : empty();
+        }
+        else {
+            return new LongXSet(items, complementary);
+        }
+    }
+
+    private static void requireNonNull(final LongXSet other) {
+        Objects.requireNonNull(other, "other XSet must not be null");
+    }
+
+    private static void requireNonNull(final Object input) {
+        Objects.requireNonNull(input, "input must not be null");
+    }
+
+    @Override
+    public int hashCode() {
+        final int itemsHash = Arrays.hashCode(items);
+        return complementary ? ~itemsHash : itemsHash;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        final LongXSet that = (LongXSet) other;
+
+        return this.complementary == that.complementary && Arrays.equals(this.items, that.items);
+    }
+
+    @Override
+    public String toString() {
+        return "LongXSet{" + (complementary ? "~" : "") + Arrays.toString(items) + '}';
+    }
+
+}
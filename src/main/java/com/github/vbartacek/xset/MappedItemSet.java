@@ -0,0 +1,570 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Immutable set of items read directly from a memory-mapped file.
+ * <p>
+ * The file starts with a header of 16 bytes (all numbers are big-endian):
+ * <ul>
+ * <li>{@code int} magic number {@code "XSET"}</li>
+ * <li>{@code byte} version of the format (1)</li>
+ * <li>{@code byte} flags - the bit 0 is the complementary flag</li>
+ * <li>{@code byte} item type - 0 no items, 1 {@code Long}, 2 {@code Integer}, 3 {@code String}</li>
+ * <li>{@code byte} reserved (0)</li>
+ * <li>{@code int} count of the items</li>
+ * <li>{@code int} hash code of the items (as of {@link Set#hashCode()})</li>
+ * </ul>
+ * The header is followed by the item block:
+ * <ul>
+ * <li>{@code Long} and {@code Integer} items are stored as a sorted array of {@code long} or {@code int} values</li>
+ * <li>{@code String} items are stored as an array of their {@code int} hash codes in the ascending order,
+ * an array of {@code count + 1} {@code int} offsets of the items and the UTF-8 bytes of all the items</li>
+ * </ul>
+ * The sets read the mapped buffer only by the absolute methods, so they are thread-safe
+ * and the pages are shared with the other processes mapping the same file.
+ * The file size is limited to 2 GiB.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the element type
+ */
+abstract class MappedItemSet<E> extends AbstractSet<E> {
+
+    private static final int MAGIC = 0x5853_4554;
+
+    private static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    private static final int VERSION_OFFSET = 4;
+
+    private static final int FLAGS_OFFSET = 5;
+
+    private static final int TYPE_OFFSET = 6;
+
+    private static final int COUNT_OFFSET = 8;
+
+    private static final int HASH_OFFSET = 12;
+
+    private static final byte COMPLEMENTARY_FLAG = 1;
+
+    private static final byte NO_ITEMS = 0;
+
+    private static final byte LONG_ITEMS = 1;
+
+    private static final byte INTEGER_ITEMS = 2;
+
+    private static final byte STRING_ITEMS = 3;
+
+    private static final long INDEX_MASK = 0xFFFF_FFFFL;
+
+    private final int size;
+
+    private final int hashCode;
+
+    private MappedItemSet(final int size, final int hashCode) {
+        this.size = size;
+        this.hashCode = hashCode;
+    }
+
+    /**
+     * Writes the extended set to the file.
+     * <p>
+     * The file is written to a temporary file first and then it is atomically moved to the target,
+     * so the processes mapping the original file are not affected.
+     *
+     * @param items the items of the set
+     * @param complementary the complementary flag
+     * @param path the target file
+     * @throws IOException if the file cannot be written
+     * @throws UnsupportedOperationException if the items are not of the same supported type
+     * @throws IllegalArgumentException if the file would be larger than 2 GiB
+     */
+    static void write(final Set<?> items, final boolean complementary, final Path path) throws IOException {
+        final byte type = itemType(items);
+        // the size of the numeric items is known in advance, so no file is created for too many of them:
+        if (type == LONG_ITEMS) {
+            requireMappableSize((long) items.size() * Long.BYTES, items.size());
+        }
+        else if (type == INTEGER_ITEMS) {
+            requireMappableSize((long) items.size() * Integer.BYTES, items.size());
+        }
+
+        final Path temporary = createTemporary(path);
+
+        try {
+            try (OutputStream file = Files.newOutputStream(temporary);
+                 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))) {
+
+                output.writeInt(MAGIC);
+                output.writeByte(VERSION);
+                output.writeByte(complementary ? COMPLEMENTARY_FLAG : 0);
+                output.writeByte(type);
+                output.writeByte(0);
+                output.writeInt(items.size());
+                output.writeInt(items.hashCode());
+
+                if (type == LONG_ITEMS) {
+                    writeLongs(items, output);
+                }
+                else if (type == INTEGER_ITEMS) {
+                    writeIntegers(items, output);
+                }
+                else if (type == STRING_ITEMS) {
+                    writeStrings(items, output);
+                }
+            }
+
+            copyPermissions(path, temporary);
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Maps the file written by {@link #write(Set, boolean, Path)}.
+     *
+     * @param path the file
+     * @param type the expected element type
+     * @param <T> the element type
+     * @return the extended set served by the mapped file
+     * @throws IOException if the file cannot be read or it is not a valid file of the given element type
+     */
+    @SuppressWarnings("unchecked")
+    static <T> XSet<T> map(final Path path, final Class<T> type) throws IOException {
+        final ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("invalid size of XSet file " + path + ": " + channel.size());
+            }
+            // the mapping remains valid after the channel is closed:
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC || buffer.get(VERSION_OFFSET) != VERSION) {
+            throw new IOException("not an XSet file: " + path);
+        }
+
+        final boolean complementary = (buffer.get(FLAGS_OFFSET) & COMPLEMENTARY_FLAG) != 0;
+        final byte itemType = buffer.get(TYPE_OFFSET);
+        final int size = buffer.getInt(COUNT_OFFSET);
+        final int hashCode = buffer.getInt(HASH_OFFSET);
+        final MappedItemSet<?> items;
+
+        if (size < 0) {
+            throw new IOException("invalid count of items in XSet file " + path + ": " + size);
+        }
+        else if (size == 0) {
+            return complementary ? XSet.full() : XSet.empty();
+        }
+        else if (itemType == LONG_ITEMS && type == Long.class) {
+            items = new Longs(buffer, size, hashCode);
+        }
+        else if (itemType == INTEGER_ITEMS && type == Integer.class) {
+            items = new Integers(buffer, size, hashCode);
+        }
+        else if (itemType == STRING_ITEMS && type == String.class) {
+            items = new Strings(buffer, size, hashCode);
+        }
+        else {
+            throw new IOException("XSet file " + path + " does not contain items of " + type.getName());
+        }
+
+        if (items.byteSize() != buffer.capacity()) {
+            throw new IOException("invalid size of XSet file " + path + ": " + buffer.capacity());
+        }
+
+        return XSet.backedBy((Set<T>) items, complementary);
+    }
+
+    abstract E get(int index);
+
+    abstract long byteSize();
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public E next() {
+                if (next == size) {
+                    throw new NoSuchElementException();
+                }
+                return get(next++);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof MappedItemSet && hashCode != other.hashCode()) {
+            return false;
+        }
+        return super.equals(other);
+    }
+
+    @Override
+    public int hashCode() {
+        // stored in the header
+        return hashCode;
+    }
+
+    /**
+     * Creates an empty temporary file next to the target.
+     * <p>
+     * Unlike {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute[])},
+     * which restricts the file to its owner, the file gets the default permissions given by the umask of the process,
+     * so the processes of the other users can map it as well.
+     */
+    private static Path createTemporary(final Path path) throws IOException {
+        final Path directory = path.toAbsolutePath().getParent();
+
+        while (true) {
+            final String suffix = Long.toUnsignedString(ThreadLocalRandom.current().nextLong());
+            try {
+                return Files.createFile(directory.resolve(path.getFileName() + "." + suffix + ".tmp"));
+            }
+            catch (final FileAlreadyExistsException e) {
+                // try another name
+            }
+        }
+    }
+
+    /**
+     * Keeps the POSIX permissions of the replaced file.
+     */
+    private static void copyPermissions(final Path path, final Path temporary) throws IOException {
+        if (Files.exists(path) && Files.getFileStore(temporary).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(path));
+        }
+    }
+
+    /**
+     * Checks that the file with the items of the given size can be mapped as a whole.
+     *
+     * @param itemsSize the size of the items following the header in bytes
+     * @param count the number of the items
+     * @throws IllegalArgumentException if the file would be larger than 2 GiB
+     */
+    static void requireMappableSize(final long itemsSize, final int count) {
+        if (HEADER_SIZE + itemsSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too many items for an XSet file: " + count);
+        }
+    }
+
+    private static byte itemType(final Set<?> items) {
+        if (items.isEmpty()) {
+            return NO_ITEMS;
+        }
+
+        final Class<?> type = items.iterator().next().getClass();
+        for (final Object item : items) {
+            if (item.getClass() != type) {
+                throw new UnsupportedOperationException("items of mixed types cannot be written: " + type.getName()
+                    + " and " + item.getClass().getName());
+            }
+        }
+
+        if (type == Long.class) {
+            return LONG_ITEMS;
+        }
+        else if (type == Integer.class) {
+            return INTEGER_ITEMS;
+        }
+        else if (type == String.class) {
+            return STRING_ITEMS;
+        }
+        else {
+            throw new UnsupportedOperationException("items of type " + type.getName() + " cannot be written");
+        }
+    }
+
+    private static void writeLongs(final Set<?> items, final DataOutputStream output) throws IOException {
+        final long[] values = new long[items.size()];
+        int i = 0;
+        for (final Object item : items) {
+            values[i++] = (Long) item;
+        }
+        Arrays.sort(values);
+
+        for (final long value : values) {
+            output.writeLong(value);
+        }
+    }
+
+    private static void writeIntegers(final Set<?> items, final DataOutputStream output) throws IOException {
+        final int[] values = new int[items.size()];
+        int i = 0;
+        for (final Object item : items) {
+            values[i++] = (Integer) item;
+        }
+        Arrays.sort(values);
+
+        for (final int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeStrings(final Set<?> items, final DataOutputStream output) throws IOException {
+        // sort the pairs (hash, index) - the hash in the upper bits drives the ordering:
+        final Object[] array = items.toArray();
+        final long[] keys = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            keys[i] = (long) array[i].hashCode() << Integer.SIZE | i;
+        }
+        Arrays.sort(keys);
+
+        final byte[][] bytes = new byte[array.length][];
+        long offset = 0;
+        for (int i = 0; i < keys.length; i++) {
+            bytes[i] = ((String) array[(int) (keys[i] & INDEX_MASK)]).getBytes(StandardCharsets.UTF_8);
+            offset += bytes[i].length;
+        }
+        requireMappableSize(Integer.BYTES * (2L * array.length + 1) + offset, array.length);
+
+        for (final long key : keys) {
+            output.writeInt((int) (key >> Integer.SIZE));
+        }
+
+        int itemOffset = 0;
+        output.writeInt(itemOffset);
+        for (final byte[] itemBytes : bytes) {
+            itemOffset += itemBytes.length;
+            output.writeInt(itemOffset);
+        }
+
+        for (final byte[] itemBytes : bytes) {
+            output.write(itemBytes);
+        }
+    }
+
+    /**
+     * Sorted {@code long} values.
+     */
+    private static final class Longs extends MappedItemSet<Long> {
+
+        private final ByteBuffer buffer;
+
+        Longs(final ByteBuffer buffer, final int size, final int hashCode) {
+            super(size, hashCode);
+            this.buffer = buffer;
+        }
+
+        @Override
+        Long get(final int index) {
+            return buffer.getLong(HEADER_SIZE + index * Long.BYTES);
+        }
+
+        @Override
+        long byteSize() {
+            return HEADER_SIZE + (long) size() * Long.BYTES;
+        }
+
+        @Override
+        public boolean contains(final Object item) {
+            if (!(item instanceof Long)) {
+                return false;
+            }
+
+            final long value = (Long) item;
+            int low = 0;
+            int high = size() - 1;
+
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final long middleValue = buffer.getLong(HEADER_SIZE + middle * Long.BYTES);
+
+                if (middleValue < value) {
+                    low = middle + 1;
+                }
+                else if (middleValue > value) {
+                    high = middle - 1;
+                }
+                else {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Sorted {@code int} values.
+     */
+    private static final class Integers extends MappedItemSet<Integer> {
+
+        private final ByteBuffer buffer;
+
+        Integers(final ByteBuffer buffer, final int size, final int hashCode) {
+            super(size, hashCode);
+            this.buffer = buffer;
+        }
+
+        @Override
+        Integer get(final int index) {
+            return buffer.getInt(HEADER_SIZE + index * Integer.BYTES);
+        }
+
+        @Override
+        long byteSize() {
+            return HEADER_SIZE + (long) size() * Integer.BYTES;
+        }
+
+        @Override
+        public boolean contains(final Object item) {
+            return item instanceof Integer && indexOf(buffer, size(), (Integer) item) >= 0;
+        }
+    }
+
+    /**
+     * Strings sorted by their hash codes.
+     */
+    private static final class Strings extends MappedItemSet<String> {
+
+        private final ByteBuffer buffer;
+
+        private final int offsetsStart;
+
+        private final int bytesStart;
+
+        Strings(final ByteBuffer buffer, final int size, final int hashCode) {
+            super(size, hashCode);
+            this.buffer = buffer;
+            this.offsetsStart = HEADER_SIZE + size * Integer.BYTES;
+            this.bytesStart = offsetsStart + (size + 1) * Integer.BYTES;
+        }
+
+        @Override
+        String get(final int index) {
+            final int from = offset(index);
+            final byte[] bytes = new byte[offset(index + 1) - from];
+
+            final ByteBuffer source = buffer.duplicate();
+            source.position(bytesStart + from);
+            source.get(bytes);
+
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        long byteSize() {
+            final long offsetsEnd = HEADER_SIZE + (2L * size() + 1) * Integer.BYTES;
+            return offsetsEnd > buffer.capacity() ? offsetsEnd : offsetsEnd + offset(size());
+        }
+
+        @Override
+        public boolean contains(final Object item) {
+            if (!(item instanceof String)) {
+                return false;
+            }
+
+            final int hash = item.hashCode();
+            int index = indexOf(buffer, size(), hash);
+            if (index < 0) {
+                return false;
+            }
+
+            // the run of the equal hash codes:
+            while (index > 0 && hashAt(index - 1) == hash) {
+                index--;
+            }
+
+            final byte[] bytes = ((String) item).getBytes(StandardCharsets.UTF_8);
+            while (index < size() && hashAt(index) == hash) {
+                if (equalsAt(index++, bytes)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private int hashAt(final int index) {
+            return buffer.getInt(HEADER_SIZE + index * Integer.BYTES);
+        }
+
+        private int offset(final int index) {
+            return buffer.getInt(offsetsStart + index * Integer.BYTES);
+        }
+
+        private boolean equalsAt(final int index, final byte[] bytes) {
+            final int from = offset(index);
+            if (offset(index + 1) - from != bytes.length) {
+                return false;
+            }
+
+            final int start = bytesStart + from;
+            for (int i = 0; i < bytes.length; i++) {
+                if (buffer.get(start + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Binary search of the sorted {@code int} values following the header.
+     */
+    private static int indexOf(final ByteBuffer buffer, final int size, final int value) {
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int middleValue = buffer.getInt(HEADER_SIZE + middle * Integer.BYTES);
+
+            if (middleValue < value) {
+                low = middle + 1;
+            }
+            else if (middleValue > value) {
+                high = middle - 1;
+            }
+            else {
+                return middle;
+            }
+        }
+
+        return -1;
+    }
+
+}
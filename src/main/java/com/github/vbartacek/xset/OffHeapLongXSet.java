@@ -0,0 +1,503 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.stream.LongStream;
+
+
+/**
+ * Extended set of primitive {@code long} values stored in the direct (off-heap) memory.
+ * <p>
+ * This class has the same semantics as {@link LongXSet}, but its {@code items} are stored outside of the Java heap,
+ * so even sets of hundreds of millions of values do not increase the heap size nor the garbage collection pauses.
+ * The {@code items} are stored as a sorted array of distinct values, so {@link #contains(long)} is a binary search
+ * and the set operations are linear merges.
+ * <p>
+ * The memory must be released explicitly by {@link #close()}. Each set returned by the methods of this class
+ * (including the complements and the results equal to the operands) holds its own reference to the memory,
+ * so it has to be closed separately - the memory is released when the last set using it is closed.
+ * A closed set cannot be used any more. The empty and full sets do not hold any memory and closing them has no effect.
+ * <p>
+ * This class is immutable, so it is thread-safe until it is closed.
+ * It must not be closed while it is being used by other threads.
+ *
+ * @author Vaclav Bartacek
+ * @see LongXSet
+ */
+public final class OffHeapLongXSet implements AutoCloseable {
+
+    private static final int HASH_MULTIPLIER = 31;
+
+    private static final OffHeapLongXSet EMPTY = new OffHeapLongXSet(OffHeapLongs.EMPTY, false);
+
+    private static final OffHeapLongXSet FULL = new OffHeapLongXSet(OffHeapLongs.EMPTY, true);
+
+    private OffHeapLongs items;
+
+    private final boolean complementary;
+
+    private OffHeapLongXSet(final OffHeapLongs items, final boolean complementary) {
+        this.items = items;
+        this.complementary = complementary;
+    }
+
+    /**
+     * Convenient method for obtaining an empty extended set.
+     *
+     * @return empty extended set
+     */
+    public static OffHeapLongXSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Convenient method for obtaining a full extended set.
+     *
+     * @return full extended set = a complement of an empty extended set
+     */
+    public static OffHeapLongXSet full() {
+        return FULL;
+    }
+
+    /**
+     * Creates a new finite extended set.
+     *
+     * @param items the items of the finite set
+     * @return the finite extended set
+     * @throws NullPointerException if the items array is {@code null}
+     */
+    public static OffHeapLongXSet of(final long... items) {
+        requireNonNull(items);
+
+        return canonicalXSet(OffHeapLongs.copyOf(SortedLongs.sortedDistinct(items), OffHeapLongs.SEGMENT_SHIFT), false);
+    }
+
+    /**
+     * Creates a new complementary extended set.
+     *
+     * @param items the complementary items of the result set
+     * @return the complement of the finite extended set
+     * @throws NullPointerException if the items array is {@code null}
+     */
+    public static OffHeapLongXSet complementOf(final long... items) {
+        requireNonNull(items);
+
+        return canonicalXSet(OffHeapLongs.copyOf(SortedLongs.sortedDistinct(items), OffHeapLongs.SEGMENT_SHIFT), true);
+    }
+
+    /**
+     * Creates a new finite extended set of the sorted items.
+     * <p>
+     * The items are written straight into the direct memory, so the number of them is not limited by the heap size.
+     * The duplicate items are skipped.
+     *
+     * @param sortedItems the items of the finite set in the ascending order
+     * @return the finite extended set
+     * @throws NullPointerException if the stream is {@code null}
+     * @throws IllegalArgumentException if the items are not sorted
+     */
+    public static OffHeapLongXSet ofSorted(final LongStream sortedItems) {
+        requireNonNull(sortedItems);
+
+        return canonicalXSet(writeSorted(sortedItems, OffHeapLongs.SEGMENT_SHIFT), false);
+    }
+
+    /**
+     * Creates a new complementary extended set of the sorted items.
+     *
+     * @param sortedItems the complementary items of the result set in the ascending order
+     * @return the complement of the finite extended set
+     * @throws NullPointerException if the stream is {@code null}
+     * @throws IllegalArgumentException if the items are not sorted
+     * @see #ofSorted(LongStream)
+     */
+    public static OffHeapLongXSet complementOfSorted(final LongStream sortedItems) {
+        requireNonNull(sortedItems);
+
+        return canonicalXSet(writeSorted(sortedItems, OffHeapLongs.SEGMENT_SHIFT), true);
+    }
+
+    /**
+     * Copies the extended set into the direct memory.
+     *
+     * @param xset the extended set on the heap
+     * @return the off-heap extended set
+     * @throws NullPointerException if the set is {@code null}
+     */
+    public static OffHeapLongXSet copyOf(final LongXSet xset) {
+        requireNonNull(xset);
+
+        return canonicalXSet(OffHeapLongs.copyOf(xset.getItems(), OffHeapLongs.SEGMENT_SHIFT), xset.isComplementary());
+    }
+
+    static OffHeapLongXSet ofSorted(final LongStream sortedItems, final boolean complementary, final int segmentShift) {
+        return canonicalXSet(writeSorted(sortedItems, segmentShift), complementary);
+    }
+
+    private static OffHeapLongs writeSorted(final LongStream sortedItems, final int segmentShift) {
+        final OffHeapLongs.Writer writer = new OffHeapLongs.Writer(0, segmentShift);
+        final PrimitiveIterator.OfLong iterator = sortedItems.iterator();
+        long previous = 0;
+
+        try {
+            while (iterator.hasNext()) {
+                final long item = iterator.nextLong();
+
+                if (writer.size() == 0 || item > previous) {
+                    writer.add(item);
+                    previous = item;
+                }
+                else if (item < previous) {
+                    throw new IllegalArgumentException("items are not sorted: " + item + " after " + previous);
+                }
+            }
+
+            return writer.build();
+        }
+        catch (final Throwable e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Copies this extended set to the heap.
+     *
+     * @return the extended set on the heap
+     * @throws IllegalStateException if this set has been closed
+     * @throws OutOfMemoryError if there are too many items for an array
+     */
+    public LongXSet toLongXSet() {
+        final long[] array = items().toArray();
+
+        return complementary ? LongXSet.complementOf(array) : LongXSet.of(array);
+    }
+
+    /**
+     * Returns the number of the {@code items} - the items of a finite set or the complementary items
+     * of a complementary set.
+     *
+     * @return the number of the items
+     * @throws IllegalStateException if this set has been closed
+     */
+    public long getItemCount() {
+        return items().size();
+    }
+
+    /**
+     * Returns {@code true} if this set is a complement of a finite set.
+     *
+     * @return complementary flag
+     */
+    public boolean isComplementary() {
+        return complementary;
+    }
+
+    /**
+     * Returns true if this set is a finite set.
+     *
+     * @return finite flag
+     */
+    public boolean isFinite() {
+        return !complementary;
+    }
+
+    /**
+     * Returns true if this set is an empty set.
+     *
+     * @return empty flag
+     * @throws IllegalStateException if this set has been closed
+     */
+    public boolean isEmpty() {
+        return !complementary && isTrivial();
+    }
+
+    /**
+     * Returns true if this set is a complement of an empty set.
+     *
+     * @return full flag
+     * @throws IllegalStateException if this set has been closed
+     */
+    public boolean isFull() {
+        return complementary && isTrivial();
+    }
+
+    /**
+     * Returns true if this set is trivial - either empty or full.
+     *
+     * @return trivial flag
+     * @throws IllegalStateException if this set has been closed
+     */
+    public boolean isTrivial() {
+        return items().size() == 0;
+    }
+
+    /**
+     * Returns {@code true} if this extended set contains the specified element.
+     *
+     * @param item element whose presence in this set is to be tested
+     * @return true if this extended set contains the element
+     * @throws IllegalStateException if this set has been closed
+     * @see LongXSet#contains(long)
+     */
+    public boolean contains(final long item) {
+        final boolean containsItem = items().contains(item);
+        return complementary ? !containsItem : containsItem;
+    }
+
+    /**
+     * Returns {@code true} if this extended set contains all the specified elements.
+     *
+     * @param otherItems elements whose presence in this set is to be tested
+     * @return true if this extended set contains all the elements
+     * @throws NullPointerException if the specified array is {@code null}
+     * @throws IllegalStateException if this set has been closed
+     * @see LongXSet#containsAll(long...)
+     */
+    public boolean containsAll(final long... otherItems) {
+        requireNonNull(otherItems);
+
+        final OffHeapLongs offHeapItems = items();
+        for (final long item : otherItems) {
+            if (offHeapItems.contains(item) == complementary) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this extended set contains at least one of the specified elements or there is no element.
+     *
+     * @param otherItems elements whose presence in this set is to be tested
+     * @return true if this extended set contains any of the elements or the specified array is empty
+     * @throws NullPointerException if the specified array is {@code null}
+     * @throws IllegalStateException if this set has been closed
+     * @see LongXSet#containsAny(long...)
+     */
+    public boolean containsAny(final long... otherItems) {
+        requireNonNull(otherItems);
+
+        final OffHeapLongs offHeapItems = items();
+        for (final long item : otherItems) {
+            if (offHeapItems.contains(item) != complementary) {
+                return true;
+            }
+        }
+
+        return otherItems.length == 0;
+    }
+
+    /**
+     * Tests the presence of each of the specified elements in this extended set.
+     *
+     * @param otherItems elements whose presence in this set is to be tested
+     * @return the bits of the elements contained in this extended set
+     * @throws NullPointerException if the specified array is {@code null}
+     * @throws IllegalStateException if this set has been closed
+     * @see LongXSet#containsEach(long...)
+     */
+    public BitSet containsEach(final long... otherItems) {
+        requireNonNull(otherItems);
+
+        final OffHeapLongs offHeapItems = items();
+        final BitSet result = new BitSet(otherItems.length);
+        for (int i = 0; i < otherItems.length; i++) {
+            if (offHeapItems.contains(otherItems[i])) {
+                result.set(i);
+            }
+        }
+
+        // the complement branch is hoisted out of the loop:
+        if (complementary) {
+            result.flip(0, otherItems.length);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the complement of this extended set.
+     * <p>
+     * The complement shares the memory with this set, but it has to be closed separately.
+     *
+     * @return a complementary set to this one
+     * @throws IllegalStateException if this set has been closed
+     */
+    public OffHeapLongXSet complement() {
+        return canonicalXSet(items().retain(), !complementary);
+    }
+
+    /**
+     * Returns the subtraction of the other set from this set.
+     *
+     * @param other the other extended set
+     * @return the subtraction
+     * @throws NullPointerException if the other set is {@code null}
+     * @throws IllegalStateException if any of the sets has been closed
+     */
+    public OffHeapLongXSet subtract(final OffHeapLongXSet other) {
+        requireNonNull(other);
+
+        final OffHeapLongs otherItems = other.items();
+        final OffHeapLongs thisItems = items();
+
+        if (this.complementary) {
+            return other.complementary
+                ? canonicalXSet(OffHeapLongs.minus(otherItems, thisItems), false)
+                : canonicalXSet(OffHeapLongs.union(thisItems, otherItems), true);
+        }
+        else {
+            return other.complementary
+                ? canonicalXSet(OffHeapLongs.intersect(thisItems, otherItems), false)
+                : canonicalXSet(OffHeapLongs.minus(thisItems, otherItems), false);
+        }
+    }
+
+    /**
+     * Returns the intersection of this and the other extended sets.
+     *
+     * @param other the other extended set
+     * @return the intersection
+     * @throws NullPointerException if the other set is {@code null}
+     * @throws IllegalStateException if any of the sets has been closed
+     */
+    public OffHeapLongXSet intersect(final OffHeapLongXSet other) {
+        requireNonNull(other);
+
+        final OffHeapLongs otherItems = other.items();
+        final OffHeapLongs thisItems = items();
+
+        if (this.complementary) {
+            return other.complementary
+                ? canonicalXSet(OffHeapLongs.union(thisItems, otherItems), true)
+                : canonicalXSet(OffHeapLongs.minus(otherItems, thisItems), false);
+        }
+        else {
+            return other.complementary
+                ? canonicalXSet(OffHeapLongs.minus(thisItems, otherItems), false)
+                : canonicalXSet(OffHeapLongs.intersect(thisItems, otherItems), false);
+        }
+    }
+
+    /**
+     * Returns the union of this and the other extended sets.
+     *
+     * @param other the other extended set
+     * @return the union
+     * @throws NullPointerException if the other set is {@code null}
+     * @throws IllegalStateException if any of the sets has been closed
+     */
+    public OffHeapLongXSet union(final OffHeapLongXSet other) {
+        requireNonNull(other);
+
+        final OffHeapLongs otherItems = other.items();
+        final OffHeapLongs thisItems = items();
+
+        if (this.complementary) {
+            return other.complementary
+                ? canonicalXSet(OffHeapLongs.intersect(thisItems, otherItems), true)
+                : canonicalXSet(OffHeapLongs.minus(thisItems, otherItems), true);
+        }
+        else {
+            return other.complementary
+                ? canonicalXSet(OffHeapLongs.minus(otherItems, thisItems), true)
+                : canonicalXSet(OffHeapLongs.union(thisItems, otherItems), false);
+        }
+    }
+
+    /**
+     * Releases the reference of this set to the memory, the memory is released when the last set using it is closed.
+     * <p>
+     * Closing the set repeatedly has no effect.
+     */
+    @Override
+    public void close() {
+        final OffHeapLongs closedItems = items;
+
+        // the trivial sets are shared singletons:
+        if (closedItems != null && closedItems != OffHeapLongs.EMPTY) {
+            items = null;
+            closedItems.release();
+        }
+    }
+
+    private OffHeapLongs items() {
+        final OffHeapLongs result = items;
+        if (result == null) {
+            throw new IllegalStateException("the XSet has been closed");
+        }
+        return result;
+    }
+
+    private static OffHeapLongXSet canonicalXSet(final OffHeapLongs items, final boolean complementary) {
+        if (items.size() == 0) {
+            return complementary ? full() : empty();
+        }
+        else {
+            return new OffHeapLongXSet(items, complementary);
+        }
+    }
+
+    private static void requireNonNull(final OffHeapLongXSet other) {
+        Objects.requireNonNull(other, "other XSet must not be null");
+    }
+
+    private static void requireNonNull(final Object input) {
+        Objects.requireNonNull(input, "input must not be null");
+    }
+
+    @Override
+    public int hashCode() {
+        // the same as LongXSet.hashCode():
+        final OffHeapLongs offHeapItems = items();
+        int itemsHash = 1;
+        for (long i = 0; i < offHeapItems.size(); i++) {
+            itemsHash = HASH_MULTIPLIER * itemsHash + Long.hashCode(offHeapItems.get(i));
+        }
+        return complementary ? ~itemsHash : itemsHash;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        final OffHeapLongXSet that = (OffHeapLongXSet) other;
+        final OffHeapLongs thisItems = this.items();
+        final OffHeapLongs thatItems = that.items();
+
+        if (this.complementary != that.complementary || thisItems.size() != thatItems.size()) {
+            return false;
+        }
+
+        for (long i = 0; i < thisItems.size(); i++) {
+            if (thisItems.get(i) != thatItems.get(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        // the items are not listed, there might be too many of them:
+        final OffHeapLongs offHeapItems = items;
+        final String content = offHeapItems == null ? "closed" : offHeapItems.size() + " items";
+        return "OffHeapLongXSet{" + (complementary ? "~" : "") + '[' + content + "]}";
+    }
+
+}
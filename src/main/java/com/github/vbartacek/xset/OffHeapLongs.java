@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Sorted distinct {@code long} values stored in the direct (off-heap) memory.
+ * <p>
+ * The values are split into segments of the same size (a power of two, 1 GiB by default), only the last one
+ * can be shorter, so the number of the values is not limited by the maximal size of a buffer.
+ * <p>
+ * The memory is shared by reference counting - it is released when the last reference is released.
+ * The set operations never modify their arguments. Similarly to {@link SortedLongs} they return one of the operands
+ * (with a new reference) when the result is provably equal to it.
+ *
+ * @author Vaclav Bartacek
+ */
+final class OffHeapLongs {
+
+    /**
+     * The default size of the segments - 2^27 values (1 GiB).
+     */
+    static final int SEGMENT_SHIFT = 27;
+
+    static final OffHeapLongs EMPTY = new OffHeapLongs(new ByteBuffer[0], new LongBuffer[0], 0, SEGMENT_SHIFT);
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Maximal size of an array supported by the JVMs.
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * If the smaller set is at least this times smaller than the larger one,
+     * then binary search is used for probing the larger set instead of merging.
+     */
+    private static final int PROBE_RATIO = 16;
+
+    private final ByteBuffer[] buffers;
+
+    private final LongBuffer[] segments;
+
+    private final long size;
+
+    private final int segmentShift;
+
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private OffHeapLongs(final ByteBuffer[] buffers, final LongBuffer[] segments, final long size, final int segmentShift) {
+        this.buffers = buffers;
+        this.segments = segments;
+        this.size = size;
+        this.segmentShift = segmentShift;
+    }
+
+    /**
+     * Copies the values into the direct memory.
+     *
+     * @param sortedDistinct sorted distinct values
+     * @param segmentShift the binary logarithm of the segment size
+     * @return the off-heap values
+     */
+    static OffHeapLongs copyOf(final long[] sortedDistinct, final int segmentShift) {
+        final Writer writer = new Writer(sortedDistinct.length, segmentShift);
+
+        try {
+            for (final long item : sortedDistinct) {
+                writer.add(item);
+            }
+            return writer.build();
+        }
+        catch (final Throwable e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of the values the allocated segments can hold.
+     *
+     * @return the total capacity of the segments
+     */
+    long capacity() {
+        long result = 0;
+        for (final LongBuffer segment : segments) {
+            result += segment.capacity();
+        }
+        return result;
+    }
+
+    long get(final long index) {
+        return segments[(int) (index >>> segmentShift)].get((int) (index & ((1L << segmentShift) - 1)));
+    }
+
+    boolean contains(final long item) {
+        long low = 0;
+        long high = size - 1;
+
+        while (low <= high) {
+            final long middle = (low + high) >>> 1;
+            final long value = get(middle);
+
+            if (value < item) {
+                low = middle + 1;
+            }
+            else if (value > item) {
+                high = middle - 1;
+            }
+            else {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns a copy of the values on the heap.
+     *
+     * @return the sorted values
+     * @throws OutOfMemoryError if there are too many values for an array
+     */
+    long[] toArray() {
+        if (size > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("too many items for an array: " + size);
+        }
+
+        final long[] result = new long[(int) size];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Acquires a new reference of the memory.
+     *
+     * @return this
+     */
+    OffHeapLongs retain() {
+        if (this != EMPTY) {
+            references.incrementAndGet();
+        }
+        return this;
+    }
+
+    /**
+     * Releases the reference of the memory, the last one releases the memory itself.
+     */
+    void release() {
+        if (this != EMPTY && references.decrementAndGet() == 0) {
+            for (final ByteBuffer buffer : buffers) {
+                DirectMemory.release(buffer);
+            }
+        }
+    }
+
+    static OffHeapLongs intersect(final OffHeapLongs set1, final OffHeapLongs set2) {
+        final OffHeapLongs smaller = set1.size <= set2.size ? set1 : set2;
+        final OffHeapLongs larger = smaller == set1 ? set2 : set1;
+        if (smaller.size == 0) {
+            return smaller;
+        }
+
+        final Writer result = new Writer(smaller.size, set1.segmentShift);
+
+        try {
+            if (isSkewed(smaller, larger)) {
+                for (long i = 0; i < smaller.size; i++) {
+                    final long item = smaller.get(i);
+                    if (larger.contains(item)) {
+                        result.add(item);
+                    }
+                }
+            }
+            else {
+                long i = 0;
+                long j = 0;
+                while (i < smaller.size && j < larger.size) {
+                    final long item1 = smaller.get(i);
+                    final long item2 = larger.get(j);
+
+                    if (item1 < item2) {
+                        i++;
+                    }
+                    else if (item1 > item2) {
+                        j++;
+                    }
+                    else {
+                        result.add(item1);
+                        i++;
+                        j++;
+                    }
+                }
+            }
+
+            return result.size == smaller.size ? result.discard(smaller) : result.build();
+        }
+        catch (final Throwable e) {
+            result.abort();
+            throw e;
+        }
+    }
+
+    static OffHeapLongs union(final OffHeapLongs set1, final OffHeapLongs set2) {
+        if (set1.size == 0) {
+            return set2.retain();
+        }
+        else if (set2.size == 0) {
+            return set1.retain();
+        }
+
+        final Writer result = new Writer(set1.size + set2.size, set1.segmentShift);
+
+        try {
+            long i = 0;
+            long j = 0;
+
+            while (i < set1.size && j < set2.size) {
+                final long item1 = set1.get(i);
+                final long item2 = set2.get(j);
+
+                if (item1 < item2) {
+                    result.add(item1);
+                    i++;
+                }
+                else if (item1 > item2) {
+                    result.add(item2);
+                    j++;
+                }
+                else {
+                    result.add(item1);
+                    i++;
+                    j++;
+                }
+            }
+
+            while (i < set1.size) {
+                result.add(set1.get(i++));
+            }
+
+            while (j < set2.size) {
+                result.add(set2.get(j++));
+            }
+
+            if (result.size == set1.size) {
+                return result.discard(set1);
+            }
+            else if (result.size == set2.size) {
+                return result.discard(set2);
+            }
+            else {
+                return result.build();
+            }
+        }
+        catch (final Throwable e) {
+            result.abort();
+            throw e;
+        }
+    }
+
+    static OffHeapLongs minus(final OffHeapLongs set1, final OffHeapLongs set2) {
+        if (set1.size == 0 || set2.size == 0) {
+            return set1.retain();
+        }
+
+        final Writer result = new Writer(set1.size, set1.segmentShift);
+
+        try {
+            if (isSkewed(set1, set2)) {
+                for (long i = 0; i < set1.size; i++) {
+                    final long item = set1.get(i);
+                    if (!set2.contains(item)) {
+                        result.add(item);
+                    }
+                }
+            }
+            else {
+                long i = 0;
+                long j = 0;
+                while (i < set1.size) {
+                    final long item1 = set1.get(i);
+
+                    if (j == set2.size || item1 < set2.get(j)) {
+                        result.add(item1);
+                        i++;
+                    }
+                    else if (item1 > set2.get(j)) {
+                        j++;
+                    }
+                    else {
+                        i++;
+                        j++;
+                    }
+                }
+            }
+
+            return result.size == set1.size ? result.discard(set1) : result.build();
+        }
+        catch (final Throwable e) {
+            result.abort();
+            throw e;
+        }
+    }
+
+    private static boolean isSkewed(final OffHeapLongs smaller, final OffHeapLongs larger) {
+        return smaller.size * PROBE_RATIO < larger.size;
+    }
+
+    /**
+     * Appends the sorted distinct values into the direct memory.
+     * <p>
+     * The segments are allocated on demand, the last one grows by doubling.
+     */
+    static final class Writer {
+
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+
+        private final List<LongBuffer> segments = new ArrayList<>();
+
+        private final long expectedSize;
+
+        private final int segmentShift;
+
+        private final int segmentSize;
+
+        private LongBuffer current;
+
+        private long size;
+
+        Writer(final long expectedSize, final int segmentShift) {
+            this.expectedSize = expectedSize;
+            this.segmentShift = segmentShift;
+            this.segmentSize = 1 << segmentShift;
+        }
+
+        long size() {
+            return size;
+        }
+
+        void add(final long item) {
+            if (current == null || !current.hasRemaining()) {
+                grow();
+            }
+            current.put(item);
+            size++;
+        }
+
+        OffHeapLongs build() {
+            if (size == 0) {
+                return discard(EMPTY);
+            }
+
+            trim();
+
+            return new OffHeapLongs(
+                buffers.toArray(new ByteBuffer[0]), segments.toArray(new LongBuffer[0]), size, segmentShift);
+        }
+
+        /**
+         * Releases the written values, because the result is equal to the given values.
+         *
+         * @return the given values with a new reference
+         */
+        OffHeapLongs discard(final OffHeapLongs result) {
+            abort();
+
+            return result.retain();
+        }
+
+        /**
+         * Releases the written values, because the writing has failed - e.g. by {@link OutOfMemoryError}
+         * of the direct memory, the segments would be never freed otherwise.
+         */
+        void abort() {
+            for (final ByteBuffer buffer : buffers) {
+                DirectMemory.release(buffer);
+            }
+            buffers.clear();
+            segments.clear();
+            current = null;
+        }
+
+        /**
+         * Copies the last segment into a right-sized one if it is mostly empty,
+         * because it has been allocated for the expected size - e.g. the size of the larger operand of a union.
+         */
+        private void trim() {
+            final int used = current.position();
+
+            if (current.capacity() - used > Math.max(used, INITIAL_CAPACITY)) {
+                final int last = segments.size() - 1;
+                final ByteBuffer buffer = DirectMemory.allocate(used * Long.BYTES);
+                final LongBuffer segment = buffer.asLongBuffer();
+
+                current.flip();
+                segment.put(current);
+                DirectMemory.release(buffers.get(last));
+
+                buffers.set(last, buffer);
+                segments.set(last, segment);
+                current = segment;
+            }
+        }
+
+        private void grow() {
+            final int last = segments.size() - 1;
+
+            if (current != null && current.capacity() < segmentSize) {
+                // the last segment is enlarged:
+                final int capacity = (int) Math.min(current.capacity() * 2L, segmentSize);
+                final ByteBuffer buffer = DirectMemory.allocate(capacity * Long.BYTES);
+                final LongBuffer segment = buffer.asLongBuffer();
+
+                current.flip();
+                segment.put(current);
+                DirectMemory.release(buffers.get(last));
+
+                buffers.set(last, buffer);
+                segments.set(last, segment);
+                current = segment;
+            }
+            else {
+                // a new segment - of the expected size if it is known:
+                final int capacity = (int) Math.min(Math.max(expectedSize - size, INITIAL_CAPACITY), segmentSize);
+                final ByteBuffer buffer = DirectMemory.allocate(capacity * Long.BYTES);
+
+                buffers.add(buffer);
+                current = buffer.asLongBuffer();
+                segments.add(current);
+            }
+        }
+    }
+
+}
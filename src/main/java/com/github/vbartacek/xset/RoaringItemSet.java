@@ -0,0 +1,639 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Immutable compressed bitmap of {@code Integer} items in the style of roaring bitmaps.
+ * <p>
+ * The items are partitioned by their high 16 bits (keys).
+ * The low 16 bits of the items sharing the same key are stored in a container, which is either
+ * a sorted array (up to {@value #ARRAY_MAX_SIZE} items) or a bitmap of 65536 bits.
+ * The set operations are done container by container, so they are linear merges or word-wise bitwise operations.
+ *
+ * @author Vaclav Bartacek
+ */
+final class RoaringItemSet extends AbstractSet<Integer> {
+
+    /**
+     * The minimal number of {@code Integer} items for which {@link XSet} uses this representation.
+     */
+    static final int MIN_SIZE = 1024;
+
+    private static final int ARRAY_MAX_SIZE = 4096;
+
+    private static final int BITMAP_WORDS = 1024;
+
+    private static final int WORD_SHIFT = 6;
+
+    private static final int KEY_SHIFT = 16;
+
+    private static final int KEY_COUNT = 1 << KEY_SHIFT;
+
+    private static final int LOW_MASK = 0xFFFF;
+
+    private static final char[] NO_KEYS = new char[0];
+
+    private static final Container[] NO_CONTAINERS = new Container[0];
+
+    private final char[] keys;
+
+    private final Container[] containers;
+
+    private final int size;
+
+    private RoaringItemSet(final char[] keys, final Container[] containers, final int count) {
+        this.keys = count == 0 ? NO_KEYS : Arrays.copyOf(keys, count);
+        this.containers = count == 0 ? NO_CONTAINERS : Arrays.copyOf(containers, count);
+
+        int cardinality = 0;
+        for (final Container container : this.containers) {
+            cardinality += container.cardinality();
+        }
+        this.size = cardinality;
+    }
+
+    /**
+     * Creates the bitmap if all the items are {@code Integer} ones.
+     *
+     * @param collection the collection without {@code null} items
+     * @return the bitmap or {@code null} if there is a non-{@code Integer} item
+     */
+    static RoaringItemSet copyOf(final Collection<?> collection) {
+        if (collection instanceof RoaringItemSet) {
+            return (RoaringItemSet) collection;
+        }
+
+        final int[] values = new int[collection.size()];
+        int count = 0;
+
+        for (final Object item : collection) {
+            if (!(item instanceof Integer)) {
+                return null;
+            }
+            // flipping the sign bit makes the signed sort order equal to the unsigned one:
+            values[count++] = (Integer) item ^ Integer.MIN_VALUE;
+        }
+
+        Arrays.sort(values);
+        return fromSortedFlipped(values);
+    }
+
+    private static RoaringItemSet fromSortedFlipped(final int[] values) {
+        final int capacity = Math.min(values.length, KEY_COUNT);
+        final char[] keys = new char[capacity];
+        final Container[] containers = new Container[capacity];
+        int count = 0;
+        int from = 0;
+
+        while (from < values.length) {
+            final char key = key(values[from] ^ Integer.MIN_VALUE);
+            int to = from + 1;
+            while (to < values.length && key(values[to] ^ Integer.MIN_VALUE) == key) {
+                to++;
+            }
+
+            final char[] lows = new char[to - from];
+            int lowCount = 0;
+            for (int i = from; i < to; i++) {
+                final char low = low(values[i]);
+                if (lowCount == 0 || lows[lowCount - 1] != low) {
+                    lows[lowCount++] = low;
+                }
+            }
+
+            keys[count] = key;
+            containers[count++] = ArrayContainer.of(lowCount == lows.length ? lows : Arrays.copyOf(lows, lowCount));
+            from = to;
+        }
+
+        return new RoaringItemSet(keys, containers, count);
+    }
+
+    static RoaringItemSet intersect(final RoaringItemSet set1, final RoaringItemSet set2) {
+        final int capacity = Math.min(set1.keys.length, set2.keys.length);
+        final char[] keys = new char[capacity];
+        final Container[] containers = new Container[capacity];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < set1.keys.length && j < set2.keys.length) {
+            if (set1.keys[i] < set2.keys[j]) {
+                i++;
+            }
+            else if (set1.keys[i] > set2.keys[j]) {
+                j++;
+            }
+            else {
+                final Container container = set1.containers[i].and(set2.containers[j]);
+                if (container.cardinality() > 0) {
+                    keys[count] = set1.keys[i];
+                    containers[count++] = container;
+                }
+                i++;
+                j++;
+            }
+        }
+
+        return reuse(set1, set2, new RoaringItemSet(keys, containers, count));
+    }
+
+    static RoaringItemSet union(final RoaringItemSet set1, final RoaringItemSet set2) {
+        final int capacity = set1.keys.length + set2.keys.length;
+        final char[] keys = new char[capacity];
+        final Container[] containers = new Container[capacity];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < set1.keys.length || j < set2.keys.length) {
+            if (j == set2.keys.length || i < set1.keys.length && set1.keys[i] < set2.keys[j]) {
+                keys[count] = set1.keys[i];
+                containers[count++] = set1.containers[i++];
+            }
+            else if (i == set1.keys.length || set1.keys[i] > set2.keys[j]) {
+                keys[count] = set2.keys[j];
+                containers[count++] = set2.containers[j++];
+            }
+            else {
+                keys[count] = set1.keys[i];
+                containers[count++] = set1.containers[i++].or(set2.containers[j++]);
+            }
+        }
+
+        return reuse(set1, set2, new RoaringItemSet(keys, containers, count));
+    }
+
+    static RoaringItemSet minus(final RoaringItemSet set1, final RoaringItemSet set2) {
+        final char[] keys = new char[set1.keys.length];
+        final Container[] containers = new Container[set1.keys.length];
+        int count = 0;
+        int j = 0;
+
+        for (int i = 0; i < set1.keys.length; i++) {
+            while (j < set2.keys.length && set2.keys[j] < set1.keys[i]) {
+                j++;
+            }
+
+            final Container container = j < set2.keys.length && set2.keys[j] == set1.keys[i]
+                ? set1.containers[i].andNot(set2.containers[j])
+                : set1.containers[i];
+
+            if (container.cardinality() > 0) {
+                keys[count] = set1.keys[i];
+                containers[count++] = container;
+            }
+        }
+
+        final RoaringItemSet result = new RoaringItemSet(keys, containers, count);
+        return result.size == set1.size ? set1 : result;
+    }
+
+    private static RoaringItemSet reuse(final RoaringItemSet set1, final RoaringItemSet set2, final RoaringItemSet result) {
+        // the result is either a subset or a superset of both operands:
+        if (result.size == set1.size) {
+            return set1;
+        }
+        else if (result.size == set2.size) {
+            return set2;
+        }
+        else {
+            return result;
+        }
+    }
+
+    @Override
+    public boolean contains(final Object item) {
+        if (!(item instanceof Integer)) {
+            return false;
+        }
+
+        final int value = (Integer) item;
+        final int index = Arrays.binarySearch(keys, key(value));
+        return index >= 0 && containers[index].contains(low(value));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<Integer>() {
+            private int index = -1;
+
+            private LowIterator current = LowIterator.EMPTY;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && index < containers.length - 1) {
+                    current = containers[++index].iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return keys[index] << KEY_SHIFT | current.next();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof RoaringItemSet) {
+            final RoaringItemSet that = (RoaringItemSet) other;
+            return Arrays.equals(this.keys, that.keys) && Arrays.equals(this.containers, that.containers);
+        }
+        else {
+            return super.equals(other);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private static char key(final int value) {
+        return (char) (value >>> KEY_SHIFT);
+    }
+
+    private static char low(final int value) {
+        return (char) (value & LOW_MASK);
+    }
+
+    /**
+     * Iterator of the low 16 bits of the items in a container.
+     */
+    private interface LowIterator {
+
+        LowIterator EMPTY = new LowIterator() {
+            @Override
+            public boolean hasNext() {
+                return false;
+            }
+
+            @Override
+            public int next() {
+                throw new NoSuchElementException();
+            }
+        };
+
+        boolean hasNext();
+
+        int next();
+    }
+
+    /**
+     * Container of the low 16 bits of the items sharing the same key.
+     */
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        abstract Container and(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract LowIterator iterator();
+
+        /**
+         * Creates the best container for the bits.
+         */
+        static Container of(final long[] words, final int cardinality) {
+            if (cardinality > ARRAY_MAX_SIZE) {
+                return new BitmapContainer(words, cardinality);
+            }
+
+            final char[] values = new char[cardinality];
+            int count = 0;
+            for (int i = 0; i < words.length; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    values[count++] = (char) ((i << WORD_SHIFT) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values);
+        }
+    }
+
+    /**
+     * Container with a sorted array of the low 16 bits.
+     */
+    private static final class ArrayContainer extends Container {
+
+        private final char[] values;
+
+        private ArrayContainer(final char[] values) {
+            this.values = values;
+        }
+
+        static Container of(final char[] values) {
+            if (values.length > ARRAY_MAX_SIZE) {
+                final long[] words = new long[BITMAP_WORDS];
+                for (final char value : values) {
+                    words[value >>> WORD_SHIFT] |= 1L << value;
+                }
+                return new BitmapContainer(words, values.length);
+            }
+            else {
+                return new ArrayContainer(values);
+            }
+        }
+
+        @Override
+        int cardinality() {
+            return values.length;
+        }
+
+        @Override
+        boolean contains(final char low) {
+            return Arrays.binarySearch(values, low) >= 0;
+        }
+
+        @Override
+        Container and(final Container other) {
+            final char[] result = new char[values.length];
+            int count = 0;
+
+            if (other instanceof ArrayContainer) {
+                final char[] others = ((ArrayContainer) other).values;
+                int i = 0;
+                int j = 0;
+                while (i < values.length && j < others.length) {
+                    if (values[i] < others[j]) {
+                        i++;
+                    }
+                    else if (values[i] > others[j]) {
+                        j++;
+                    }
+                    else {
+                        result[count++] = values[i++];
+                        j++;
+                    }
+                }
+            }
+            else {
+                for (final char value : values) {
+                    if (other.contains(value)) {
+                        result[count++] = value;
+                    }
+                }
+            }
+
+            return count == values.length ? this : new ArrayContainer(Arrays.copyOf(result, count));
+        }
+
+        @Override
+        Container or(final Container other) {
+            if (other instanceof BitmapContainer) {
+                return other.or(this);
+            }
+
+            final char[] others = ((ArrayContainer) other).values;
+            final char[] result = new char[values.length + others.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+
+            while (i < values.length || j < others.length) {
+                if (j == others.length || i < values.length && values[i] < others[j]) {
+                    result[count++] = values[i++];
+                }
+                else if (i == values.length || values[i] > others[j]) {
+                    result[count++] = others[j++];
+                }
+                else {
+                    result[count++] = values[i++];
+                    j++;
+                }
+            }
+
+            if (count == values.length) {
+                return this;
+            }
+            else {
+                return count == others.length ? other : ArrayContainer.of(Arrays.copyOf(result, count));
+            }
+        }
+
+        @Override
+        Container andNot(final Container other) {
+            final char[] result = new char[values.length];
+            int count = 0;
+
+            if (other instanceof ArrayContainer) {
+                final char[] others = ((ArrayContainer) other).values;
+                int j = 0;
+                for (final char value : values) {
+                    while (j < others.length && others[j] < value) {
+                        j++;
+                    }
+                    if (j == others.length || others[j] != value) {
+                        result[count++] = value;
+                    }
+                }
+            }
+            else {
+                for (final char value : values) {
+                    if (!other.contains(value)) {
+                        result[count++] = value;
+                    }
+                }
+            }
+
+            return count == values.length ? this : new ArrayContainer(Arrays.copyOf(result, count));
+        }
+
+        @Override
+        LowIterator iterator() {
+            return new LowIterator() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return index < values.length;
+                }
+
+                @Override
+                public int next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return values[index++];
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof ArrayContainer && Arrays.equals(values, ((ArrayContainer) other).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+
+    /**
+     * Container with a bitmap of the low 16 bits.
+     */
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words;
+
+        private final int cardinality;
+
+        private BitmapContainer(final long[] words, final int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(final char low) {
+            return (words[low >>> WORD_SHIFT] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container and(final Container other) {
+            if (other instanceof ArrayContainer) {
+                return other.and(this);
+            }
+
+            final long[] others = ((BitmapContainer) other).words;
+            final long[] result = new long[BITMAP_WORDS];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                result[i] = words[i] & others[i];
+                count += Long.bitCount(result[i]);
+            }
+
+            return reuse(other, result, count);
+        }
+
+        @Override
+        Container or(final Container other) {
+            final long[] result = words.clone();
+            int count = cardinality;
+
+            if (other instanceof ArrayContainer) {
+                for (final char value : ((ArrayContainer) other).values) {
+                    final long bit = 1L << value;
+                    if ((result[value >>> WORD_SHIFT] & bit) == 0) {
+                        result[value >>> WORD_SHIFT] |= bit;
+                        count++;
+                    }
+                }
+            }
+            else {
+                final long[] others = ((BitmapContainer) other).words;
+                count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result[i] |= others[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+
+            return reuse(other, result, count);
+        }
+
+        @Override
+        Container andNot(final Container other) {
+            final long[] result = words.clone();
+            int count = cardinality;
+
+            if (other instanceof ArrayContainer) {
+                for (final char value : ((ArrayContainer) other).values) {
+                    final long bit = 1L << value;
+                    if ((result[value >>> WORD_SHIFT] & bit) != 0) {
+                        result[value >>> WORD_SHIFT] &= ~bit;
+                        count--;
+                    }
+                }
+            }
+            else {
+                final long[] others = ((BitmapContainer) other).words;
+                count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    result[i] &= ~others[i];
+                    count += Long.bitCount(result[i]);
+                }
+            }
+
+            return count == cardinality ? this : Container.of(result, count);
+        }
+
+        private Container reuse(final Container other, final long[] result, final int count) {
+            if (count == cardinality) {
+                return this;
+            }
+            else {
+                return count == other.cardinality() ? other : Container.of(result, count);
+            }
+        }
+
+        @Override
+        LowIterator iterator() {
+            return new LowIterator() {
+                private int wordIndex;
+
+                private long remaining = words[0];
+
+                @Override
+                public boolean hasNext() {
+                    while (remaining == 0 && wordIndex < BITMAP_WORDS - 1) {
+                        remaining = words[++wordIndex];
+                    }
+                    return remaining != 0;
+                }
+
+                @Override
+                public int next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    final int result = (wordIndex << WORD_SHIFT) + Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof BitmapContainer && Arrays.equals(words, ((BitmapContainer) other).words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+    }
+
+}
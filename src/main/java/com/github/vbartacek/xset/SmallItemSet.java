@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Immutable set of a few items stored in a plain array.
+ * <p>
+ * The hash codes of the items are kept in a parallel array sorted in ascending order, so the linear lookup
+ * compares the full items only if their hash codes match and it stops at the first larger hash code.
+ * The order also makes the iteration independent of the order in which the items were added.
+ * For the small sizes this is faster and much more compact than a hash table with one node per item.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the element type
+ */
+final class SmallItemSet<E> extends AbstractSet<E> {
+
+    /**
+     * The maximal number of items stored by this representation.
+     */
+    static final int MAX_SIZE = 8;
+
+    private final Object[] items;
+
+    private final int[] hashes;
+
+    private final int hashCode;
+
+    private SmallItemSet(final Object[] items, final int[] hashes) {
+        this.items = items;
+        this.hashes = hashes;
+        this.hashCode = sum(hashes);
+    }
+
+    /**
+     * Returns the immutable set of the distinct items of the array.
+     * <p>
+     * The array is taken over by the returned set, so it must not be modified by the caller anymore.
+     *
+     * @param array at most {@link #MAX_SIZE} items without {@code null} items, possibly with duplicates
+     * @param <E> the element type
+     * @return the set of the items
+     */
+    @SuppressWarnings("unchecked")
+    static <E> Set<E> wrap(final Object[] array) {
+        final int[] hashes = new int[array.length];
+        int size = 0;
+
+        for (final Object item : array) {
+            final int hash = item.hashCode();
+
+            if (indexOf(array, hashes, size, item, hash) < 0) {
+                // insertion sort by the hash codes:
+                int i = size++;
+                for (; i > 0 && hashes[i - 1] > hash; i--) {
+                    array[i] = array[i - 1];
+                    hashes[i] = hashes[i - 1];
+                }
+                array[i] = item;
+                hashes[i] = hash;
+            }
+        }
+
+        if (size == 0) {
+            return Collections.emptySet();
+        }
+        else if (size == 1) {
+            return Collections.singleton((E) array[0]);
+        }
+        else {
+            return size == array.length
+                ? new SmallItemSet<>(array, hashes)
+                : new SmallItemSet<>(Arrays.copyOf(array, size), Arrays.copyOf(hashes, size));
+        }
+    }
+
+    @Override
+    public boolean contains(final Object item) {
+        return item != null && indexOf(items, hashes, items.length, item, item.hashCode()) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return items.length;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < items.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return (E) items[index++];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof SmallItemSet && ((SmallItemSet<?>) other).hashCode != hashCode) {
+            return false;
+        }
+        else {
+            return super.equals(other);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        // the sum of the hash codes of the items as required by Set.hashCode()
+        return hashCode;
+    }
+
+    private static int indexOf(final Object[] items, final int[] hashes, final int size, final Object item, final int hash) {
+        for (int i = 0; i < size && hashes[i] <= hash; i++) {
+            if (hashes[i] == hash && item.equals(items[i])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int sum(final int[] hashes) {
+        int result = 0;
+        for (final int hash : hashes) {
+            result += hash;
+        }
+        return result;
+    }
+
+}
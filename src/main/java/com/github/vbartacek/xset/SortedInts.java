@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.Arrays;
+
+
+/**
+ * Set operations over sorted arrays of distinct {@code int} values.
+ * <p>
+ * The operations never modify their arguments.
+ * Similarly to {@link XSet} they return one of the operands when the result is provably equal to it.
+ *
+ * @author Vaclav Bartacek
+ */
+final class SortedInts {
+
+    static final int[] EMPTY = new int[0];
+
+    /**
+     * If the smaller array is at least this times smaller than the larger one,
+     * then binary search is used for probing the larger array instead of merging.
+     */
+    private static final int PROBE_RATIO = 16;
+
+    private SortedInts() {
+    }
+
+    static int[] sortedDistinct(final int[] items) {
+        if (items.length == 0) {
+            return EMPTY;
+        }
+
+        final int[] result = items.clone();
+        Arrays.sort(result);
+
+        int size = 1;
+        for (int i = 1; i < result.length; i++) {
+            if (result[i] != result[size - 1]) {
+                result[size++] = result[i];
+            }
+        }
+
+        return trim(result, size);
+    }
+
+    static boolean contains(final int[] items, final int item) {
+        return Arrays.binarySearch(items, item) >= 0;
+    }
+
+    static int[] intersect(final int[] set1, final int[] set2) {
+        final int[] smaller = set1.length <= set2.length ? set1 : set2;
+        final int[] larger = smaller == set1 ? set2 : set1;
+        final int[] result = new int[smaller.length];
+        int size = 0;
+
+        if (isSkewed(smaller, larger)) {
+            for (final int item : smaller) {
+                if (contains(larger, item)) {
+                    result[size++] = item;
+                }
+            }
+        }
+        else {
+            int i = 0;
+            int j = 0;
+            while (i < smaller.length && j < larger.length) {
+                if (smaller[i] < larger[j]) {
+                    i++;
+                }
+                else if (smaller[i] > larger[j]) {
+                    j++;
+                }
+                else {
+                    result[size++] = smaller[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        return size == smaller.length ? smaller : trim(result, size);
+    }
+
+    static int[] union(final int[] set1, final int[] set2) {
+        final int[] result = new int[set1.length + set2.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < set1.length && j < set2.length) {
+            if (set1[i] < set2[j]) {
+                result[size++] = set1[i++];
+            }
+            else if (set1[i] > set2[j]) {
+                result[size++] = set2[j++];
+            }
+            else {
+                result[size++] = set1[i];
+                i++;
+                j++;
+            }
+        }
+
+        while (i < set1.length) {
+            result[size++] = set1[i++];
+        }
+
+        while (j < set2.length) {
+            result[size++] = set2[j++];
+        }
+
+        if (size == set1.length) {
+            return set1;
+        }
+        else if (size == set2.length) {
+            return set2;
+        }
+        else {
+            return trim(result, size);
+        }
+    }
+
+    static int[] minus(final int[] set1, final int[] set2) {
+        final int[] result = new int[set1.length];
+        int size = 0;
+
+        if (isSkewed(set1, set2)) {
+            for (final int item : set1) {
+                if (!contains(set2, item)) {
+                    result[size++] = item;
+                }
+            }
+        }
+        else {
+            int i = 0;
+            int j = 0;
+            while (i < set1.length) {
+                if (j == set2.length || set1[i] < set2[j]) {
+                    result[size++] = set1[i++];
+                }
+                else if (set1[i] > set2[j]) {
+                    j++;
+                }
+                else {
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        return size == set1.length ? set1 : trim(result, size);
+    }
+
+    private static boolean isSkewed(final int[] smaller, final int[] larger) {
+        return (long) smaller.length * PROBE_RATIO < larger.length;
+    }
+
+    private static int[] trim(final int[] items, final int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        else {
+            return size == items.length ? items : Arrays.copyOf(items, size);
+        }
+    }
+
+}
@@ -0,0 +1,682 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntBinaryOperator;
+
+
+/**
+ * Immutable set of items stored in an array sorted by the hash codes of the items.
+ * <p>
+ * The hash codes are kept in a parallel {@code int} array, so all the searches and merges compare
+ * primitive values and the full items are compared by {@code equals} only if their hash codes collide.
+ * The set operations between two such sets are linear merges of the arrays.
+ * If one of the sets is much smaller, then its items are looked up in the larger one by galloping
+ * (exponential) search, so the operation is proportional to the smaller set.
+ * The method {@link #contains(Object)} is a binary search.
+ * <p>
+ * The operations of large sets are split by the ranges of the hash codes into independent partitions,
+ * which are merged in parallel by the current fork/join pool (or the common one),
+ * the pool can be chosen by {@link XSet#parallel(java.util.concurrent.ForkJoinPool)}.
+ * <p>
+ * Ordering by the hash codes (rather than by the natural ordering) works for any item type
+ * and it is always consistent with {@code equals}.
+ * <p>
+ * This store is used only for the sets created by {@link XSet#mergeableOf(Collection)} and for the results
+ * of their operations, because the hash table of {@link HashItemSet} has faster {@link #contains(Object)}.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the element type
+ */
+final class SortedItemSet<E> extends AbstractSet<E> {
+
+    /**
+     * Minimal ratio of the sizes when the smaller set is searched in the larger one instead of merging them.
+     */
+    private static final int GALLOP_RATIO = 16;
+
+    private static final long INDEX_MASK = 0xFFFF_FFFFL;
+
+    /**
+     * Maximal length of a run of the colliding hash codes deduplicated by the linear scan,
+     * the longer runs are deduplicated by a hash set.
+     */
+    private static final int RUN_SCAN_LIMIT = 8;
+
+    /**
+     * Default minimal total size of the sets when the operation is split into the parallel tasks.
+     */
+    static final int DEFAULT_PARALLEL_THRESHOLD = 131_072;
+
+    /**
+     * Minimal total size of the sets when the operation is split into the parallel tasks automatically.
+     * It can be configured by the system property {@code com.github.vbartacek.xset.parallelThreshold},
+     * zero or a negative value turns the automatic parallel merges off.
+     */
+    static final int PARALLEL_THRESHOLD = Integer.getInteger("com.github.vbartacek.xset.parallelThreshold", DEFAULT_PARALLEL_THRESHOLD);
+
+    /**
+     * Minimal total size of the sets when the operation is split into the parallel tasks of an explicitly given pool.
+     */
+    static final int PARALLEL_MIN_SIZE = PARALLEL_THRESHOLD > 0 ? PARALLEL_THRESHOLD : DEFAULT_PARALLEL_THRESHOLD;
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+
+    private final Object[] items;
+
+    private final int[] hashes;
+
+    private final int hashCode;
+
+    /**
+     * Trie of the same items - lazily created, because the class is immutable.
+     */
+    private HamtItemSet<E> persistent;
+
+    private SortedItemSet(final Object[] items, final int[] hashes) {
+        this.items = items;
+        this.hashes = hashes;
+        this.hashCode = sum(hashes);
+    }
+
+    /**
+     * Returns the sorted set of the items of the collection.
+     *
+     * @param collection the non-empty collection without {@code null} items
+     * @param <E> the element type
+     * @return the collection itself if it is already sorted set
+     */
+    @SuppressWarnings("unchecked")
+    static <E> SortedItemSet<E> copyOf(final Collection<E> collection) {
+        return collection instanceof SortedItemSet ? (SortedItemSet<E>) collection : wrap(collection.toArray());
+    }
+
+    /**
+     * Returns the sorted set of the distinct items of the array.
+     * <p>
+     * The array is not modified and it is not referenced by the returned set.
+     *
+     * @param array non-empty array without {@code null} items, possibly with duplicates
+     * @param <E> the element type
+     * @return the set of the items
+     */
+    static <E> SortedItemSet<E> wrap(final Object[] array) {
+        // sort the primitive pairs (hash, index) - the hash in the upper bits drives the ordering:
+        final long[] keys = new long[array.length];
+        for (int i = 0; i < array.length; i++) {
+            keys[i] = (long) array[i].hashCode() << Integer.SIZE | i;
+        }
+        Arrays.sort(keys);
+
+        final Builder result = new Builder(array.length);
+        int runStart = 0;
+        Set<Object> run = null;
+
+        for (final long key : keys) {
+            final int hash = (int) (key >> Integer.SIZE);
+            final Object item = array[(int) (key & INDEX_MASK)];
+
+            if (result.size == 0 || result.hashes[result.size - 1] != hash) {
+                runStart = result.size;
+                run = null;
+            }
+
+            final boolean distinct;
+            if (result.size - runStart < RUN_SCAN_LIMIT) {
+                distinct = indexOf(result.items, runStart, result.size, item) < 0;
+            }
+            else {
+                // the scans of a long run would be quadratic:
+                if (run == null) {
+                    run = new HashSet<>(Arrays.asList(result.items).subList(runStart, result.size));
+                }
+                distinct = run.add(item);
+            }
+
+            if (distinct) {
+                result.add(item, hash);
+            }
+        }
+
+        return result.build();
+    }
+
+    static <E> Set<E> intersect(final SortedItemSet<E> set1, final SortedItemSet<E> set2, final ForkJoinPool pool) {
+        final SortedItemSet<E> smaller = set1.size() <= set2.size() ? set1 : set2;
+        final Builder result = merge(Operation.INTERSECT, set1, set2, pool);
+
+        return result.size == smaller.size() ? smaller : result.toSet();
+    }
+
+    static <E> Set<E> union(final SortedItemSet<E> set1, final SortedItemSet<E> set2, final ForkJoinPool pool) {
+        final SortedItemSet<E> larger = set1.size() > set2.size() ? set1 : set2;
+        final Builder result = merge(Operation.UNION, set1, set2, pool);
+
+        return result.size == larger.size() ? larger : result.toSet();
+    }
+
+    static <E> Set<E> minus(final SortedItemSet<E> set1, final SortedItemSet<E> set2, final ForkJoinPool pool) {
+        final Builder result = merge(Operation.MINUS, set1, set2, pool);
+
+        return result.size == set1.size() ? set1 : result.toSet();
+    }
+
+    /**
+     * Merges the sets - in parallel if the sets are large enough.
+     *
+     * @param explicitPool the explicitly given pool or {@code null} for the automatic choice of the current or the common pool
+     */
+    private static Builder merge(final Operation operation, final SortedItemSet<?> set1, final SortedItemSet<?> set2,
+            final ForkJoinPool explicitPool) {
+
+        final ForkJoinPool pool;
+        if (explicitPool != null) {
+            pool = explicitPool;
+        }
+        else if (PARALLEL_THRESHOLD > 0) {
+            pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        }
+        else {
+            pool = null;
+        }
+
+        if (pool == null || (long) set1.size() + set2.size() < PARALLEL_MIN_SIZE || pool.getParallelism() <= 1) {
+            return operation.apply(set1, 0, set1.size(), set2, 0, set2.size());
+        }
+
+        // split both sets by the same hash codes, so that the partitions are independent:
+        final SortedItemSet<?> larger = set1.size() >= set2.size() ? set1 : set2;
+        final int count = pool.getParallelism() * PARTITIONS_PER_THREAD;
+        final List<Partition> partitions = new ArrayList<>(count);
+        int from1 = 0;
+        int from2 = 0;
+
+        for (int i = 1; i <= count; i++) {
+            final int to1;
+            final int to2;
+
+            if (i == count) {
+                to1 = set1.size();
+                to2 = set2.size();
+            }
+            else {
+                final int pivot = larger.hashes[(int) ((long) larger.size() * i / count)];
+                to1 = set1.gallop(from1, pivot);
+                to2 = set2.gallop(from2, pivot);
+            }
+
+            partitions.add(new Partition(operation, set1, from1, to1, set2, from2, to2));
+            from1 = to1;
+            from2 = to2;
+        }
+
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(partitions);
+        }
+        else {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(partitions)));
+        }
+
+        int size = 0;
+        for (final Partition partition : partitions) {
+            size += partition.result.size;
+        }
+
+        final Builder result = new Builder(size);
+        for (final Partition partition : partitions) {
+            result.addAll(partition.result);
+        }
+        return result;
+    }
+
+    private static void intersect(
+            final SortedItemSet<?> set1, final int from1, final int to1,
+            final SortedItemSet<?> set2, final int from2, final int to2,
+            final Builder result) {
+
+        if (isSkewed(to2 - from2, to1 - from1)) {
+            intersect(set2, from2, to2, set1, from1, to1, result);
+        }
+        else if (isSkewed(to1 - from1, to2 - from2)) {
+            int j = from2;
+
+            for (int i = from1; i < to1 && j < to2; i++) {
+                j = set2.gallop(j, set1.hashes[i]);
+
+                if (set2.indexOfRun(j, set1.items[i], set1.hashes[i]) >= 0) {
+                    result.add(set1.items[i], set1.hashes[i]);
+                }
+            }
+        }
+        else {
+            int i = from1;
+            int j = from2;
+
+            while (i < to1 && j < to2) {
+                if (set1.hashes[i] < set2.hashes[j]) {
+                    i++;
+                }
+                else if (set1.hashes[i] > set2.hashes[j]) {
+                    j++;
+                }
+                else {
+                    // items of the same hash code in both sets:
+                    final int end = set2.runEnd(j);
+
+                    for (final int hash = set1.hashes[i]; i < to1 && set1.hashes[i] == hash; i++) {
+                        if (indexOf(set2.items, j, end, set1.items[i]) >= 0) {
+                            result.add(set1.items[i], hash);
+                        }
+                    }
+
+                    j = end;
+                }
+            }
+        }
+    }
+
+    private static void union(
+            final SortedItemSet<?> set1, final int from1, final int to1,
+            final SortedItemSet<?> set2, final int from2, final int to2,
+            final Builder result) {
+
+        if (to1 - from1 > to2 - from2) {
+            union(set2, from2, to2, set1, from1, to1, result);
+            return;
+        }
+
+        // the first set is the smaller one here:
+        final boolean skewed = isSkewed(to1 - from1, to2 - from2);
+        int i = from1;
+        int j = from2;
+
+        while (i < to1 && j < to2) {
+            if (set1.hashes[i] > set2.hashes[j]) {
+                // copy the items of the larger set preceding the current item of the smaller one:
+                final int position = skewed ? set2.gallop(j, set1.hashes[i]) : set2.scan(j, set1.hashes[i]);
+                result.addAll(set2, j, position);
+                j = position;
+            }
+            else if (set1.hashes[i] < set2.hashes[j]) {
+                result.add(set1.items[i], set1.hashes[i]);
+                i++;
+            }
+            else {
+                // the items of the same hash code in both sets, the run of the larger set is copied later:
+                if (set2.indexOfRun(j, set1.items[i], set1.hashes[i]) < 0) {
+                    result.add(set1.items[i], set1.hashes[i]);
+                }
+                i++;
+            }
+        }
+
+        result.addAll(set1, i, to1);
+        result.addAll(set2, j, to2);
+    }
+
+    private static void minus(
+            final SortedItemSet<?> set1, final int from1, final int to1,
+            final SortedItemSet<?> set2, final int from2, final int to2,
+            final Builder result) {
+
+        if (isSkewed(to2 - from2, to1 - from1)) {
+            // copy the ranges between the runs of the items that might be removed:
+            int from = from1;
+            int j = from2;
+
+            while (j < to2 && from < to1) {
+                final int hash = set2.hashes[j];
+                final int end2 = set2.runEnd(j);
+                final int position = set1.gallop(from, hash);
+                final int end1 = position < to1 && set1.hashes[position] == hash ? set1.runEnd(position) : position;
+
+                result.addAll(set1, from, position);
+
+                for (int i = position; i < end1; i++) {
+                    if (indexOf(set2.items, j, end2, set1.items[i]) < 0) {
+                        result.add(set1.items[i], hash);
+                    }
+                }
+
+                from = end1;
+                j = end2;
+            }
+
+            result.addAll(set1, from, to1);
+        }
+        else {
+            final boolean skewed = isSkewed(to1 - from1, to2 - from2);
+            int j = from2;
+
+            for (int i = from1; i < to1; i++) {
+                j = skewed ? set2.gallop(j, set1.hashes[i]) : set2.scan(j, set1.hashes[i]);
+
+                if (set2.indexOfRun(j, set1.items[i], set1.hashes[i]) < 0) {
+                    result.add(set1.items[i], set1.hashes[i]);
+                }
+            }
+        }
+    }
+
+    private static boolean isSkewed(final int smallerSize, final int largerSize) {
+        return (long) smallerSize * GALLOP_RATIO < largerSize;
+    }
+
+    /**
+     * Returns the index of the first hash code not less than the given one, searching from the given index
+     * by the exponentially growing steps.
+     */
+    private int gallop(final int from, final int hash) {
+        int low = from;
+        int high = from;
+        int step = 1;
+
+        while (high < hashes.length && hashes[high] < hash) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+
+        high = Math.min(high, hashes.length);
+
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if (hashes[middle] < hash) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Returns the index of the first hash code not less than the given one, searching linearly from the given index.
+     */
+    private int scan(final int from, final int hash) {
+        int index = from;
+        while (index < hashes.length && hashes[index] < hash) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the end of the run of the same hash codes starting at the given index.
+     */
+    private int runEnd(final int start) {
+        int end = start + 1;
+        while (end < hashes.length && hashes[end] == hashes[start]) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Returns the index of the item in the run of the given hash code starting at the given index.
+     */
+    private int indexOfRun(final int start, final Object item, final int hash) {
+        for (int i = start; i < hashes.length && hashes[i] == hash; i++) {
+            if (item.equals(items[i])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static int indexOf(final Object[] items, final int from, final int to, final Object item) {
+        for (int i = from; i < to; i++) {
+            if (item.equals(items[i])) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns the persistent trie of the same items, so that the sets derived by small changes can share it.
+     * <p>
+     * The trie is created once and cached (by the racy single-check idiom, the trie itself is immutable).
+     *
+     * @return the trie of the items
+     */
+    HamtItemSet<E> persistent() {
+        HamtItemSet<E> result = persistent;
+        if (result == null) {
+            result = HamtItemSet.copyOf(this);
+            persistent = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the persistent trie if it has been already created.
+     *
+     * @return the trie or {@code null}
+     * @see #persistent()
+     */
+    HamtItemSet<E> cachedPersistent() {
+        return persistent;
+    }
+
+    @Override
+    public boolean contains(final Object item) {
+        if (item == null) {
+            return false;
+        }
+
+        final int hash = item.hashCode();
+        int index = Arrays.binarySearch(hashes, hash);
+
+        if (index < 0) {
+            return false;
+        }
+
+        // step back to the start of the run of the colliding hash codes:
+        while (index > 0 && hashes[index - 1] == hash) {
+            index--;
+        }
+
+        return indexOfRun(index, item, hash) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return items.length;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < items.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return (E) items[index++];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (other instanceof SortedItemSet) {
+            final SortedItemSet<?> that = (SortedItemSet<?>) other;
+
+            // the order of the colliding items might differ, so fall back to the comparison by contains():
+            return this.hashCode == that.hashCode
+                && Arrays.equals(this.hashes, that.hashes)
+                && (Arrays.equals(this.items, that.items) || super.equals(other));
+        }
+        else {
+            return super.equals(other);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        // the sum of the hash codes of the items as required by Set.hashCode()
+        return hashCode;
+    }
+
+    private static int sum(final int[] hashes) {
+        int result = 0;
+        for (final int hash : hashes) {
+            result += hash;
+        }
+        return result;
+    }
+
+    /**
+     * Accumulates the items in the order of their hash codes.
+     */
+    private static final class Builder {
+
+        private final Object[] items;
+
+        private final int[] hashes;
+
+        private int size;
+
+        Builder(final int capacity) {
+            this.items = new Object[capacity];
+            this.hashes = new int[capacity];
+        }
+
+        void add(final Object item, final int hash) {
+            items[size] = item;
+            hashes[size] = hash;
+            size++;
+        }
+
+        void addAll(final SortedItemSet<?> set, final int from, final int to) {
+            System.arraycopy(set.items, from, items, size, to - from);
+            System.arraycopy(set.hashes, from, hashes, size, to - from);
+            size += to - from;
+        }
+
+        void addAll(final Builder other) {
+            System.arraycopy(other.items, 0, items, size, other.size);
+            System.arraycopy(other.hashes, 0, hashes, size, other.size);
+            size += other.size;
+        }
+
+        <E> SortedItemSet<E> build() {
+            return size == items.length
+                ? new SortedItemSet<>(items, hashes)
+                : new SortedItemSet<>(Arrays.copyOf(items, size), Arrays.copyOf(hashes, size));
+        }
+
+        <E> Set<E> toSet() {
+            return size == 0 ? Collections.emptySet() : build();
+        }
+    }
+
+    /**
+     * Merge of the ranges of two sets into the result.
+     */
+    @FunctionalInterface
+    private interface RangeMerge {
+
+        void merge(SortedItemSet<?> set1, int from1, int to1, SortedItemSet<?> set2, int from2, int to2, Builder result);
+    }
+
+    /**
+     * Set operations on the ranges of two sets.
+     * The ranges must contain the items of the same hash codes.
+     */
+    private enum Operation {
+        INTERSECT(SortedItemSet::intersect, Math::min),
+        UNION(SortedItemSet::union, Integer::sum),
+        MINUS(SortedItemSet::minus, (size1, size2) -> size1);
+
+        private final RangeMerge merge;
+
+        private final IntBinaryOperator capacity;
+
+        Operation(final RangeMerge merge, final IntBinaryOperator capacity) {
+            this.merge = merge;
+            this.capacity = capacity;
+        }
+
+        Builder apply(final SortedItemSet<?> set1, final int from1, final int to1, final SortedItemSet<?> set2, final int from2, final int to2) {
+            final Builder result = new Builder(capacity.applyAsInt(to1 - from1, to2 - from2));
+            merge.merge(set1, from1, to1, set2, from2, to2, result);
+            return result;
+        }
+    }
+
+    /**
+     * Set operation on one partition of the sets.
+     */
+    private static final class Partition extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Operation operation;
+
+        private final transient SortedItemSet<?> set1;
+
+        private final transient SortedItemSet<?> set2;
+
+        private final int from1;
+
+        private final int to1;
+
+        private final int from2;
+
+        private final int to2;
+
+        private transient Builder result;
+
+        Partition(
+                final Operation operation,
+                final SortedItemSet<?> set1, final int from1, final int to1,
+                final SortedItemSet<?> set2, final int from2, final int to2) {
+
+            this.operation = operation;
+            this.set1 = set1;
+            this.from1 = from1;
+            this.to1 = to1;
+            this.set2 = set2;
+            this.from2 = from2;
+            this.to2 = to2;
+        }
+
+        @Override
+        protected void compute() {
+            result = operation.apply(set1, from1, to1, set2, from2, to2);
+        }
+    }
+
+}
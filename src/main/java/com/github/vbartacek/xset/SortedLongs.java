@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.Arrays;
+
+
+/**
+ * Set operations over sorted arrays of distinct {@code long} values.
+ * <p>
+ * The operations never modify their arguments.
+ * Similarly to {@link XSet} they return one of the operands when the result is provably equal to it.
+ *
+ * @author Vaclav Bartacek
+ */
+final class SortedLongs {
+
+    static final long[] EMPTY = new long[0];
+
+    /**
+     * If the smaller array is at least this times smaller than the larger one,
+     * then binary search is used for probing the larger array instead of merging.
+     */
+    private static final int PROBE_RATIO = 16;
+
+    private SortedLongs() {
+    }
+
+    static long[] sortedDistinct(final long[] items) {
+        if (items.length == 0) {
+            return EMPTY;
+        }
+
+        final long[] result = items.clone();
+        Arrays.sort(result);
+
+        int size = 1;
+        for (int i = 1; i < result.length; i++) {
+            if (result[i] != result[size - 1]) {
+                result[size++] = result[i];
+            }
+        }
+
+        return trim(result, size);
+    }
+
+    static boolean contains(final long[] items, final long item) {
+        return Arrays.binarySearch(items, item) >= 0;
+    }
+
+    static long[] intersect(final long[] set1, final long[] set2) {
+        final long[] smaller = set1.length <= set2.length ? set1 : set2;
+        final long[] larger = smaller == set1 ? set2 : set1;
+        final long[] result = new long[smaller.length];
+        int size = 0;
+
+        if (isSkewed(smaller, larger)) {
+            for (final long item : smaller) {
+                if (contains(larger, item)) {
+                    result[size++] = item;
+                }
+            }
+        }
+        else {
+            int i = 0;
+            int j = 0;
+            while (i < smaller.length && j < larger.length) {
+                if (smaller[i] < larger[j]) {
+                    i++;
+                }
+                else if (smaller[i] > larger[j]) {
+                    j++;
+                }
+                else {
+                    result[size++] = smaller[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        return size == smaller.length ? smaller : trim(result, size);
+    }
+
+    static long[] union(final long[] set1, final long[] set2) {
+        final long[] result = new long[set1.length + set2.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < set1.length && j < set2.length) {
+            if (set1[i] < set2[j]) {
+                result[size++] = set1[i++];
+            }
+            else if (set1[i] > set2[j]) {
+                result[size++] = set2[j++];
+            }
+            else {
+                result[size++] = set1[i];
+                i++;
+                j++;
+            }
+        }
+
+        while (i < set1.length) {
+            result[size++] = set1[i++];
+        }
+
+        while (j < set2.length) {
+            result[size++] = set2[j++];
+        }
+
+        if (size == set1.length) {
+            return set1;
+        }
+        else if (size == set2.length) {
+            return set2;
+        }
+        else {
+            return trim(result, size);
+        }
+    }
+
+    static long[] minus(final long[] set1, final long[] set2) {
+        final long[] result = new long[set1.length];
+        int size = 0;
+
+        if (isSkewed(set1, set2)) {
+            for (final long item : set1) {
+                if (!contains(set2, item)) {
+                    result[size++] = item;
+                }
+            }
+        }
+        else {
+            int i = 0;
+            int j = 0;
+            while (i < set1.length) {
+                if (j == set2.length || set1[i] < set2[j]) {
+                    result[size++] = set1[i++];
+                }
+                else if (set1[i] > set2[j]) {
+                    j++;
+                }
+                else {
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        return size == set1.length ? set1 : trim(result, size);
+    }
+
+    private static boolean isSkewed(final long[] smaller, final long[] larger) {
+        return (long) smaller.length * PROBE_RATIO < larger.length;
+    }
+
+    private static long[] trim(final long[] items, final int size) {
+        if (size == 0) {
+            return EMPTY;
+        }
+        else {
+            return size == items.length ? items : Arrays.copyOf(items, size);
+        }
+    }
+
+}
@@ -5,12 +5,23 @@
 
 package com.github.vbartacek.xset;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collector;
 
 
 /**
@@ -23,6 +34,9 @@ import java.util.Set;
  * {@code XSet} is a generic type.
  * <p>
  * The implementation maintains a finite {@link Set} of {@code items} and a {@code boolean} flag {@code complementary}.
+ * The {@code items} being enum constants of the same type are stored as a bit mask,
+ * so the set operations between such extended sets are bitwise operations.
+ * Large sets of {@code Integer} items are stored as compressed bitmaps.
  * The {@code items} should hold only a given type of elements.
  * The {@code items} cannot hold {@code null} elements.
  * <p>
@@ -30,6 +44,14 @@ import java.util.Set;
  * is not type-safe and we cannot implement such method here.
  * Instead of that we implement method with the same name, but taking as the parameter only objects of the given type.
  * <p>
+ * The large sets created by {@link #mergeableOf(Collection)} are merged in parallel automatically:
+ * when the operands of {@link #intersect(XSet)}, {@link #union(XSet)} or {@link #subtract(XSet)} have 131072 items together
+ * or more, the merge is split into tasks of the current fork/join pool (if the caller runs in one)
+ * or of the {@link ForkJoinPool#commonPool() common pool}, and the caller waits for them.
+ * The threshold can be changed by the system property {@code com.github.vbartacek.xset.parallelThreshold},
+ * zero or a negative value turns the automatic parallel merges off. The pool can be also given explicitly
+ * by {@link #parallel(ForkJoinPool)}.
+ * <p>
  * This class is immutable - once created its content cannot be changed.
  * It also means that this class is thread-safe.
  *
@@ -38,6 +60,12 @@ import java.util.Set;
  */
 public final class XSet<E> {
 
+    private static final float HASH_LOAD_FACTOR = 0.75f;
+
+    private static final int HASH_MIN_CAPACITY = 16;
+
+    private static final int HASH_MULTIPLIER = 31;
+
     private static final XSet EMPTY = new XSet<>(Collections.emptySet(), false);
 
     private static final XSet FULL = new XSet<>(Collections.emptySet(), true);
@@ -46,6 +74,16 @@ public final class XSet<E> {
 
     private final boolean complementary;
 
+    /**
+     * Cached hash code - lazily computed, because the class is immutable.
+     */
+    private int hash;
+
+    /**
+     * Cache for the case when the computed hash code is zero.
+     */
+    private boolean hashIsZero;
+
     private XSet(final Set<E> items, final boolean complementary) {
         this.items = items;
         this.complementary = complementary;
@@ -135,6 +173,93 @@ public final class XSet<E> {
         return toXSet(collection, true);
     }
 
+    /**
+     * Creates a new finite extended set stored for fast set operations rather than for fast {@link #contains(Object)}.
+     * <p>
+     * The items are stored in an array sorted by their hash codes, so the union, intersection and subtraction
+     * of two such sets is a linear merge and the result is stored the same way.
+     * A smaller set of another store is sorted and merged as well, but a larger one is probed item by item
+     * and the result is stored in a hash table.
+     * On the other hand {@link #contains(Object)} is a binary search, so it is several times slower than
+     * the hash table used by {@link #of(Collection)}. The enum constants and large sets of {@code Integer} items
+     * are stored in their specialized stores as usual.
+     *
+     * @param collection the collection of items of the finite set
+     * @param <T> the element type
+     * @return the finite extended set
+     * @throws NullPointerException if the collection or any of the specified items is {@code null}
+     */
+    public static <T> XSet<T> mergeableOf(final Collection<T> collection) {
+        requireNonNull(collection);
+
+        if (collection.isEmpty()) {
+            return empty();
+        }
+
+        final Object[] array = collection.toArray();
+        for (final Object item : array) {
+            requireNonNullItem(item);
+        }
+
+        final Class<?> specializedType = specializedType(array[0], array.length);
+        final Set<T> items;
+
+        if (specializedType != null) {
+            items = specializedSet(specializedType, collection);
+        }
+        else if (array.length <= SmallItemSet.MAX_SIZE) {
+            items = SmallItemSet.wrap(array);
+        }
+        else {
+            items = immutableSet(SortedItemSet.wrap(array));
+        }
+
+        return new XSet<>(items, false);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates the input elements into a new finite extended set.
+     * <p>
+     * The elements are collected straight into a hash set which becomes the backing store of the result,
+     * so the duplicities are dropped as they arrive and no intermediate collection is created.
+     * The collector is {@link Collector.Characteristics#UNORDERED unordered},
+     * the partial results of a parallel stream are merged into the larger one.
+     *
+     * @param <T> the element type
+     * @return the collector creating the finite extended set
+     * @see #of(Collection)
+     */
+    public static <T> Collector<T, ?, XSet<T>> toXSet() {
+        return Collector.of(ItemBuffer<T>::new, ItemBuffer::add, ItemBuffer::addAll, buffer -> buffer.toXSet(false),
+            Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Returns a {@code Collector} that accumulates the input elements into a new complementary extended set.
+     * <p>
+     * The result contains all elements except the collected ones. The collector is {@link Collector.Characteristics#UNORDERED unordered}.
+     *
+     * @param <T> the element type
+     * @return the collector creating the complementary extended set
+     * @see #complementOf(Collection)
+     * @see #toXSet()
+     */
+    public static <T> Collector<T, ?, XSet<T>> toComplementOf() {
+        return Collector.of(ItemBuffer<T>::new, ItemBuffer::add, ItemBuffer::addAll, buffer -> buffer.toXSet(true),
+            Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Returns a new builder of an extended set, initially empty.
+     *
+     * @param <T> the element type
+     * @return the builder
+     * @see Builder
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
     private static <T> XSet<T> toXSet(final Collection<T> collection, final boolean complementary) {
         if (collection.isEmpty()) {
             return complementary ? full() : empty();
@@ -146,28 +271,131 @@ public final class XSet<E> {
     }
 
     private static <T> Set<T> nonEmptyCollectionToSet(final Collection<T> collection) {
-        requireNonNullItems(collection);
+        final T first = collection.iterator().next();
+        final Class<?> specializedType = specializedType(first, collection.size());
+
+        if (specializedType != null) {
+            return specializedSet(specializedType, collection);
+        }
+        else if (collection.size() == 1) {
+            return Collections.singleton(requireNonNullItem(first));
+        }
+        else {
+            return arrayItemSet(collection);
+        }
+    }
 
-        if (collection.size() == 1) {
-            return singleton(collection);
+    private static Class<?> specializedType(final Object first, final int size) {
+        if (first instanceof Enum) {
+            return ((Enum<?>) first).getDeclaringClass();
+        }
+        else if (first instanceof Integer && size >= RoaringItemSet.MIN_SIZE) {
+            return Integer.class;
         }
         else {
-            final Set<T> result = newHashSet(collection);
-            // be aware of potential duplicity items that are being collapsed to singleton:
-            return result.size() == 1 ? singleton(collection) : Collections.unmodifiableSet(result);
+            return null;
         }
     }
 
-    private static <T> void requireNonNullItems(final Collection<T> collection) {
-        // we cannot call contains(null) because the underlying collection might not support nulls
-        final boolean containsNullItem = collection.stream()
-            .anyMatch(Objects::isNull);
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T> Set<T> specializedSet(final Class<?> type, final Collection<T> collection) {
+        // a single pass checking both the nulls and the common type of the items:
+        boolean sameType = true;
+
+        for (final T item : collection) {
+            sameType &= type.isInstance(requireNonNullItem(item));
+        }
 
-        if (containsNullItem) {
-            throw new NullPointerException("items must not be null");
+        if (!sameType) {
+            return arrayItemSet(collection);
+        }
+        else if (type == Integer.class) {
+            return (Set<T>) RoaringItemSet.copyOf(collection);
+        }
+        else {
+            return EnumItemSet.copyOf((Class) type, (Collection) collection);
         }
     }
 
+    private static <T> Set<T> arrayItemSet(final Collection<T> collection) {
+        final Object[] array = collection.toArray();
+
+        for (final Object item : array) {
+            requireNonNullItem(item);
+        }
+
+        return wrapItems(array);
+    }
+
+    /**
+     * Creates the extended set backed by the array - the array is handed over, so it must not be modified later.
+     *
+     * @param array the non-null items, possibly with duplicities
+     * @param complementary the complementary flag
+     * @param <T> the element type
+     * @return the extended set
+     */
+    @SuppressWarnings("unchecked")
+    static <T> XSet<T> wrap(final Object[] array, final boolean complementary) {
+        if (array.length == 0) {
+            return complementary ? full() : empty();
+        }
+
+        final Class<?> specializedType = specializedType(array[0], array.length);
+        final Set<T> result;
+
+        if (specializedType != null) {
+            result = specializedSet(specializedType, (List<T>) Arrays.asList(array));
+        }
+        else if (array.length == 1) {
+            result = Collections.singleton((T) array[0]);
+        }
+        else {
+            result = wrapItems(array);
+        }
+
+        return new XSet<>(result, complementary);
+    }
+
+    /**
+     * Creates the extended set backed by the hash set - the hash set is handed over, so it must not be modified later.
+     *
+     * @param hashSet the non-null items
+     * @param complementary the complementary flag
+     * @param <T> the element type
+     * @return the extended set
+     */
+    private static <T> XSet<T> wrapHashSet(final Set<T> hashSet, final boolean complementary) {
+        if (hashSet.isEmpty()) {
+            return complementary ? full() : empty();
+        }
+
+        final Class<?> specializedType = specializedType(hashSet.iterator().next(), hashSet.size());
+        final Set<T> result = specializedType != null ? specializedSet(specializedType, hashSet) : immutableSet(hashSet);
+
+        return new XSet<>(result, complementary);
+    }
+
+    private static <T> Set<T> wrapItems(final Object[] array) {
+        if (array.length <= SmallItemSet.MAX_SIZE) {
+            return SmallItemSet.wrap(array);
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<T> items = (List<T>) Arrays.asList(array);
+        final Set<T> result = newHashSet(items.size());
+        result.addAll(items);
+
+        // the duplicities might shrink the items to a small set or even to a singleton:
+        return immutableSet(result);
+    }
+
+    private static <T> T requireNonNullItem(final T item) {
+        // we cannot call contains(null) because the underlying collection might not support nulls,
+        // so the items are checked one by one within the loops processing them
+        return Objects.requireNonNull(item, "items must not be null");
+    }
+
     /**
      * Returns the set of {@code items} without the {@code complementary} flag.
      * <p>
@@ -180,6 +408,81 @@ public final class XSet<E> {
         return items;
     }
 
+    /**
+     * Returns all enum constants belonging to the extended set.
+     * <p>
+     * Extended sets of enum constants are always finite within their enum type,
+     * so this method materializes also the complementary sets.
+     *
+     * @param xset the extended set of enum constants
+     * @param type the enum type
+     * @param <T> the enum type
+     * @return a new modifiable enum set
+     * @throws NullPointerException if the set or the type is {@code null}
+     */
+    public static <T extends Enum<T>> EnumSet<T> toEnumSet(final XSet<T> xset, final Class<T> type) {
+        requireNonNull(xset);
+        requireNonNull(type);
+
+        final EnumSet<T> result = EnumSet.noneOf(type);
+        result.addAll(xset.items);
+
+        return xset.complementary ? EnumSet.complementOf(result) : result;
+    }
+
+    /**
+     * Writes this extended set to the file, which can be later mapped by {@link #map(Path, Class)}.
+     * <p>
+     * The file is written to a temporary file in the same directory first and then it is atomically moved
+     * to the given path, so the existing mappings of the original file are not affected.
+     * Only the sets of {@code Long}, {@code Integer} or {@code String} items are supported
+     * and the file size is limited to 2 GiB.
+     *
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     * @throws UnsupportedOperationException if the items are not of the same supported type
+     * @throws IllegalArgumentException if the file would be larger than 2 GiB
+     * @throws NullPointerException if the path is {@code null}
+     */
+    public void writeTo(final Path path) throws IOException {
+        requireNonNull(path);
+
+        MappedItemSet.write(items, complementary, path);
+    }
+
+    /**
+     * Maps the file written by {@link #writeTo(Path)} into the memory.
+     * <p>
+     * The items are not copied to the heap - they are read directly from the mapped file,
+     * so the pages are loaded lazily and they are shared by all the processes mapping the same file.
+     * The file must not be modified while it is mapped.
+     *
+     * @param path the file
+     * @param type the element type - {@code Long}, {@code Integer} or {@code String}
+     * @param <T> the element type
+     * @return the extended set backed by the file
+     * @throws IOException if the file cannot be read or it does not contain an extended set of the given type
+     * @throws NullPointerException if the path or the type is {@code null}
+     */
+    public static <T> XSet<T> map(final Path path, final Class<T> type) throws IOException {
+        requireNonNull(path);
+        requireNonNull(type);
+
+        return MappedItemSet.map(path, type);
+    }
+
+    /**
+     * Creates the extended set backed by the given immutable items, e.g. read lazily from a file or a buffer.
+     *
+     * @param items the immutable items
+     * @param complementary the complementary flag
+     * @param <T> the element type
+     * @return the extended set
+     */
+    static <T> XSet<T> backedBy(final Set<T> items, final boolean complementary) {
+        return canonicalXSet(items, complementary);
+    }
+
     /**
      * Returns {@code true} if this set is a complement of a finite set.
      *
@@ -231,6 +534,19 @@ public final class XSet<E> {
         return items.isEmpty();
     }
 
+    /**
+     * Returns a canonical representation of this extended set.
+     * <p>
+     * Similarly to {@link String#intern()} all equal interned sets are the same instance.
+     * The canonical instances are held only weakly, so they are reclaimed once they are not used.
+     * Use {@link XSetInterner} for a pool with a different eviction policy.
+     *
+     * @return the canonical instance equal to this set
+     */
+    public XSet<E> intern() {
+        return XSetInterner.SHARED.intern(this);
+    }
+
     /**
      * Returns {@code true} if this extended set contains the specified element.
      * <p>
@@ -258,27 +574,19 @@ public final class XSet<E> {
      * the expression {@code this.contains(e)} returns {@code true}.
      * <p>
      * That also means that this method returns {@code true} for empty {@code otherItems} collections.
+     * <p>
+     * The elements are examined only until the result is known.
      *
      * @param otherItems collection of elements whose presence in this collection is to be tested
      * @return true if this extended set contains all the elements
-     * @throws NullPointerException if the specified collection or any element of the collection is {@code null}
+     * @throws NullPointerException if the specified collection or any examined element of the collection is {@code null}
      * @see #contains(Object)
      * @see #containsAny(Collection)
      */
     public boolean containsAll(final Collection<E> otherItems) {
         requireNonNull(otherItems);
-        requireNonNullItems(otherItems);
 
-        if (otherItems.isEmpty()) {
-            return true;
-        }
-        else if (complementary) {
-            return otherItems.stream()
-                .noneMatch(items::contains);
-        }
-        else {
-            return items.containsAll(otherItems);
-        }
+        return !containsItemWithMembership(otherItems, false);
     }
 
     /**
@@ -288,27 +596,114 @@ public final class XSet<E> {
      * the expression {@code this.contains(e)} returns {@code false}.
      * <p>
      * That also means that this method returns {@code true} for empty {@code otherItems} collections.
+     * <p>
+     * The elements are examined only until the result is known.
      *
      * @param otherItems collection of elements whose presence in this collection is to be tested
      * @return true if this extended set contains all the elements or the specified collection is empty
-     * @throws NullPointerException if the specified collection or any element of the collection is {@code null}
+     * @throws NullPointerException if the specified collection or any examined element of the collection is {@code null}
      * @see #contains(Object)
      * @see #containsAll(Collection)
      */
     public boolean containsAny(final Collection<E> otherItems) {
         requireNonNull(otherItems);
-        requireNonNullItems(otherItems);
 
-        if (otherItems.isEmpty()) {
-            return true;
+        return otherItems.isEmpty() || containsItemWithMembership(otherItems, true);
+    }
+
+    /**
+     * Tests the presence of each element of the specified list in this extended set.
+     * <p>
+     * The bit {@code i} of the result is set if and only if {@code this.contains(otherItems.get(i))} returns {@code true}.
+     * This method is faster than calling {@link #contains(Object)} for each element separately.
+     *
+     * @param otherItems list of elements whose presence in this set is to be tested
+     * @return the bits of the elements contained in this extended set
+     * @throws NullPointerException if the specified list or any of its elements is {@code null}
+     * @see #contains(Object)
+     */
+    public BitSet containsEach(final List<E> otherItems) {
+        requireNonNull(otherItems);
+
+        final int size = otherItems.size();
+        final BitSet result = new BitSet(size);
+
+        // the complement branch is hoisted out of the loops - the bits are flipped at once:
+        if (otherItems instanceof RandomAccess) {
+            for (int i = 0; i < size; i++) {
+                if (items.contains(requireNonNullItem(otherItems.get(i)))) {
+                    result.set(i);
+                }
+            }
         }
-        else if (complementary) {
-            return !items.containsAll(otherItems);
+        else {
+            int i = 0;
+            for (final E item : otherItems) {
+                if (items.contains(requireNonNullItem(item))) {
+                    result.set(i);
+                }
+                i++;
+            }
+        }
+
+        if (complementary) {
+            result.flip(0, size);
+        }
+
+        return result;
+    }
+
+    /**
+     * Tests the presence of each element of the specified array in this extended set.
+     * <p>
+     * The element {@code result[i]} is set to {@code this.contains(otherItems[i])} for each index of {@code otherItems},
+     * the rest of the {@code result} array is left untouched.
+     * This method is faster than calling {@link #contains(Object)} for each element separately.
+     *
+     * @param otherItems elements whose presence in this set is to be tested
+     * @param result array receiving the presence of the elements
+     * @throws NullPointerException if any of the specified arrays or any of the elements is {@code null}
+     * @throws IllegalArgumentException if the {@code result} array is shorter than the {@code otherItems} array
+     * @see #contains(Object)
+     */
+    public void containsEach(final E[] otherItems, final boolean[] result) {
+        requireNonNull(otherItems);
+        requireNonNull(result);
+        requireLength(otherItems.length, result);
+
+        // the complement branch is hoisted out of the loop - XOR with the flag:
+        final boolean flip = complementary;
+        for (int i = 0; i < otherItems.length; i++) {
+            result[i] = items.contains(requireNonNullItem(otherItems[i])) != flip;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the collection contains an item for which {@link #contains(Object)} returns the given membership.
+     */
+    private boolean containsItemWithMembership(final Collection<E> otherItems, final boolean membership) {
+        // the complement branch is hoisted out of the loops:
+        final boolean membershipOfItems = membership != complementary;
+
+        if (otherItems instanceof List && otherItems instanceof RandomAccess) {
+            final List<E> list = (List<E>) otherItems;
+            final int size = list.size();
+
+            for (int i = 0; i < size; i++) {
+                if (items.contains(requireNonNullItem(list.get(i))) == membershipOfItems) {
+                    return true;
+                }
+            }
         }
         else {
-            return otherItems.stream()
-                .anyMatch(items::contains);
+            for (final E item : otherItems) {
+                if (items.contains(requireNonNullItem(item)) == membershipOfItems) {
+                    return true;
+                }
+            }
         }
+
+        return false;
     }
 
     /**
@@ -329,6 +724,8 @@ public final class XSet<E> {
 
     /**
      * Returns the subtraction of the other set from this set.
+     * <p>
+     * The large mergeable sets are merged by the tasks of a fork/join pool, like by {@link #union(XSet)}.
      *
      * @param other the other extended set
      * @return the subtraction
@@ -342,6 +739,8 @@ public final class XSet<E> {
 
     /**
      * Returns the intersection of this and the other extended sets.
+     * <p>
+     * The large mergeable sets are merged by the tasks of a fork/join pool, like by {@link #union(XSet)}.
      *
      * @param other the other extended set
      * @return the intersection
@@ -350,6 +749,10 @@ public final class XSet<E> {
     public XSet<E> intersect(final XSet<E> other) {
         requireNonNull(other);
 
+        return intersect(other, null);
+    }
+
+    private XSet<E> intersect(final XSet<E> other, final ForkJoinPool pool) {
         if (this.items.isEmpty()) {
             return this.complementary ? other : this;
         }
@@ -357,28 +760,28 @@ public final class XSet<E> {
             return other.complementary ? this : other;
         }
         else {
-            final Set<E> resultItems = intersectItems(other);
+            final Set<E> resultItems = intersectItems(other, pool);
             final boolean resultComplementary = this.complementary && other.complementary;
-            return canonicalXSet(resultItems, resultComplementary);
+            return toResult(other, resultItems, resultComplementary);
         }
     }
 
-    private Set<E> intersectItems(final XSet<E> other) {
+    private Set<E> intersectItems(final XSet<E> other, final ForkJoinPool pool) {
         final Set<E> resultItems;
 
         if (this.complementary) {
             if (other.complementary) {
-                resultItems = union(this.items, other.items);
+                resultItems = union(this.items, other.items, pool);
             }
             else {
-                resultItems = minus(other.items, this.items);
+                resultItems = minus(other.items, this.items, pool);
             }
         }
         else if (other.complementary) {
-            resultItems = minus(this.items, other.items);
+            resultItems = minus(this.items, other.items, pool);
         }
         else {
-            resultItems = intersect(this.items, other.items);
+            resultItems = intersect(this.items, other.items, pool);
         }
 
         return resultItems;
@@ -386,6 +789,10 @@ public final class XSet<E> {
 
     /**
      * Returns the union of this and the other extended sets.
+     * <p>
+     * If both operands are large sets created by {@link #mergeableOf(Collection)} (131072 items together or more),
+     * the merge is split into parallel tasks of the current fork/join pool or of the {@link ForkJoinPool#commonPool() common pool},
+     * see the automatic parallel merges in the class description.
      *
      * @param other the other extended set
      * @return the union
@@ -394,6 +801,10 @@ public final class XSet<E> {
     public XSet<E> union(final XSet<E> other) {
         requireNonNull(other);
 
+        return union(other, null);
+    }
+
+    private XSet<E> union(final XSet<E> other, final ForkJoinPool pool) {
         if (this.items.isEmpty()) {
             return this.complementary ? this : other;
         }
@@ -401,60 +812,449 @@ public final class XSet<E> {
             return other.complementary ? other : this;
         }
         else {
-            final Set<E> resultItems = unionItems(other);
+            final Set<E> resultItems = unionItems(other, pool);
             final boolean resultComplement = this.complementary || other.complementary;
-            return canonicalXSet(resultItems, resultComplement);
+            return toResult(other, resultItems, resultComplement);
         }
     }
 
-    private Set<E> unionItems(final XSet<E> other) {
+    private Set<E> unionItems(final XSet<E> other, final ForkJoinPool pool) {
         final Set<E> resultItems;
 
         if (this.complementary) {
             if (other.complementary) {
-                resultItems = intersect(this.items, other.items);
+                resultItems = intersect(this.items, other.items, pool);
             }
             else {
-                resultItems = minus(this.items, other.items);
+                resultItems = minus(this.items, other.items, pool);
             }
         }
         else if (other.complementary) {
-            resultItems = minus(other.items, this.items);
+            resultItems = minus(other.items, this.items, pool);
         }
         else {
-            resultItems = union(this.items, other.items);
+            resultItems = union(this.items, other.items, pool);
         }
 
         return resultItems;
     }
 
-    private static <T> Set<T> intersect(final Set<T> set1, final Set<T> set2) {
-        final Set<T> result = newHashSet(set1);
-        result.retainAll(set2);
-        return result;
+    /**
+     * Returns the view of this extended set whose set operations merge the large mergeable sets in the given fork/join pool.
+     * <p>
+     * Only the merges of two sets created by {@link #mergeableOf(Collection)} (or of the results of their operations)
+     * are parallel: if they have at least 131072 items together, they are split into the partitions
+     * merged by the threads of the pool, while the caller waits for the result.
+     * The sets of the other stores (e.g. the hash tables created by {@link #of(Collection)}) are processed
+     * sequentially by the caller thread, exactly as by {@link #intersect(XSet)}, {@link #union(XSet)}
+     * and {@link #subtract(XSet)}. A pool with the parallelism {@code 1} merges the sets sequentially.
+     * The explicit pool is used even if the automatic parallel merges are turned off.
+     *
+     * @param pool the fork/join pool
+     * @return the view merging the mergeable sets in the pool
+     * @throws NullPointerException if the pool is {@code null}
+     * @see #mergeableOf(Collection)
+     */
+    public Parallel<E> parallel(final ForkJoinPool pool) {
+        requireNonNull(pool);
+
+        return new Parallel<>(this, pool);
     }
 
-    private static <T> Set<T> union(final Set<T> set1, final Set<T> set2) {
-        final Set<T> result = newHashSet(set1);
-        result.addAll(set2);
-        return result;
+    /**
+     * Returns the difference between this set and the newer one.
+     * <p>
+     * The delta contains only the changed elements, so that {@code this.apply(this.diff(newer))} equals {@code newer}.
+     * A change of the {@code complementary} flag is recorded by the {@code complementFlip} flag of the delta,
+     * so e.g. the delta between a set and its complement is empty except of the flag.
+     *
+     * @param newer the newer extended set
+     * @return the delta from this set to the newer one
+     * @throws NullPointerException if the newer set is {@code null}
+     */
+    public XSetDelta<E> diff(final XSet<E> newer) {
+        requireNonNull(newer);
+
+        if (newer == this) {
+            return XSetDelta.empty();
+        }
+
+        final boolean complementFlip = this.complementary != newer.complementary;
+        final Builder<E> onlyNewer = builder();
+        final Builder<E> onlyThis = builder();
+        diffItems(this.items, newer.items, onlyNewer, onlyThis);
+
+        // after the flip both sets have the same flag, so the items missing in a complementary set are added:
+        return newer.complementary
+            ? XSetDelta.of(onlyThis.build(), onlyNewer.build(), complementFlip)
+            : XSetDelta.of(onlyNewer.build(), onlyThis.build(), complementFlip);
     }
 
-    private static <T> Set<T> minus(final Set<T> set1, final Set<T> set2) {
-        final Set<T> result = newHashSet(set1);
-        result.removeAll(set2);
-        return result;
+    private static <T> void diffItems(final Set<T> older, final Set<T> newer, final Builder<T> added, final Builder<T> removed) {
+        final HamtItemSet<T> olderTrie = HamtItemSet.existingTrie(older);
+        final HamtItemSet<T> newerTrie = HamtItemSet.existingTrie(newer);
+
+        if (olderTrie != null && newerTrie != null) {
+            // the tries derived from each other share the unchanged subtrees:
+            HamtItemSet.diff(olderTrie, newerTrie, added::add, removed::add);
+        }
+        else if (older != newer) {
+            // only the result is allocated, unlike by minus(Set, Set):
+            for (final T item : newer) {
+                if (!older.contains(item)) {
+                    added.add(item);
+                }
+            }
+            for (final T item : older) {
+                if (!newer.contains(item)) {
+                    removed.add(item);
+                }
+            }
+        }
     }
 
-    private static <T> XSet<T> canonicalXSet(final Set<T> items, final boolean complementary) {
-        if (items.isEmpty()) {
+    /**
+     * Returns this set changed by the delta.
+     * <p>
+     * The result is derived by {@link #union(XSet)} and {@link #subtract(XSet)} of the small sets of the changed elements,
+     * so the large sets share the structure with this set instead of copying all the items.
+     * This set is returned if the delta does not change it.
+     *
+     * @param delta the delta, e.g. created by {@link #diff(XSet)}
+     * @return the changed extended set
+     * @throws NullPointerException if the delta is {@code null}
+     */
+    public XSet<E> apply(final XSetDelta<E> delta) {
+        requireNonNull(delta);
+
+        final XSet<E> base = delta.isComplementFlip() ? complement() : this;
+        return base.union(delta.getAdded()).subtract(delta.getRemoved());
+    }
+
+    /**
+     * Returns the intersection of all the extended sets.
+     * <p>
+     * The result is the same as of the chained calls of {@link #intersect(XSet)}, but the intermediate results
+     * are not created. The items of the smallest finite set are filtered by all the other sets at once.
+     * The empty set is returned as soon as it is found among the sets.
+     *
+     * @param xsets the extended sets
+     * @param <T> the element type
+     * @return the intersection, the full set for no sets
+     * @throws NullPointerException if the collection or any of the examined sets is {@code null}
+     */
+    public static <T> XSet<T> intersectAll(final Collection<XSet<T>> xsets) {
+        requireNonNull(xsets);
+
+        final List<XSet<T>> finite = new ArrayList<>();
+        final List<XSet<T>> complementary = new ArrayList<>();
+
+        for (final XSet<T> xset : xsets) {
+            requireNonNull(xset);
+
+            if (xset.isEmpty()) {
+                return xset;
+            }
+            else if (!xset.isFull()) {
+                (xset.complementary ? complementary : finite).add(xset);
+            }
+        }
+
+        // A & B & ~C & ~D = (A & B) - (C | D) and ~C & ~D = ~(C | D)
+        return finite.isEmpty() ? unionOfItems(complementary, true) : filterItems(finite, complementary, false);
+    }
+
+    /**
+     * Returns the union of all the extended sets.
+     * <p>
+     * The result is the same as of the chained calls of {@link #union(XSet)}, but the intermediate results
+     * are not created. The items of the smallest complementary set are filtered by all the other sets at once.
+     * The full set is returned as soon as it is found among the sets.
+     *
+     * @param xsets the extended sets
+     * @param <T> the element type
+     * @return the union, the empty set for no sets
+     * @throws NullPointerException if the collection or any of the examined sets is {@code null}
+     */
+    public static <T> XSet<T> unionAll(final Collection<XSet<T>> xsets) {
+        requireNonNull(xsets);
+
+        final List<XSet<T>> finite = new ArrayList<>();
+        final List<XSet<T>> complementary = new ArrayList<>();
+
+        for (final XSet<T> xset : xsets) {
+            requireNonNull(xset);
+
+            if (xset.isFull()) {
+                return xset;
+            }
+            else if (!xset.isEmpty()) {
+                (xset.complementary ? complementary : finite).add(xset);
+            }
+        }
+
+        // ~A | ~B | C | D = ~((A & B) - (C | D))
+        return complementary.isEmpty() ? unionOfItems(finite, false) : filterItems(complementary, finite, true);
+    }
+
+    /**
+     * Returns the set of the items of the smallest of the including sets which are contained in the items
+     * of all the other including sets, but which are not contained in the items of any of the excluding sets.
+     */
+    private static <T> XSet<T> filterItems(final List<XSet<T>> including, final List<XSet<T>> excluding, final boolean complementary) {
+        // the smaller sets are more likely to reject the item:
+        including.sort(Comparator.comparingInt(xset -> xset.items.size()));
+
+        final XSet<T> smallest = including.get(0);
+        final Object[] result = new Object[smallest.items.size()];
+        int size = 0;
+
+        for (final T item : smallest.items) {
+            if (isContainedInAll(item, including) && !isContainedInAny(item, excluding)) {
+                result[size++] = item;
+            }
+        }
+
+        if (size == result.length) {
+            return smallest;
+        }
+        else if (size == 0) {
             return complementary ? full() : empty();
         }
+        else {
+            @SuppressWarnings("unchecked")
+            final List<T> resultItems = (List<T>) Arrays.asList(result).subList(0, size);
+            return new XSet<>(nonEmptyCollectionToSet(resultItems), complementary);
+        }
+    }
+
+    private static <T> boolean isContainedInAll(final T item, final List<XSet<T>> xsets) {
+        // the first set is the source of the items:
+        for (int i = 1; i < xsets.size(); i++) {
+            if (!xsets.get(i).items.contains(item)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <T> boolean isContainedInAny(final T item, final List<XSet<T>> xsets) {
+        for (final XSet<T> xset : xsets) {
+            if (xset.items.contains(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the set of the items of any of the sets.
+     */
+    private static <T> XSet<T> unionOfItems(final List<XSet<T>> xsets, final boolean complementary) {
+        if (xsets.isEmpty()) {
+            return complementary ? full() : empty();
+        }
+        else if (xsets.size() == 1) {
+            return xsets.get(0);
+        }
+
+        final XSet<T> largest = Collections.max(xsets, Comparator.comparingInt(xset -> xset.items.size()));
+        int totalSize = 0;
+        for (final XSet<T> xset : xsets) {
+            totalSize += xset.items.size();
+        }
+
+        final Set<T> result = newHashSet(totalSize);
+        result.addAll(largest.items);
+
+        for (final XSet<T> xset : xsets) {
+            if (xset != largest) {
+                result.addAll(xset.items);
+            }
+        }
+
+        return result.size() == largest.items.size() ? largest : new XSet<>(nonEmptyCollectionToSet(result), complementary);
+    }
+
+    private XSet<E> toResult(final XSet<E> other, final Set<E> resultItems, final boolean resultComplementary) {
+        // the helpers return the items of an operand if the result is provably equal to them:
+        if (resultItems == this.items) {
+            return this.complementary == resultComplementary ? this : new XSet<>(resultItems, resultComplementary);
+        }
+        else if (resultItems == other.items) {
+            return other.complementary == resultComplementary ? other : new XSet<>(resultItems, resultComplementary);
+        }
+        else {
+            return canonicalXSet(resultItems, resultComplementary);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T> Set<T> intersect(final Set<T> set1, final Set<T> set2, final ForkJoinPool pool) {
+        if (areCompatibleEnumSets(set1, set2)) {
+            return EnumItemSet.intersect((EnumItemSet) set1, (EnumItemSet) set2);
+        }
+        else if (set1 instanceof RoaringItemSet && set2 instanceof RoaringItemSet) {
+            return (Set<T>) RoaringItemSet.intersect((RoaringItemSet) set1, (RoaringItemSet) set2);
+        }
+        else if (set1 instanceof SortedItemSet && set2 instanceof SortedItemSet) {
+            return immutableSet(SortedItemSet.intersect((SortedItemSet<T>) set1, (SortedItemSet<T>) set2, pool));
+        }
+
+        final Set<T> smaller = set1.size() <= set2.size() ? set1 : set2;
+        final Set<T> larger = smaller == set1 ? set2 : set1;
+        final Set<T> result = newHashSet(smaller.size());
+
+        for (final T item : smaller) {
+            if (larger.contains(item)) {
+                result.add(item);
+            }
+        }
+
+        return result.size() == smaller.size() ? smaller : immutableSet(result);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T> Set<T> union(final Set<T> set1, final Set<T> set2, final ForkJoinPool pool) {
+        if (areCompatibleEnumSets(set1, set2)) {
+            return EnumItemSet.union((EnumItemSet) set1, (EnumItemSet) set2);
+        }
+        else if (HamtItemSet.isDerivable(set1, set2) || HamtItemSet.isDerivable(set2, set1)) {
+            // the small change shares the structure of the large base instead of copying it:
+            final Set<T> base = HamtItemSet.isDerivable(set1, set2) ? set1 : set2;
+            final HamtItemSet<T> trie = HamtItemSet.of(base);
+            final HamtItemSet<T> result = trie.plusAll(base == set1 ? set2 : set1);
+
+            return result == trie ? base : result;
+        }
+        else if (set1 instanceof RoaringItemSet || set2 instanceof RoaringItemSet) {
+            // converting the other operand is cheaper than copying the bitmap into a hash set:
+            final RoaringItemSet bitmap1 = RoaringItemSet.copyOf(set1);
+            final RoaringItemSet bitmap2 = RoaringItemSet.copyOf(set2);
+
+            if (bitmap1 != null && bitmap2 != null) {
+                return (Set<T>) RoaringItemSet.union(bitmap1, bitmap2);
+            }
+        }
+        else if (isMergeable(set1, set2) || isMergeable(set2, set1)) {
+            // sorting the other (not larger) operand is cheaper than copying the array into a hash set:
+            return immutableSet(SortedItemSet.union(SortedItemSet.copyOf(set1), SortedItemSet.copyOf(set2), pool));
+        }
+
+        final Set<T> smaller = set1.size() <= set2.size() ? set1 : set2;
+        final Set<T> larger = smaller == set1 ? set2 : set1;
+        final Iterator<T> iterator = smaller.iterator();
+
+        while (iterator.hasNext()) {
+            final T item = iterator.next();
+
+            if (!larger.contains(item)) {
+                final Set<T> result = newHashSet(larger.size() + smaller.size());
+                result.addAll(larger);
+                result.add(item);
+                iterator.forEachRemaining(result::add);
+                return immutableSet(result);
+            }
+        }
+
+        // the smaller set is a subset of the larger one:
+        return larger;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T> Set<T> minus(final Set<T> set1, final Set<T> set2, final ForkJoinPool pool) {
+        if (areCompatibleEnumSets(set1, set2)) {
+            return EnumItemSet.minus((EnumItemSet) set1, (EnumItemSet) set2);
+        }
+        else if (HamtItemSet.isDerivable(set1, set2)) {
+            final HamtItemSet<T> trie = HamtItemSet.of(set1);
+            final HamtItemSet<T> result = trie.minusAll(set2);
+
+            return result == trie ? set1 : immutableSet(result);
+        }
+        else if (set1 instanceof RoaringItemSet) {
+            final RoaringItemSet bitmap2 = RoaringItemSet.copyOf(set2);
+
+            if (bitmap2 != null) {
+                return (Set<T>) RoaringItemSet.minus((RoaringItemSet) set1, bitmap2);
+            }
+        }
+        else if (isMergeable(set1, set2)) {
+            return immutableSet(SortedItemSet.minus((SortedItemSet<T>) set1, SortedItemSet.copyOf(set2), pool));
+        }
+
+        if (set1.size() <= set2.size()) {
+            final Set<T> result = newHashSet(set1.size());
+
+            for (final T item : set1) {
+                if (!set2.contains(item)) {
+                    result.add(item);
+                }
+            }
+
+            return result.size() == set1.size() ? set1 : immutableSet(result);
+        }
+        else {
+            final Iterator<T> iterator = set2.iterator();
+
+            while (iterator.hasNext()) {
+                final T item = iterator.next();
+
+                if (set1.contains(item)) {
+                    final Set<T> result = newHashSet(set1);
+                    result.remove(item);
+                    iterator.forEachRemaining(result::remove);
+                    return immutableSet(result);
+                }
+            }
+
+            // nothing to be removed:
+            return set1;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the sorted set should be merged with the other set.
+     * <p>
+     * The other set is sorted by {@link SortedItemSet#copyOf(Collection)} unless it is already sorted,
+     * which pays off only if it is not larger than the sorted set - a larger one is probed item by item instead.
+     */
+    private static boolean isMergeable(final Set<?> sorted, final Set<?> other) {
+        return sorted instanceof SortedItemSet && (other instanceof SortedItemSet || other.size() <= sorted.size());
+    }
+
+    private static boolean areCompatibleEnumSets(final Set<?> set1, final Set<?> set2) {
+        return set1 instanceof EnumItemSet
+            && set2 instanceof EnumItemSet
+            && ((EnumItemSet<?>) set1).isCompatible((EnumItemSet<?>) set2);
+    }
+
+    private static <T> Set<T> immutableSet(final Set<T> items) {
+        if (items.isEmpty()) {
+            return Collections.emptySet();
+        }
         else if (items.size() == 1) {
-            return new XSet<>(singleton(items), complementary);
+            return singleton(items);
+        }
+        else if (items.size() <= SmallItemSet.MAX_SIZE) {
+            return SmallItemSet.wrap(items.toArray());
+        }
+        else if (items instanceof HamtItemSet || items instanceof SortedItemSet || items instanceof HashItemSet) {
+            return items;
         }
         else {
-            return new XSet<>(Collections.unmodifiableSet(items), complementary);
+            // the hash set is created by the caller, so it is handed over:
+            return HashItemSet.wrap(items);
+        }
+    }
+
+    private static <T> XSet<T> canonicalXSet(final Set<T> items, final boolean complementary) {
+        // the items are already immutable here
+        if (items.isEmpty()) {
+            return complementary ? full() : empty();
+        }
+        else {
+            return new XSet<>(items, complementary);
         }
     }
 
@@ -466,6 +1266,15 @@ public final class XSet<E> {
         return new HashSet<>(collection);
     }
 
+    private static <T> Set<T> newHashSet(final int expectedSize) {
+        return new HashSet<>(hashCapacity(expectedSize));
+    }
+
+    private static int hashCapacity(final int expectedSize) {
+        // the same sizing as used by HashSet(Collection) for the default load factor 0.75:
+        return Math.max((int) (expectedSize / HASH_LOAD_FACTOR) + 1, HASH_MIN_CAPACITY);
+    }
+
     private static <T> void requireNonNull(final XSet<T> other) {
         Objects.requireNonNull(other, "other XSet must not be null");
     }
@@ -474,9 +1283,30 @@ public final class XSet<E> {
         Objects.requireNonNull(input, "input must not be null");
     }
 
+    static void requireLength(final int length, final boolean[] result) {
+        if (result.length < length) {
+            throw new IllegalArgumentException("result array is too short: " + result.length + " < " + length);
+        }
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(items, complementary);
+        // racy single-check idiom - the same as used by String
+        int result = hash;
+
+        if (result == 0 && !hashIsZero) {
+            // the same value as Objects.hash(items, complementary), but without the varargs array:
+            result = (HASH_MULTIPLIER + items.hashCode()) * HASH_MULTIPLIER + Boolean.hashCode(complementary);
+
+            if (result == 0) {
+                hashIsZero = true;
+            }
+            else {
+                hash = result;
+            }
+        }
+
+        return result;
     }
 
     @Override
@@ -491,7 +1321,16 @@ public final class XSet<E> {
 
         final XSet that = (XSet) other;
 
-        return this.complementary == that.complementary && this.items.equals(that.items);
+        if (this.complementary != that.complementary) {
+            return false;
+        }
+
+        // fast negative path when both hash codes are already computed:
+        if (this.hash != 0 && that.hash != 0 && this.hash != that.hash) {
+            return false;
+        }
+
+        return this.items.equals(that.items);
     }
 
     @Override
@@ -499,4 +1338,297 @@ public final class XSet<E> {
         return "XSet{" + (complementary ? "~" : "") + items + '}';
     }
 
+    /**
+     * View of an extended set whose set operations merge the large mergeable sets in a fork/join pool.
+     * <p>
+     * The operations of the other stores are sequential, see {@link XSet#parallel(ForkJoinPool)}.
+     * <p>
+     * This class is immutable and thread-safe.
+     *
+     * @param <E> the element type
+     * @see XSet#parallel(ForkJoinPool)
+     */
+    public static final class Parallel<E> {
+
+        private final XSet<E> xset;
+
+        private final ForkJoinPool pool;
+
+        Parallel(final XSet<E> xset, final ForkJoinPool pool) {
+            this.xset = xset;
+            this.pool = pool;
+        }
+
+        /**
+         * Returns the subtraction of the other set from this set.
+         *
+         * @param other the other extended set
+         * @return the subtraction
+         * @throws NullPointerException if the other set is {@code null}
+         * @see XSet#subtract(XSet)
+         */
+        public XSet<E> subtract(final XSet<E> other) {
+            requireNonNull(other);
+
+            return xset.intersect(other.complement(), pool);
+        }
+
+        /**
+         * Returns the intersection of this and the other extended sets.
+         *
+         * @param other the other extended set
+         * @return the intersection
+         * @throws NullPointerException if the other set is {@code null}
+         * @see XSet#intersect(XSet)
+         */
+        public XSet<E> intersect(final XSet<E> other) {
+            requireNonNull(other);
+
+            return xset.intersect(other, pool);
+        }
+
+        /**
+         * Returns the union of this and the other extended sets.
+         *
+         * @param other the other extended set
+         * @return the union
+         * @throws NullPointerException if the other set is {@code null}
+         * @see XSet#union(XSet)
+         */
+        public XSet<E> union(final XSet<E> other) {
+            requireNonNull(other);
+
+            return xset.union(other, pool);
+        }
+
+        @Override
+        public String toString() {
+            return "Parallel" + xset;
+        }
+    }
+
+    /**
+     * Mutable builder of an extended set.
+     * <p>
+     * The builder modifies its private items in place, so an extended set can be built incrementally
+     * without copying all the items on each step (as the repeated {@link XSet#union(XSet)} does).
+     * The items are handed over to the result by {@link #build()} and the builder cannot be used any more afterwards.
+     * <p>
+     * This class is not thread-safe.
+     *
+     * @param <E> the element type
+     * @see XSet#builder()
+     */
+    public static final class Builder<E> {
+
+        private Set<E> items = new HashSet<>();
+
+        private boolean complementary;
+
+        Builder() {
+            // use XSet.builder()
+        }
+
+        /**
+         * Adds the element to the set being built.
+         *
+         * @param item the element
+         * @return this builder
+         * @throws NullPointerException if the element is {@code null}
+         * @throws IllegalStateException if the set has already been built
+         */
+        public Builder<E> add(final E item) {
+            requireNonNullItem(item);
+
+            if (complementary) {
+                items().remove(item);
+            }
+            else {
+                items().add(item);
+            }
+            return this;
+        }
+
+        /**
+         * Adds all the elements to the set being built.
+         *
+         * @param otherItems the elements
+         * @return this builder
+         * @throws NullPointerException if the collection or any of its elements is {@code null}
+         * @throws IllegalStateException if the set has already been built
+         */
+        public Builder<E> addAll(final Collection<E> otherItems) {
+            requireNonNull(otherItems);
+
+            for (final E item : otherItems) {
+                add(item);
+            }
+            return this;
+        }
+
+        /**
+         * Removes the element from the set being built.
+         *
+         * @param item the element
+         * @return this builder
+         * @throws NullPointerException if the element is {@code null}
+         * @throws IllegalStateException if the set has already been built
+         */
+        public Builder<E> remove(final E item) {
+            requireNonNullItem(item);
+
+            if (complementary) {
+                items().add(item);
+            }
+            else {
+                items().remove(item);
+            }
+            return this;
+        }
+
+        /**
+         * Replaces the set being built by its complement.
+         *
+         * @return this builder
+         * @throws IllegalStateException if the set has already been built
+         */
+        public Builder<E> complement() {
+            items();
+
+            complementary = !complementary;
+            return this;
+        }
+
+        /**
+         * Replaces the set being built by its intersection with the other extended set.
+         *
+         * @param other the other extended set
+         * @return this builder
+         * @throws NullPointerException if the other set is {@code null}
+         * @throws IllegalStateException if the set has already been built
+         */
+        public Builder<E> intersectWith(final XSet<E> other) {
+            requireNonNull(other);
+
+            if (other.complementary == complementary) {
+                // F & G = F.retain(G) and ~F & ~G = ~(F + G):
+                if (complementary) {
+                    items().addAll(other.items);
+                }
+                else {
+                    items().retainAll(other.items);
+                }
+            }
+            else if (complementary) {
+                // ~F & G = G - F:
+                replaceByMinus(other.items);
+                complementary = false;
+            }
+            else {
+                // F & ~G = F - G:
+                items().removeAll(other.items);
+            }
+            return this;
+        }
+
+        /**
+         * Replaces the set being built by its union with the other extended set.
+         *
+         * @param other the other extended set
+         * @return this builder
+         * @throws NullPointerException if the other set is {@code null}
+         * @throws IllegalStateException if the set has already been built
+         */
+        public Builder<E> unionWith(final XSet<E> other) {
+            requireNonNull(other);
+
+            if (other.complementary == complementary) {
+                // F | G = F + G and ~F | ~G = ~(F.retain(G)):
+                if (complementary) {
+                    items().retainAll(other.items);
+                }
+                else {
+                    items().addAll(other.items);
+                }
+            }
+            else if (complementary) {
+                // ~F | G = ~(F - G):
+                items().removeAll(other.items);
+            }
+            else {
+                // F | ~G = ~(G - F):
+                replaceByMinus(other.items);
+                complementary = true;
+            }
+            return this;
+        }
+
+        /**
+         * Builds the extended set.
+         * <p>
+         * The items are handed over to the result, so the builder cannot be used any more.
+         *
+         * @return the extended set
+         * @throws IllegalStateException if the set has already been built
+         */
+        public XSet<E> build() {
+            final Set<E> result = items();
+            items = null;
+
+            return wrapHashSet(result, complementary);
+        }
+
+        /**
+         * Replaces the items by the other items without the current items.
+         */
+        private void replaceByMinus(final Set<E> otherItems) {
+            final Set<E> current = items();
+            final Set<E> result = new HashSet<>();
+
+            for (final E item : otherItems) {
+                if (!current.contains(item)) {
+                    result.add(item);
+                }
+            }
+            items = result;
+        }
+
+        private Set<E> items() {
+            if (items == null) {
+                throw new IllegalStateException("the XSet has already been built");
+            }
+            return items;
+        }
+    }
+
+    /**
+     * Hash set collecting the items of a stream.
+     * <p>
+     * The duplicities are dropped as the items arrive, so the memory is proportional to the distinct items
+     * rather than to the length of the stream. The hash set is handed over to the backing store of the result.
+     *
+     * @param <T> the element type
+     */
+    private static final class ItemBuffer<T> {
+
+        private final Set<T> items = new HashSet<>();
+
+        void add(final T item) {
+            items.add(requireNonNullItem(item));
+        }
+
+        ItemBuffer<T> addAll(final ItemBuffer<T> other) {
+            // the larger buffer absorbs the smaller one:
+            final ItemBuffer<T> target = items.size() >= other.items.size() ? this : other;
+            final ItemBuffer<T> source = target == this ? other : this;
+
+            target.items.addAll(source.items);
+            return target;
+        }
+
+        XSet<T> toXSet(final boolean complementary) {
+            return wrapHashSet(items, complementary);
+        }
+    }
+
 }
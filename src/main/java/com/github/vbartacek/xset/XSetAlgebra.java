@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BinaryOperator;
+
+
+/**
+ * Set operations with a bounded cache of the results.
+ * <p>
+ * The cache is keyed by the identity of the operands and by the operation,
+ * so it is most effective for operands which are {@link XSet#intern() interned}.
+ * Operations with an empty or a full operand are cheap, so they are not cached.
+ * The least recently used results are evicted once the cache is full - the recency is approximate,
+ * so that the cache hits do not need any lock: a hit only stamps the entry by the current tick of a clock,
+ * which is advanced by the misses. The results are evicted in batches of a quarter of the cache,
+ * so the insertion cost of the eviction is amortized and the size of the cache may exceed its limit
+ * shortly while other threads insert their results.
+ * <p>
+ * The numbers of hits and misses are exposed to help sizing the cache.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Vaclav Bartacek
+ * @see XSetInterner
+ */
+public final class XSetAlgebra {
+
+    /**
+     * The eviction shrinks the cache by this fraction of its maximal size.
+     */
+    private static final int EVICTION_DIVISOR = 4;
+
+    private final Map<Key, Entry> cache = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    /**
+     * The number of the inserted results - the access stamps of the entries.
+     * The hits stamp the entries by the next tick, so they are newer than all the inserted results.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Only one thread evicts the entries at a time, the hits and the insertions do not take it.
+     */
+    private final Object evictionLock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private XSetAlgebra(final int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Creates a new algebra caching at most the given number of results.
+     *
+     * @param maxSize the maximal number of cached results
+     * @return the new algebra
+     * @throws IllegalArgumentException if the maximal size is not positive
+     */
+    public static XSetAlgebra cached(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+
+        return new XSetAlgebra(maxSize);
+    }
+
+    /**
+     * Returns the intersection of the extended sets.
+     *
+     * @param set1 the first extended set
+     * @param set2 the second extended set
+     * @param <E> the element type
+     * @return the intersection
+     * @throws NullPointerException if any of the sets is {@code null}
+     * @see XSet#intersect(XSet)
+     */
+    public <E> XSet<E> intersect(final XSet<E> set1, final XSet<E> set2) {
+        return apply(Operation.INTERSECT, set1, set2, XSet::intersect);
+    }
+
+    /**
+     * Returns the union of the extended sets.
+     *
+     * @param set1 the first extended set
+     * @param set2 the second extended set
+     * @param <E> the element type
+     * @return the union
+     * @throws NullPointerException if any of the sets is {@code null}
+     * @see XSet#union(XSet)
+     */
+    public <E> XSet<E> union(final XSet<E> set1, final XSet<E> set2) {
+        return apply(Operation.UNION, set1, set2, XSet::union);
+    }
+
+    /**
+     * Returns the subtraction of the second extended set from the first one.
+     *
+     * @param set1 the first extended set
+     * @param set2 the second extended set
+     * @param <E> the element type
+     * @return the subtraction
+     * @throws NullPointerException if any of the sets is {@code null}
+     * @see XSet#subtract(XSet)
+     */
+    public <E> XSet<E> subtract(final XSet<E> set1, final XSet<E> set2) {
+        return apply(Operation.SUBTRACT, set1, set2, XSet::subtract);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <E> XSet<E> apply(final Operation operation, final XSet<E> set1, final XSet<E> set2, final BinaryOperator<XSet<E>> function) {
+        Objects.requireNonNull(set1, "other XSet must not be null");
+        Objects.requireNonNull(set2, "other XSet must not be null");
+
+        if (set1.isTrivial() || set2.isTrivial()) {
+            return function.apply(set1, set2);
+        }
+
+        final Key key = new Key(operation, set1, set2);
+        final Entry cached = cache.get(key);
+
+        if (cached != null) {
+            hits.increment();
+            cached.touch(clock.get());
+            return (XSet<E>) cached.result;
+        }
+
+        misses.increment();
+
+        // do not block the other threads while computing the result:
+        final XSet<E> result = function.apply(set1, set2);
+        final Entry concurrent = cache.putIfAbsent(key, new Entry(key, result, clock.getAndIncrement()));
+
+        if (concurrent != null) {
+            return (XSet<E>) concurrent.result;
+        }
+        if (cache.size() > maxSize) {
+            evict();
+        }
+        return result;
+    }
+
+    /**
+     * Removes the least recently used entries, so that a quarter of the cache is free.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            final int size = cache.size();
+            if (size <= maxSize) {
+                // evicted by another thread meanwhile
+                return;
+            }
+
+            // the stamps are copied, because the hits keep changing them:
+            final Entry[] entries = cache.values().toArray(new Entry[0]);
+            final long[] stamps = new long[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                stamps[i] = entries[i].stamp;
+            }
+            final long[] sorted = stamps.clone();
+            Arrays.sort(sorted);
+
+            final int excess = entries.length - (maxSize - maxSize / EVICTION_DIVISOR);
+            if (excess <= 0) {
+                return;
+            }
+            final long cutoff = sorted[excess - 1];
+            int evicted = 0;
+
+            // the entries older than the cutoff first, then the ones of the cutoff stamp:
+            for (int i = 0; i < entries.length; i++) {
+                if (stamps[i] < cutoff && cache.remove(entries[i].key, entries[i])) {
+                    evicted++;
+                }
+            }
+            for (int i = 0; i < entries.length && evicted < excess; i++) {
+                if (stamps[i] == cutoff && cache.remove(entries[i].key, entries[i])) {
+                    evicted++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of operations whose result was found in the cache.
+     *
+     * @return the number of hits
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of operations whose result was not found in the cache.
+     * <p>
+     * Operations with an empty or a full operand are not counted.
+     *
+     * @return the number of misses
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the size of the cache
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Removes all the cached results.
+     * The hit and miss counters are not reset.
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Cached operations.
+     */
+    private enum Operation {
+        INTERSECT(true),
+        UNION(true),
+        SUBTRACT(false);
+
+        private final boolean commutative;
+
+        Operation(final boolean commutative) {
+            this.commutative = commutative;
+        }
+    }
+
+    /**
+     * Cached result with the stamp of its last access.
+     */
+    private static final class Entry {
+
+        private final Key key;
+
+        private final XSet<?> result;
+
+        private volatile long stamp;
+
+        Entry(final Key key, final XSet<?> result, final long stamp) {
+            this.key = key;
+            this.result = result;
+            this.stamp = stamp;
+        }
+
+        void touch(final long now) {
+            // the hot entries are not written on every hit:
+            if (stamp != now) {
+                stamp = now;
+            }
+        }
+    }
+
+    /**
+     * Cache key - the operation and the identities of the operands.
+     */
+    private static final class Key {
+
+        private static final int HASH_MULTIPLIER = 31;
+
+        private final Operation operation;
+
+        private final XSet<?> left;
+
+        private final XSet<?> right;
+
+        Key(final Operation operation, final XSet<?> set1, final XSet<?> set2) {
+            // commutative operations share one entry for both orders of the operands:
+            final boolean swap = operation.commutative && System.identityHashCode(set1) > System.identityHashCode(set2);
+
+            this.operation = operation;
+            this.left = swap ? set2 : set1;
+            this.right = swap ? set1 : set2;
+        }
+
+        @Override
+        public int hashCode() {
+            return (operation.hashCode() * HASH_MULTIPLIER + System.identityHashCode(left)) * HASH_MULTIPLIER
+                + System.identityHashCode(right);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) other;
+            return this.operation == that.operation && this.left == that.left && this.right == that.right;
+        }
+    }
+
+}
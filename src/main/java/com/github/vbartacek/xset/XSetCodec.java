@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+
+/**
+ * Binary encoding of extended sets.
+ * <p>
+ * The built-in codecs - {@link #ofLongs()}, {@link #ofIntegers()} and {@link #ofStrings()} - use a compact format:
+ * <ul>
+ * <li>a flag byte - the bit 0 is the complementary flag, the bits 1-2 are the item type</li>
+ * <li>the count of the items as an unsigned varint</li>
+ * <li>the numeric items in the ascending order - the first one as a zigzag varint,
+ * then the differences to the previous item as unsigned varints</li>
+ * <li>the {@code String} items as the varint lengths of their UTF-8 bytes followed by the bytes</li>
+ * </ul>
+ * The varints are encoded in 7-bit groups starting with the least significant group,
+ * the highest bit of a byte marks that another byte follows.
+ * <p>
+ * The codecs read exactly the bytes of one encoded set, so more sets can be written to one stream.
+ * <p>
+ * An {@link XSetDelta} is encoded as two sets: the added elements with the complementary flag
+ * set to the {@code complementFlip} flag of the delta, followed by the removed elements.
+ * So a delta of a few changed elements takes a few bytes regardless of the size of the changed set.
+ * The streams are processed byte by byte, so they should be buffered.
+ * <p>
+ * Other element types can be supported by implementing this interface.
+ * The implementations are expected to be thread-safe.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> - the type of elements maintained by the encoded extended sets
+ */
+public interface XSetCodec<E> {
+
+    /**
+     * Returns the compact codec of {@code Long} items.
+     *
+     * @return the codec
+     */
+    static XSetCodec<Long> ofLongs() {
+        return CompactXSetCodec.LONGS;
+    }
+
+    /**
+     * Returns the compact codec of {@code Integer} items.
+     *
+     * @return the codec
+     */
+    static XSetCodec<Integer> ofIntegers() {
+        return CompactXSetCodec.INTEGERS;
+    }
+
+    /**
+     * Returns the compact codec of {@code String} items.
+     *
+     * @return the codec
+     */
+    static XSetCodec<String> ofStrings() {
+        return CompactXSetCodec.STRINGS;
+    }
+
+    /**
+     * Writes the extended set to the stream.
+     *
+     * @param xset the extended set
+     * @param output the stream
+     * @throws IOException if the stream cannot be written
+     * @throws NullPointerException if the set or the stream is {@code null}
+     */
+    void encode(XSet<E> xset, OutputStream output) throws IOException;
+
+    /**
+     * Reads the extended set from the stream.
+     *
+     * @param input the stream
+     * @return the extended set
+     * @throws IOException if the stream cannot be read or it does not contain a valid encoded set
+     * @throws NullPointerException if the stream is {@code null}
+     */
+    XSet<E> decode(InputStream input) throws IOException;
+
+    /**
+     * Writes the delta to the stream.
+     *
+     * @param delta the delta
+     * @param output the stream
+     * @throws IOException if the stream cannot be written
+     * @throws NullPointerException if the delta or the stream is {@code null}
+     */
+    default void encodeDelta(final XSetDelta<E> delta, final OutputStream output) throws IOException {
+        Objects.requireNonNull(delta, "input must not be null");
+
+        // the added elements are finite, so their complementary flag is free to hold the complement flip:
+        encode(delta.isComplementFlip() ? delta.getAdded().complement() : delta.getAdded(), output);
+        encode(delta.getRemoved(), output);
+    }
+
+    /**
+     * Reads the delta from the stream.
+     *
+     * @param input the stream
+     * @return the delta
+     * @throws IOException if the stream cannot be read or it does not contain a valid encoded delta
+     * @throws NullPointerException if the stream is {@code null}
+     */
+    default XSetDelta<E> decodeDelta(final InputStream input) throws IOException {
+        final XSet<E> added = decode(input);
+        final XSet<E> removed = decode(input);
+
+        if (removed.isComplementary()) {
+            throw new IOException("removed items of the encoded delta must be finite");
+        }
+
+        return XSetDelta.of(added.isComplementary() ? added.complement() : added, removed, added.isComplementary());
+    }
+
+    /**
+     * Writes the extended set to the buffer starting at its position, the position is advanced.
+     *
+     * @param xset the extended set
+     * @param buffer the buffer
+     * @throws java.nio.BufferOverflowException if the encoded set does not fit into the remaining bytes of the buffer
+     * @throws NullPointerException if the set or the buffer is {@code null}
+     */
+    default void encode(final XSet<E> xset, final ByteBuffer buffer) {
+        try {
+            encode(xset, ByteBufferStreams.output(buffer));
+        }
+        catch (final IOException e) {
+            // the buffer stream does not throw it
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the extended set from the buffer starting at its position, the position is advanced.
+     *
+     * @param buffer the buffer
+     * @return the extended set
+     * @throws IOException if the buffer does not contain a valid encoded set
+     * @throws NullPointerException if the buffer is {@code null}
+     */
+    default XSet<E> decode(final ByteBuffer buffer) throws IOException {
+        return decode(ByteBufferStreams.input(buffer));
+    }
+
+    /**
+     * Returns a read-only view of the extended set encoded in the buffer starting at its position.
+     * <p>
+     * The view suits one-shot queries like {@code contains} or an intersection with a small set,
+     * because the built-in codecs decode only the items needed by the query:
+     * the sorted numeric items are scanned only up to the probed value and the scanned part is indexed
+     * by skip pointers. This default implementation decodes the whole set.
+     * <p>
+     * The position of the buffer is not changed. The buffer must not be modified while the view is used.
+     * Malformed items might be detected only by the queries reaching them - they throw {@link UncheckedIOException}.
+     *
+     * @param buffer the buffer
+     * @return the extended set backed by the buffer
+     * @throws IOException if the buffer does not contain a valid encoded set
+     * @throws NullPointerException if the buffer is {@code null}
+     */
+    default XSet<E> view(final ByteBuffer buffer) throws IOException {
+        Objects.requireNonNull(buffer, "input must not be null");
+
+        return decode(buffer.duplicate());
+    }
+
+    /**
+     * Returns the extended set encoded into a new array.
+     *
+     * @param xset the extended set
+     * @return the encoded set
+     * @throws NullPointerException if the set is {@code null}
+     */
+    default byte[] toByteArray(final XSet<E> xset) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            encode(xset, output);
+        }
+        catch (final IOException e) {
+            // the array stream does not throw it
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Reads the extended set from the array.
+     *
+     * @param bytes the encoded set
+     * @return the extended set
+     * @throws IOException if the array does not contain a valid encoded set
+     * @throws NullPointerException if the array is {@code null}
+     */
+    default XSet<E> fromByteArray(final byte[] bytes) throws IOException {
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.Objects;
+
+
+/**
+ * Immutable difference between two extended sets.
+ * <p>
+ * The delta is applied to an extended set by {@link XSet#apply(XSetDelta)} in this order:
+ * <ol>
+ * <li>the set is complemented if the {@code complementFlip} flag is set</li>
+ * <li>the {@code added} elements are added</li>
+ * <li>the {@code removed} elements are removed</li>
+ * </ol>
+ * Both {@code added} and {@code removed} are finite sets, so the size of the delta is proportional
+ * to the number of the changed elements - not to the size of the sets. It is created by {@link XSet#diff(XSet)}
+ * and it can be encoded by {@link XSetCodec#encodeDelta(XSetDelta, java.io.OutputStream)}.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> - the type of elements maintained by the changed extended sets
+ */
+public final class XSetDelta<E> {
+
+    private static final XSetDelta<?> EMPTY = new XSetDelta<>(XSet.empty(), XSet.empty(), false);
+
+    private final XSet<E> added;
+
+    private final XSet<E> removed;
+
+    private final boolean complementFlip;
+
+    private XSetDelta(final XSet<E> added, final XSet<E> removed, final boolean complementFlip) {
+        this.added = added;
+        this.removed = removed;
+        this.complementFlip = complementFlip;
+    }
+
+    /**
+     * Returns the delta which does not change anything.
+     *
+     * @param <T> the element type
+     * @return the empty delta
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> XSetDelta<T> empty() {
+        return (XSetDelta<T>) EMPTY;
+    }
+
+    /**
+     * Creates a new delta.
+     *
+     * @param added the added elements
+     * @param removed the removed elements, they are removed after the {@code added} elements are added
+     * @param complementFlip {@code true} if the changed set is complemented before the elements are added and removed
+     * @param <T> the element type
+     * @return the delta
+     * @throws IllegalArgumentException if any of the sets is not finite
+     * @throws NullPointerException if any of the sets is {@code null}
+     */
+    public static <T> XSetDelta<T> of(final XSet<T> added, final XSet<T> removed, final boolean complementFlip) {
+        Objects.requireNonNull(added, "other XSet must not be null");
+        Objects.requireNonNull(removed, "other XSet must not be null");
+
+        if (!added.isFinite() || !removed.isFinite()) {
+            throw new IllegalArgumentException("delta items must be finite: +" + added + " -" + removed);
+        }
+
+        if (added.isEmpty() && removed.isEmpty() && !complementFlip) {
+            return empty();
+        }
+
+        return new XSetDelta<>(added, removed, complementFlip);
+    }
+
+    /**
+     * Returns the added elements.
+     *
+     * @return the finite set of the elements
+     */
+    public XSet<E> getAdded() {
+        return added;
+    }
+
+    /**
+     * Returns the removed elements.
+     *
+     * @return the finite set of the elements
+     */
+    public XSet<E> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Returns {@code true} if the changed set is complemented.
+     *
+     * @return complement flip flag
+     */
+    public boolean isComplementFlip() {
+        return complementFlip;
+    }
+
+    /**
+     * Returns {@code true} if this delta does not change anything.
+     *
+     * @return {@code true} if no element is added or removed and the set is not complemented
+     */
+    public boolean isEmpty() {
+        return this == EMPTY;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(added, removed, complementFlip);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+
+        final XSetDelta that = (XSetDelta) other;
+
+        return this.complementFlip == that.complementFlip
+            && this.added.equals(that.added)
+            && this.removed.equals(that.removed);
+    }
+
+    @Override
+    public String toString() {
+        return "XSetDelta{" + (complementFlip ? "~, " : "") + "+" + added.getItems() + ", -" + removed.getItems() + '}';
+    }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+
+/**
+ * Lazy expression over extended sets.
+ * <p>
+ * The operations only record the expression tree, no set is computed until {@link #materialize()} is called.
+ * The method {@link #contains(Object)} evaluates the tree for the single element, so an expression that is only
+ * queried for a few elements never computes the intermediate sets.
+ * <p>
+ * The tree is simplified as it is built:
+ * <ul>
+ * <li>the subtraction is an intersection with the complement</li>
+ * <li>the complements are pushed down to the extended sets by the De Morgan's laws
+ * (the complement of an extended set is cheap)</li>
+ * <li>the nested intersections (and unions) are flattened into a single intersection (union)</li>
+ * <li>the empty and full sets are eliminated or they absorb the whole intersection (union)</li>
+ * <li>the duplicate operands are removed and the operands together with their complements absorb
+ * the whole intersection (union)</li>
+ * <li>the absorption laws are applied: {@code a & (a | b) = a} and {@code a | (a & b) = a}</li>
+ * </ul>
+ * <p>
+ * This class is immutable and thread-safe.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> the element type
+ * @see XSet
+ */
+public abstract class XSetExpr<E> {
+
+    private XSetExpr() {
+        // only the nested classes
+    }
+
+    /**
+     * Returns the expression of the single extended set.
+     *
+     * @param xset the extended set
+     * @param <T> the element type
+     * @return the expression
+     * @throws NullPointerException if the set is {@code null}
+     */
+    public static <T> XSetExpr<T> of(final XSet<T> xset) {
+        return new Leaf<>(Objects.requireNonNull(xset, "other XSet must not be null"));
+    }
+
+    /**
+     * Returns {@code true} if the result of this expression contains the element.
+     * <p>
+     * Only the operands needed to decide it are evaluated and no set is computed.
+     *
+     * @param item the element
+     * @return true if the result contains the element
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public final boolean contains(final E item) {
+        Objects.requireNonNull(item, "input must not be null");
+
+        return test(item);
+    }
+
+    /**
+     * Computes the extended set of this expression.
+     *
+     * @return the result of the expression
+     */
+    public abstract XSet<E> materialize();
+
+    /**
+     * Returns the complement of this expression.
+     *
+     * @return the complement
+     */
+    public abstract XSetExpr<E> complement();
+
+    /**
+     * Returns the intersection of this and the other expression.
+     *
+     * @param other the other expression
+     * @return the intersection
+     * @throws NullPointerException if the other expression is {@code null}
+     */
+    public final XSetExpr<E> intersect(final XSetExpr<E> other) {
+        return junction(true, this, requireNonNull(other));
+    }
+
+    /**
+     * Returns the intersection of this expression and the extended set.
+     *
+     * @param other the extended set
+     * @return the intersection
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public final XSetExpr<E> intersect(final XSet<E> other) {
+        return intersect(of(other));
+    }
+
+    /**
+     * Returns the union of this and the other expression.
+     *
+     * @param other the other expression
+     * @return the union
+     * @throws NullPointerException if the other expression is {@code null}
+     */
+    public final XSetExpr<E> union(final XSetExpr<E> other) {
+        return junction(false, this, requireNonNull(other));
+    }
+
+    /**
+     * Returns the union of this expression and the extended set.
+     *
+     * @param other the extended set
+     * @return the union
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public final XSetExpr<E> union(final XSet<E> other) {
+        return union(of(other));
+    }
+
+    /**
+     * Returns the subtraction of the other expression from this one.
+     *
+     * @param other the other expression
+     * @return the subtraction
+     * @throws NullPointerException if the other expression is {@code null}
+     */
+    public final XSetExpr<E> subtract(final XSetExpr<E> other) {
+        return intersect(requireNonNull(other).complement());
+    }
+
+    /**
+     * Returns the subtraction of the extended set from this expression.
+     *
+     * @param other the extended set
+     * @return the subtraction
+     * @throws NullPointerException if the other set is {@code null}
+     */
+    public final XSetExpr<E> subtract(final XSet<E> other) {
+        return subtract(of(other));
+    }
+
+    abstract boolean test(E item);
+
+    private static <T> XSetExpr<T> requireNonNull(final XSetExpr<T> other) {
+        return Objects.requireNonNull(other, "other expression must not be null");
+    }
+
+    /**
+     * Creates the simplified intersection (conjunction) or union of the expressions.
+     */
+    private static <T> XSetExpr<T> junction(final boolean conjunction, final XSetExpr<T> expr1, final XSetExpr<T> expr2) {
+        final List<XSetExpr<T>> operands = new ArrayList<>();
+
+        for (final XSetExpr<T> expr : flatten(conjunction, expr1, expr2)) {
+            if (expr instanceof Leaf && ((Leaf<T>) expr).xset.isTrivial()) {
+                // the full set for intersection and empty set for union is neutral, the other one absorbs all:
+                if (((Leaf<T>) expr).xset.isFull() != conjunction) {
+                    return expr;
+                }
+            }
+            else if (expr instanceof Leaf && operands.contains(expr.complement())) {
+                // a & ~a = empty and a | ~a = full:
+                return new Leaf<>(conjunction ? XSet.empty() : XSet.full());
+            }
+            else if (!operands.contains(expr) && !absorbs(operands, expr)) {
+                operands.removeIf(operand -> absorbs(Collections.singletonList(expr), operand));
+                operands.add(expr);
+            }
+        }
+
+        if (operands.isEmpty()) {
+            return new Leaf<>(conjunction ? XSet.full() : XSet.empty());
+        }
+        else {
+            return operands.size() == 1 ? operands.get(0) : new Junction<>(conjunction, operands);
+        }
+    }
+
+    private static <T> List<XSetExpr<T>> flatten(final boolean conjunction, final XSetExpr<T> expr1, final XSetExpr<T> expr2) {
+        final List<XSetExpr<T>> result = new ArrayList<>();
+        addFlattened(conjunction, expr1, result);
+        addFlattened(conjunction, expr2, result);
+        return result;
+    }
+
+    private static <T> void addFlattened(final boolean conjunction, final XSetExpr<T> expr, final List<XSetExpr<T>> result) {
+        if (expr instanceof Junction && ((Junction<T>) expr).conjunction == conjunction) {
+            result.addAll(((Junction<T>) expr).operands);
+        }
+        else {
+            result.add(expr);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the expression is a junction of the opposite kind having some of the operands
+     * as its operand - e.g. {@code a & (a | b)}.
+     */
+    private static <T> boolean absorbs(final List<XSetExpr<T>> operands, final XSetExpr<T> expr) {
+        if (expr instanceof Junction) {
+            for (final XSetExpr<T> operand : ((Junction<T>) expr).operands) {
+                if (operands.contains(operand)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Expression of a single extended set.
+     *
+     * @param <E> the element type
+     */
+    private static final class Leaf<E> extends XSetExpr<E> {
+
+        private final XSet<E> xset;
+
+        Leaf(final XSet<E> xset) {
+            this.xset = xset;
+        }
+
+        @Override
+        boolean test(final E item) {
+            return xset.contains(item);
+        }
+
+        @Override
+        public XSet<E> materialize() {
+            return xset;
+        }
+
+        @Override
+        public XSetExpr<E> complement() {
+            return new Leaf<>(xset.complement());
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            return other instanceof Leaf && xset.equals(((Leaf<?>) other).xset);
+        }
+
+        @Override
+        public int hashCode() {
+            return xset.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return xset.toString();
+        }
+    }
+
+    /**
+     * Intersection (conjunction) or union of at least two expressions.
+     *
+     * @param <E> the element type
+     */
+    private static final class Junction<E> extends XSetExpr<E> {
+
+        private final boolean conjunction;
+
+        private final List<XSetExpr<E>> operands;
+
+        Junction(final boolean conjunction, final List<XSetExpr<E>> operands) {
+            this.conjunction = conjunction;
+            this.operands = operands;
+        }
+
+        @Override
+        boolean test(final E item) {
+            for (final XSetExpr<E> operand : operands) {
+                if (operand.test(item) != conjunction) {
+                    return !conjunction;
+                }
+            }
+            return conjunction;
+        }
+
+        @Override
+        public XSet<E> materialize() {
+            final List<XSet<E>> xsets = new ArrayList<>(operands.size());
+            for (final XSetExpr<E> operand : operands) {
+                xsets.add(operand.materialize());
+            }
+
+            return conjunction ? XSet.intersectAll(xsets) : XSet.unionAll(xsets);
+        }
+
+        @Override
+        public XSetExpr<E> complement() {
+            // De Morgan: ~(a & b) = ~a | ~b and ~(a | b) = ~a & ~b
+            final List<XSetExpr<E>> complements = new ArrayList<>(operands.size());
+            for (final XSetExpr<E> operand : operands) {
+                complements.add(operand.complement());
+            }
+
+            return new Junction<>(!conjunction, complements);
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Junction)) {
+                return false;
+            }
+
+            final Junction<?> that = (Junction<?>) other;
+            return this.conjunction == that.conjunction && this.operands.equals(that.operands);
+        }
+
+        @Override
+        public int hashCode() {
+            return Boolean.hashCode(conjunction) ^ operands.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return operands.stream()
+                .map(Object::toString)
+                .collect(Collectors.joining(conjunction ? " & " : " | ", "(", ")"));
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+
+/**
+ * Pool of canonical extended sets.
+ * <p>
+ * Interning maps equal extended sets to one canonical instance, so that the memory of the duplicates can be reclaimed
+ * and {@link XSet#equals(Object)} of two interned sets is decided by the reference check.
+ * <p>
+ * Two eviction policies are available:
+ * <ul>
+ * <li>{@link #weak()} - the canonical instances are held only weakly, so they are evicted once they are not used</li>
+ * <li>{@link #bounded(int)} - the canonical instances are held strongly, the least recently used ones are evicted</li>
+ * </ul>
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Vaclav Bartacek
+ * @see XSet#intern()
+ */
+public final class XSetInterner {
+
+    /**
+     * The pool used by {@link XSet#intern()}.
+     */
+    static final XSetInterner SHARED = weak();
+
+    private static final int HASH_INITIAL_CAPACITY = 16;
+
+    private static final float HASH_LOAD_FACTOR = 0.75f;
+
+    private final Pool pool;
+
+    private XSetInterner(final Pool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Creates a new interner holding its canonical instances weakly.
+     *
+     * @return the new interner
+     */
+    public static XSetInterner weak() {
+        return new XSetInterner(new WeakPool());
+    }
+
+    /**
+     * Creates a new interner holding at most the given number of canonical instances.
+     *
+     * @param maxSize the maximal number of canonical instances
+     * @return the new interner
+     * @throws IllegalArgumentException if the maximal size is not positive
+     */
+    public static XSetInterner bounded(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+
+        return new XSetInterner(new BoundedPool(maxSize));
+    }
+
+    /**
+     * Returns the canonical instance equal to the given extended set.
+     * <p>
+     * If there is no such instance in the pool yet, then the given set becomes the canonical one.
+     * The empty and full sets are always canonical and they are not added to the pool.
+     *
+     * @param xset the extended set
+     * @param <E> the element type
+     * @return the canonical instance
+     * @throws NullPointerException if the set is {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public <E> XSet<E> intern(final XSet<E> xset) {
+        Objects.requireNonNull(xset, "other XSet must not be null");
+
+        if (xset.isTrivial()) {
+            return xset;
+        }
+
+        synchronized (pool) {
+            return (XSet<E>) pool.intern(xset);
+        }
+    }
+
+    /**
+     * Returns the number of canonical instances in the pool.
+     *
+     * @return the size of the pool
+     */
+    public int size() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+
+    /**
+     * Storage of the canonical instances.
+     */
+    private interface Pool {
+
+        XSet<?> intern(XSet<?> xset);
+
+        int size();
+    }
+
+    /**
+     * Pool with weak keys and weak values.
+     */
+    private static final class WeakPool implements Pool {
+
+        private final Map<XSet<?>, WeakReference<XSet<?>>> map = new WeakHashMap<>();
+
+        @Override
+        public XSet<?> intern(final XSet<?> xset) {
+            final WeakReference<XSet<?>> reference = map.get(xset);
+            final XSet<?> canonical = reference != null ? reference.get() : null;
+
+            if (canonical != null) {
+                return canonical;
+            }
+
+            map.put(xset, new WeakReference<>(xset));
+            return xset;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+    }
+
+    /**
+     * Pool with strong references and LRU eviction.
+     */
+    private static final class BoundedPool implements Pool {
+
+        private final Map<XSet<?>, XSet<?>> map;
+
+        BoundedPool(final int maxSize) {
+            this.map = new LinkedHashMap<XSet<?>, XSet<?>>(HASH_INITIAL_CAPACITY, HASH_LOAD_FACTOR, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<XSet<?>, XSet<?>> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        @Override
+        public XSet<?> intern(final XSet<?> xset) {
+            return map.computeIfAbsent(xset, key -> key);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+    }
+
+}
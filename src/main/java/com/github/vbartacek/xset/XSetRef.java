@@ -0,0 +1,277 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Holder of an immutable extended set updated by small changes of many concurrent writers.
+ * <p>
+ * The readers always see a published immutable {@link XSet} together with its version,
+ * which is increased with each published change.
+ * <p>
+ * The writers do not update the set one by one. They submit their changes into a queue
+ * and the writer which acquires the lock becomes the combiner - it applies all the queued changes as one batch
+ * and publishes the result. The other writers are meanwhile waiting for the lock and most of them
+ * find their changes already published once they get it. So the set is copied once per batch
+ * instead of once per change (and even the batch shares the structure of large sets, see {@link XSet#union(XSet)}).
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Vaclav Bartacek
+ * @param <E> - the type of elements maintained by the held extended set
+ * @see ConcurrentXSet
+ */
+public final class XSetRef<E> {
+
+    private final Queue<Change<E>> changes = new ConcurrentLinkedQueue<>();
+
+    private final ReentrantLock combinerLock = new ReentrantLock();
+
+    private volatile Snapshot<E> snapshot;
+
+    private XSetRef(final XSet<E> xset) {
+        this.snapshot = new Snapshot<>(xset, 0);
+    }
+
+    /**
+     * Creates a new holder of the extended set, its version is {@code 0}.
+     *
+     * @param xset the initial extended set
+     * @param <T> the element type
+     * @return the new holder
+     * @throws NullPointerException if the extended set is {@code null}
+     */
+    public static <T> XSetRef<T> of(final XSet<T> xset) {
+        Objects.requireNonNull(xset, "other XSet must not be null");
+
+        return new XSetRef<>(xset);
+    }
+
+    /**
+     * Returns the currently published extended set.
+     *
+     * @return the extended set
+     */
+    public XSet<E> get() {
+        return snapshot.xset;
+    }
+
+    /**
+     * Returns the version of the currently published extended set.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * Returns the currently published extended set together with its version.
+     *
+     * @return the snapshot
+     */
+    public Snapshot<E> snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Adds the element to the held extended set.
+     *
+     * @param item the element
+     * @return the version in which the element is published
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public long add(final E item) {
+        return submit(new Change<>(Objects.requireNonNull(item, "items must not be null"), Operation.ADD));
+    }
+
+    /**
+     * Removes the element from the held extended set.
+     *
+     * @param item the element
+     * @return the version in which the element is published
+     * @throws NullPointerException if the element is {@code null}
+     */
+    public long remove(final E item) {
+        return submit(new Change<>(Objects.requireNonNull(item, "items must not be null"), Operation.REMOVE));
+    }
+
+    /**
+     * Replaces the held extended set by its complement.
+     *
+     * @return the version in which the complement is published
+     */
+    public long complement() {
+        return submit(new Change<>(null, Operation.COMPLEMENT));
+    }
+
+    private long submit(final Change<E> change) {
+        changes.add(change);
+
+        combinerLock.lock();
+        try {
+            if (!change.applied) {
+                combine();
+            }
+            return change.version;
+        }
+        finally {
+            combinerLock.unlock();
+        }
+    }
+
+    /**
+     * Applies all the queued changes, must be called under the lock.
+     */
+    private void combine() {
+        final Snapshot<E> current = snapshot;
+        final Batch<E> batch = new Batch<>(current.xset);
+        final long version = current.version + 1;
+        final List<Change<E>> applied = new ArrayList<>();
+
+        Change<E> change = changes.poll();
+        while (change != null) {
+            batch.apply(change);
+            applied.add(change);
+            change = changes.poll();
+        }
+
+        // the operations return the same instance if nothing has changed:
+        final XSet<E> result = batch.result();
+        final long resultVersion = result == current.xset ? current.version : version;
+        if (resultVersion != current.version) {
+            snapshot = new Snapshot<>(result, resultVersion);
+        }
+
+        for (final Change<E> appliedChange : applied) {
+            appliedChange.version = resultVersion;
+            appliedChange.applied = true;
+        }
+    }
+
+    /**
+     * Published extended set and its version.
+     *
+     * @param <E> the element type
+     */
+    public static final class Snapshot<E> {
+
+        private final XSet<E> xset;
+
+        private final long version;
+
+        private Snapshot(final XSet<E> xset, final long version) {
+            this.xset = xset;
+            this.version = version;
+        }
+
+        /**
+         * Returns the published extended set.
+         *
+         * @return the extended set
+         */
+        public XSet<E> getXSet() {
+            return xset;
+        }
+
+        /**
+         * Returns the version of the published extended set.
+         *
+         * @return the version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" + version + ": " + xset + '}';
+        }
+    }
+
+    /**
+     * The operations of the changes.
+     */
+    private enum Operation {
+        ADD, REMOVE, COMPLEMENT
+    }
+
+    /**
+     * A change submitted by a writer - its result is guarded by the lock.
+     *
+     * @param <E> the element type
+     */
+    private static final class Change<E> {
+
+        private final E item;
+
+        private final Operation operation;
+
+        private boolean applied;
+
+        private long version;
+
+        Change(final E item, final Operation operation) {
+            this.item = item;
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * The changes of one batch - the last change of an element wins,
+     * so the pending changes are applied at once by one union and one subtraction.
+     *
+     * @param <E> the element type
+     */
+    private static final class Batch<E> {
+
+        private final Map<E, Boolean> pending = new HashMap<>();
+
+        private XSet<E> xset;
+
+        Batch(final XSet<E> xset) {
+            this.xset = xset;
+        }
+
+        void apply(final Change<E> change) {
+            if (change.operation == Operation.COMPLEMENT) {
+                flush();
+                xset = xset.complement();
+            }
+            else {
+                pending.put(change.item, change.operation == Operation.ADD);
+            }
+        }
+
+        XSet<E> result() {
+            flush();
+            return xset;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            final XSet.Builder<E> added = XSet.builder();
+            final XSet.Builder<E> removed = XSet.builder();
+            pending.forEach((item, adding) -> (adding ? added : removed).add(item));
+            pending.clear();
+
+            xset = xset.union(added.build()).subtract(removed.build());
+        }
+    }
+
+}
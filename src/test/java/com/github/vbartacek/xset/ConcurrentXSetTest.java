@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test suited for {@link ConcurrentXSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class ConcurrentXSetTest {
+
+    private static final int RANDOM_STEPS = 1000;
+
+    private static final int RANDOM_DOMAIN = 20;
+
+    /**
+     * Complement, remove and two times more adds than removes.
+     */
+    private static final int OPERATIONS = 4;
+
+    private static final int THREADS = 4;
+
+    private static final int ITEMS_PER_THREAD = 10_000;
+
+    private static final long SEED = 42;
+
+    @Test
+    void testOperations() {
+        final ConcurrentXSet<String> tested = ConcurrentXSet.copyOf(XSet.of("a", "b"));
+        final XSet<String> initial = tested.snapshot();
+
+        assertAll(
+            () -> assertThat("initial", initial, is(XSet.of("a", "b"))),
+            () -> assertThat("contains", tested.contains("a"), is(true)),
+            () -> assertThat("add", tested.add("c"), is(true)),
+            () -> assertThat("add again", tested.add("c"), is(false)),
+            () -> assertThat("remove", tested.remove("a"), is(true)),
+            () -> assertThat("remove again", tested.remove("a"), is(false)),
+            () -> assertThat("snapshot", tested.snapshot(), is(XSet.of("b", "c"))),
+            () -> assertThat("initial snapshot unchanged", initial, is(XSet.of("a", "b")))
+        );
+
+        tested.complement();
+
+        assertAll(
+            () -> assertThat("complementary", tested.isComplementary(), is(true)),
+            () -> assertThat("contains", tested.contains("a"), is(true)),
+            () -> assertThat("not contains", tested.contains("b"), is(false)),
+            () -> assertThat("add", tested.add("b"), is(true)),
+            () -> assertThat("remove", tested.remove("x"), is(true)),
+            () -> assertThat("snapshot", tested.snapshot(), is(XSet.complementOf("c", "x"))),
+            () -> assertThat("toString", tested.toString(), is("Concurrent" + tested.snapshot()))
+        );
+    }
+
+    @Test
+    void testSnapshotReuse() {
+        final ConcurrentXSet<String> tested = ConcurrentXSet.empty();
+        tested.add("a");
+        final XSet<String> snapshot = tested.snapshot();
+
+        assertThat("unchanged", tested.snapshot(), sameInstance(snapshot));
+
+        tested.add("a");
+        assertThat("add without change", tested.snapshot(), sameInstance(snapshot));
+
+        tested.complement();
+        tested.complement();
+        assertThat("double complement", tested.snapshot(), not(sameInstance(snapshot)));
+        assertThat("double complement equals", tested.snapshot(), is(snapshot));
+
+        final XSet<String> empty = ConcurrentXSet.<String>empty().snapshot();
+        assertThat("empty", empty, sameInstance(XSet.empty()));
+
+        // the snapshot is the published state itself, not a copy:
+        assertThat("trie", tested.snapshot().getItems(), instanceOf(HamtItemSet.class));
+    }
+
+    @Test
+    void testRandomOperationsMatchXSet() {
+        final Random random = new Random(SEED);
+        final ConcurrentXSet<Integer> tested = ConcurrentXSet.empty();
+        XSet<Integer> expected = XSet.empty();
+
+        for (int i = 0; i < RANDOM_STEPS; i++) {
+            final Integer item = random.nextInt(RANDOM_DOMAIN);
+            final int operation = random.nextInt(OPERATIONS);
+
+            if (operation == 0) {
+                tested.complement();
+                expected = expected.complement();
+            }
+            else if (operation == 1) {
+                assertThat("remove " + item, tested.remove(item), is(expected.contains(item)));
+                expected = expected.subtract(XSet.of(item));
+            }
+            else {
+                assertThat("add " + item, tested.add(item), is(!expected.contains(item)));
+                expected = expected.union(XSet.of(item));
+            }
+
+            assertThat("contains " + item, tested.contains(item), is(expected.contains(item)));
+            assertThat("snapshot", tested.snapshot(), is(expected));
+        }
+    }
+
+    @Test
+    void testConcurrentModifications() throws Exception {
+        final ConcurrentXSet<Integer> tested = ConcurrentXSet.empty();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t * ITEMS_PER_THREAD;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ITEMS_PER_THREAD; i++) {
+                        tested.add(offset + i);
+                        if (!tested.contains(offset + i)) {
+                            throw new AssertionError("missing " + (offset + i));
+                        }
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                // consistent snapshots while the items are being added:
+                for (int i = 0; i < ITEMS_PER_THREAD; i++) {
+                    tested.snapshot();
+                }
+            }));
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        final List<Integer> all = IntStream.range(0, THREADS * ITEMS_PER_THREAD).boxed().collect(Collectors.toList());
+        assertThat("snapshot", tested.snapshot(), is(XSet.of(all)));
+    }
+
+    @Test
+    void testConcurrentComplements() throws Exception {
+        final ConcurrentXSet<Integer> tested = ConcurrentXSet.copyOf(XSet.of(1));
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    // an even number of complements per thread:
+                    for (int i = 0; i < ITEMS_PER_THREAD * 2; i++) {
+                        tested.complement();
+                        tested.contains(1);
+                    }
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertThat("snapshot", tested.snapshot(), is(XSet.of(1)));
+    }
+
+    @Test
+    void testNulls() {
+        final ConcurrentXSet<String> tested = ConcurrentXSet.empty();
+
+        assertAll(
+            () -> assertThrows(NullPointerException.class, () -> ConcurrentXSet.copyOf(null), "copyOf"),
+            () -> assertThrows(NullPointerException.class, () -> tested.contains(null), "contains"),
+            () -> assertThrows(NullPointerException.class, () -> tested.add(null), "add"),
+            () -> assertThrows(NullPointerException.class, () -> tested.remove(null), "remove")
+        );
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.Character.UnicodeScript;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link EnumItemSet} and its usage by {@link XSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class EnumItemSetTest {
+
+    private static final int RANDOM_CASES = 100;
+
+    @Test
+    void testEnumItemsAreBitMask() {
+        final XSet<DayOfWeek> weekend = XSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+
+        assertAll(
+            () -> assertThat("items", weekend.getItems(), instanceOf(EnumItemSet.class)),
+            () -> assertThat("singleton", XSet.of(DayOfWeek.MONDAY).getItems(), instanceOf(EnumItemSet.class)),
+            () -> assertThat("union", weekend.union(XSet.of(DayOfWeek.MONDAY)).getItems(), instanceOf(EnumItemSet.class)),
+            () -> assertThat("equals", weekend.getItems(), is(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY))),
+            () -> assertThat("hashCode", weekend.getItems().hashCode(), is(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY).hashCode())),
+            () -> assertThat("toString", weekend.toString(), is("XSet{[SATURDAY, SUNDAY]}"))
+        );
+    }
+
+    @Test
+    void testItemsAreImmutable() {
+        final Set<DayOfWeek> items = XSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY).getItems();
+
+        assertAll(
+            () -> assertThrows(UnsupportedOperationException.class, () -> items.add(DayOfWeek.MONDAY), "add"),
+            () -> assertThrows(UnsupportedOperationException.class, () -> items.remove(DayOfWeek.SUNDAY), "remove"),
+            () -> assertThrows(UnsupportedOperationException.class, items::clear, "clear")
+        );
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    void testMixedItemsAreNotBitMask() {
+        final List mixed = new ArrayList(Arrays.asList(DayOfWeek.MONDAY, "Mon"));
+        final XSet<Object> tested = XSet.of((List<Object>) mixed);
+
+        assertAll(
+            () -> assertThat("items", tested.getItems(), not(instanceOf(EnumItemSet.class))),
+            () -> assertThat("equals", tested.getItems(), is(new HashSet<>(mixed)))
+        );
+    }
+
+    @Test
+    void testToEnumSet() {
+        final XSet<DayOfWeek> weekend = XSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+
+        assertAll(
+            () -> assertThat("finite", XSet.toEnumSet(weekend, DayOfWeek.class), is(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY))),
+            () -> assertThat("complement", XSet.toEnumSet(weekend.complement(), DayOfWeek.class),
+                is(EnumSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY))),
+            () -> assertThat("full", XSet.toEnumSet(XSet.full(), DayOfWeek.class), is(EnumSet.allOf(DayOfWeek.class))),
+            () -> assertThrows(NullPointerException.class, () -> XSet.toEnumSet(null, DayOfWeek.class), "null set"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.toEnumSet(weekend, null), "null type")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testOperationsMatchEnumSet(final EnumSet<UnicodeScript> items1, final boolean complementary1,
+            final EnumSet<UnicodeScript> items2, final boolean complementary2) {
+
+        final XSet<UnicodeScript> set1 = complementary1 ? XSet.complementOf(items1) : XSet.of(items1);
+        final XSet<UnicodeScript> set2 = complementary2 ? XSet.complementOf(items2) : XSet.of(items2);
+        final EnumSet<UnicodeScript> all1 = XSet.toEnumSet(set1, UnicodeScript.class);
+        final EnumSet<UnicodeScript> all2 = XSet.toEnumSet(set2, UnicodeScript.class);
+
+        final EnumSet<UnicodeScript> intersection = EnumSet.copyOf(all1);
+        intersection.retainAll(all2);
+        final EnumSet<UnicodeScript> union = EnumSet.copyOf(all1);
+        union.addAll(all2);
+        final EnumSet<UnicodeScript> difference = EnumSet.copyOf(all1);
+        difference.removeAll(all2);
+
+        assertAll(set1 + " " + set2,
+            () -> assertThat("intersect", XSet.toEnumSet(set1.intersect(set2), UnicodeScript.class), is(intersection)),
+            () -> assertThat("union", XSet.toEnumSet(set1.union(set2), UnicodeScript.class), is(union)),
+            () -> assertThat("subtract", XSet.toEnumSet(set1.subtract(set2), UnicodeScript.class), is(difference)),
+            () -> assertThat("containsAll", set1.containsAll(items2), is(all1.containsAll(items2))),
+            () -> assertThat("size", set1.getItems().size(), is(items1.size()))
+        );
+    }
+
+    static Stream<Arguments> randomParameters() {
+        final Random random = new Random(42);
+
+        return IntStream.range(0, RANDOM_CASES)
+            .mapToObj(i -> Arguments.of(
+                randomItems(random), random.nextBoolean(),
+                randomItems(random), random.nextBoolean()));
+    }
+
+    private static EnumSet<UnicodeScript> randomItems(final Random random) {
+        final EnumSet<UnicodeScript> result = EnumSet.noneOf(UnicodeScript.class);
+        // bias towards the first word to get overlaps:
+        final int bound = random.nextBoolean() ? Long.SIZE : UnicodeScript.values().length;
+        for (final UnicodeScript script : UnicodeScript.values()) {
+            if (script.ordinal() < bound && random.nextBoolean()) {
+                result.add(script);
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link HamtItemSet} and its usage by {@link XSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class HamtItemSetTest {
+
+    private static final int RANDOM_CASES = 100;
+
+    private static final int RANDOM_STEPS = 20;
+
+    private static final int CHANGE_SIZE = 10;
+
+    private static final int BASE_SIZE = HamtItemSet.MIN_SIZE * 2;
+
+    /**
+     * Strings of the same hash code, because "Aa" and "BB" have the same hash code.
+     */
+    private static final String[] COLLIDING_PREFIXES = {"AaAa", "AaBB", "BBAa", "BBBB"};
+
+    private static final List<String> BASE_ITEMS = IntStream.range(0, BASE_SIZE)
+        .mapToObj(i -> COLLIDING_PREFIXES[i % COLLIDING_PREFIXES.length] + i / COLLIDING_PREFIXES.length)
+        .collect(Collectors.toList());
+
+    @Test
+    void testDerivedSetsAreTries() {
+        final XSet<String> base = XSet.of(BASE_ITEMS);
+        final XSet<String> plus = base.union(XSet.of("x", "y"));
+        final XSet<String> minus = base.subtract(XSet.of(BASE_ITEMS.get(0), "x"));
+
+        assertAll(
+            () -> assertThat("base", base.getItems(), instanceOf(HashItemSet.class)),
+            () -> assertThat("union", plus.getItems(), instanceOf(HamtItemSet.class)),
+            () -> assertThat("union <-", XSet.of("x", "y").union(base).getItems(), instanceOf(HamtItemSet.class)),
+            () -> assertThat("subtract", minus.getItems(), instanceOf(HamtItemSet.class)),
+            () -> assertThat("union size", plus.getItems().size(), is(BASE_SIZE + 2)),
+            () -> assertThat("subtract size", minus.getItems().size(), is(BASE_SIZE - 1)),
+            () -> assertThat("union unchanged", base.union(XSet.of(BASE_ITEMS.get(1))), sameInstance(base)),
+            () -> assertThat("subtract unchanged", base.subtract(XSet.of("x")), sameInstance(base)),
+            () -> assertThat("back", plus.subtract(XSet.of("x", "y")), is(base)),
+            () -> assertThat("back hashCode", plus.subtract(XSet.of("x", "y")).hashCode(), is(base.hashCode())),
+            () -> assertThat("complement", base.complement().intersect(XSet.complementOf("x")).getItems(), instanceOf(HamtItemSet.class)),
+            () -> assertThat("large change", base.union(XSet.of(BASE_ITEMS.subList(0, BASE_SIZE / 2))).getItems(),
+                instanceOf(HashItemSet.class)),
+            () -> assertThat("sorted base", XSet.mergeableOf(BASE_ITEMS).union(XSet.of("x")).getItems(), instanceOf(HamtItemSet.class))
+        );
+    }
+
+    @Test
+    void testCopyOf() {
+        final List<String> items = new ArrayList<>(BASE_ITEMS);
+        items.addAll(BASE_ITEMS.subList(0, CHANGE_SIZE));
+        final HamtItemSet<String> tested = HamtItemSet.copyOf(items);
+
+        assertAll(
+            () -> assertThat("size", tested.size(), is(BASE_SIZE)),
+            () -> assertThat("equals", tested, is(new HashSet<>(BASE_ITEMS))),
+            () -> assertThat("equals sorted", tested, is(SortedItemSet.copyOf(BASE_ITEMS))),
+            () -> assertThat("hashCode", tested.hashCode(), is(new HashSet<>(BASE_ITEMS).hashCode())),
+            () -> assertThat("iterator", new HashSet<>(tested), is(new HashSet<>(BASE_ITEMS))),
+            () -> assertThat("empty", HamtItemSet.copyOf(new ArrayList<>()).isEmpty(), is(true)),
+            () -> assertThat("empty iterator", HamtItemSet.copyOf(new ArrayList<>()).iterator().hasNext(), is(false))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testDerivationsMatchHashSet(final long seed) {
+        final Random random = new Random(seed);
+        final Set<String> expected = new HashSet<>(BASE_ITEMS);
+        HamtItemSet<String> tested = HamtItemSet.copyOf(BASE_ITEMS);
+
+        for (int step = 0; step < RANDOM_STEPS; step++) {
+            final List<String> change = new ArrayList<>();
+            for (int i = 0; i < CHANGE_SIZE; i++) {
+                change.add(COLLIDING_PREFIXES[random.nextInt(COLLIDING_PREFIXES.length)] + random.nextInt(BASE_SIZE));
+            }
+
+            if (random.nextBoolean()) {
+                expected.addAll(change);
+                tested = tested.plusAll(change);
+            }
+            else {
+                expected.removeAll(change);
+                tested = tested.minusAll(change);
+            }
+        }
+
+        final HamtItemSet<String> result = tested;
+        assertAll(
+            () -> assertThat("size", result.size(), is(expected.size())),
+            () -> assertThat("equals", result, is(expected)),
+            () -> assertThat("hashCode", result.hashCode(), is(expected.hashCode())),
+            () -> assertThat("iterator", new HashSet<>(result), is(expected)),
+            () -> assertThat("contains", result.containsAll(expected), is(true)),
+            () -> assertThat("canonical", result, is(HamtItemSet.copyOf(expected)))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testDiff(final long seed) {
+        final Random random = new Random(seed);
+        final HamtItemSet<String> base = HamtItemSet.copyOf(BASE_ITEMS);
+        HamtItemSet<String> derived = base;
+
+        for (int step = 0; step < RANDOM_STEPS; step++) {
+            final List<String> change = new ArrayList<>();
+            for (int i = 0; i < CHANGE_SIZE; i++) {
+                change.add(COLLIDING_PREFIXES[random.nextInt(COLLIDING_PREFIXES.length)] + random.nextInt(BASE_SIZE * 2));
+            }
+            derived = random.nextBoolean() ? derived.plusAll(change) : derived.minusAll(change);
+        }
+
+        final Set<String> expectedAdded = new HashSet<>(derived);
+        expectedAdded.removeAll(base);
+        final Set<String> expectedRemoved = new HashSet<>(base);
+        expectedRemoved.removeAll(derived);
+
+        final HamtItemSet<String> newer = derived;
+        final Set<String> added = new HashSet<>();
+        final Set<String> removed = new HashSet<>();
+        HamtItemSet.diff(base, newer, added::add, removed::add);
+
+        // the tries not sharing any node:
+        final Set<String> addedToCopy = new HashSet<>();
+        final Set<String> removedFromCopy = new HashSet<>();
+        HamtItemSet.diff(HamtItemSet.copyOf(base), newer, addedToCopy::add, removedFromCopy::add);
+
+        final Set<String> addedToEmpty = new HashSet<>();
+        final Set<String> removedFromEmpty = new HashSet<>();
+        HamtItemSet.diff(HamtItemSet.copyOf(new ArrayList<>()), newer, addedToEmpty::add, removedFromEmpty::add);
+
+        assertAll(
+            () -> assertThat("added", added, is(expectedAdded)),
+            () -> assertThat("removed", removed, is(expectedRemoved)),
+            () -> assertThat("added to copy", addedToCopy, is(expectedAdded)),
+            () -> assertThat("removed from copy", removedFromCopy, is(expectedRemoved)),
+            () -> assertThat("added to empty", addedToEmpty, is(new HashSet<>(newer))),
+            () -> assertThat("removed from empty", removedFromEmpty.isEmpty(), is(true))
+        );
+    }
+
+    @Test
+    void testRemoveAll() {
+        final List<String> items = Arrays.asList(COLLIDING_PREFIXES);
+        final HamtItemSet<String> tested = HamtItemSet.copyOf(BASE_ITEMS).minusAll(BASE_ITEMS).plusAll(items);
+
+        assertAll(
+            () -> assertThat("size", tested.size(), is(items.size())),
+            () -> assertThat("equals", tested, is(new HashSet<>(items))),
+            () -> assertThat("empty", tested.minusAll(items).isEmpty(), is(true)),
+            () -> assertThat("empty iterator", tested.minusAll(items).iterator().hasNext(), is(false))
+        );
+    }
+
+    static Stream<Arguments> randomParameters() {
+        return IntStream.range(0, RANDOM_CASES)
+            .mapToObj(Arguments::of);
+    }
+
+}
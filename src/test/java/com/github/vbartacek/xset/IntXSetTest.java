@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link IntXSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class IntXSetTest {
+
+    private static final int RANDOM_CASES = 200;
+
+    private static final int RANDOM_DOMAIN = 100;
+
+    private static final int SMALL_SIZE = 10;
+
+    private static final int LARGE_SIZE = 500;
+
+    private static final int LARGE_SIZE_ODDS = 4;
+
+    private static final int[] ITEMS = {3, 1, 2, 3, 1};
+
+    private static final int[] DISTINCT_ITEMS = {1, 2, 3};
+
+    private static final int MISSING_ITEM = 4;
+
+    private static final int[] CONVERSION_ITEMS = {-7, 5, Integer.MAX_VALUE};
+
+    @Test
+    void testEmptyAndFull() {
+        assertAll(
+            () -> assertThat("of[0]", IntXSet.of(), CoreMatchers.sameInstance(IntXSet.empty())),
+            () -> assertThat("complementOf[0]", IntXSet.complementOf(), CoreMatchers.sameInstance(IntXSet.full())),
+            () -> assertThat("empty.complement()", IntXSet.empty().complement(), CoreMatchers.sameInstance(IntXSet.full())),
+            () -> assertThat("empty", IntXSet.empty().isEmpty(), is(true)),
+            () -> assertThat("full", IntXSet.full().isFull(), is(true)),
+            () -> assertThat("contains", IntXSet.full().contains(Integer.MIN_VALUE), is(true))
+        );
+    }
+
+    @Test
+    void testCreate() {
+        final IntXSet tested = IntXSet.complementOf(ITEMS);
+
+        assertAll(
+            () -> assertThat("items", tested.getItems(), is(DISTINCT_ITEMS)),
+            () -> assertThat("complementary", tested.isComplementary(), is(true)),
+            () -> assertThat("finite", tested.isFinite(), is(false)),
+            () -> assertThat("trivial", tested.isTrivial(), is(false)),
+            () -> assertThat("contains 2", tested.contains(2), is(false)),
+            () -> assertThat("contains 4", tested.contains(MISSING_ITEM), is(true)),
+            () -> assertThat("equals", tested, is(IntXSet.complementOf(DISTINCT_ITEMS))),
+            () -> assertThat("hashCode", tested.hashCode(), is(IntXSet.complementOf(DISTINCT_ITEMS).hashCode())),
+            () -> assertThat("toString", tested.toString(), is("IntXSet{~[1, 2, 3]}"))
+        );
+    }
+
+    @Test
+    void testNulls() {
+        final IntXSet tested = IntXSet.of(1);
+
+        assertAll(
+            () -> assertThrows(NullPointerException.class, () -> IntXSet.of((int[]) null), "of"),
+            () -> assertThrows(NullPointerException.class, () -> IntXSet.complementOf((int[]) null), "complementOf"),
+            () -> assertThrows(NullPointerException.class, () -> IntXSet.fromXSet(null), "fromXSet"),
+            () -> assertThrows(NullPointerException.class, () -> tested.containsAll((int[]) null), "containsAll"),
+            () -> assertThrows(NullPointerException.class, () -> tested.containsAny((int[]) null), "containsAny"),
+            () -> assertThrows(NullPointerException.class, () -> tested.containsEach((int[]) null), "containsEach"),
+            () -> assertThrows(NullPointerException.class, () -> tested.containsEach(new int[1], null), "containsEach result"),
+            () -> assertThrows(IllegalArgumentException.class, () -> tested.containsEach(new int[1], new boolean[0]), "containsEach short"),
+            () -> assertThrows(NullPointerException.class, () -> tested.intersect(null), "intersect"),
+            () -> assertThrows(NullPointerException.class, () -> tested.union(null), "union"),
+            () -> assertThrows(NullPointerException.class, () -> tested.subtract(null), "subtract")
+        );
+    }
+
+    @Test
+    void testConversion() {
+        final XSet<Integer> xset = XSet.complementOf(Integer.MAX_VALUE, 5, -7);
+        final IntXSet tested = IntXSet.fromXSet(xset);
+
+        assertAll(
+            () -> assertThat("from", tested, is(IntXSet.complementOf(CONVERSION_ITEMS))),
+            () -> assertThat("to", tested.toXSet(), is(xset))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testOperationsMatchXSet(final int[] items1, final boolean complementary1, final int[] items2, final boolean complementary2) {
+        final IntXSet set1 = complementary1 ? IntXSet.complementOf(items1) : IntXSet.of(items1);
+        final IntXSet set2 = complementary2 ? IntXSet.complementOf(items2) : IntXSet.of(items2);
+        final XSet<Integer> xset1 = set1.toXSet();
+        final XSet<Integer> xset2 = set2.toXSet();
+
+        assertAll(set1 + " " + set2,
+            () -> assertThat("intersect", set1.intersect(set2).toXSet(), is(xset1.intersect(xset2))),
+            () -> assertThat("union", set1.union(set2).toXSet(), is(xset1.union(xset2))),
+            () -> assertThat("subtract", set1.subtract(set2).toXSet(), is(xset1.subtract(xset2))),
+            () -> assertThat("containsAll", set1.containsAll(items2), is(xset1.containsAll(xset2.getItems()))),
+            () -> assertThat("containsAny", set1.containsAny(items2), is(xset1.containsAny(xset2.getItems()))),
+            () -> assertThat("containsEach", set1.containsEach(items2), is(xset1.containsEach(boxed(items2)))),
+            () -> assertThat("containsEach array", containsEach(set1, items2), is(xset1.containsEach(boxed(items2))))
+        );
+    }
+
+    static Stream<Arguments> randomParameters() {
+        final Random random = new Random(42);
+
+        return IntStream.range(0, RANDOM_CASES)
+            .mapToObj(i -> Arguments.of(
+                randomItems(random), random.nextBoolean(),
+                randomItems(random), random.nextBoolean()));
+    }
+
+    private static List<Integer> boxed(final int[] items) {
+        return Arrays.stream(items).boxed().collect(Collectors.toList());
+    }
+
+    private static BitSet containsEach(final IntXSet set, final int[] items) {
+        final boolean[] result = new boolean[items.length];
+        set.containsEach(items, result);
+
+        final BitSet bits = new BitSet();
+        for (int i = 0; i < result.length; i++) {
+            bits.set(i, result[i]);
+        }
+        return bits;
+    }
+
+    private static int[] randomItems(final Random random) {
+        final int size = random.nextInt(LARGE_SIZE_ODDS) == 0 ? random.nextInt(LARGE_SIZE) : random.nextInt(SMALL_SIZE);
+        final int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = random.nextInt(RANDOM_DOMAIN) - RANDOM_DOMAIN / 2;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link MappedItemSet} and its usage by {@link XSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class MappedItemSetTest {
+
+    private static final int LARGE_SIZE = 10_000;
+
+    private static final long[] LONGS = {1, -2, Long.MAX_VALUE, Long.MIN_VALUE};
+
+    private static final int[] INTEGERS = {1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+    private static final int FILES = 3;
+
+    /**
+     * The size of the header of an XSet file.
+     */
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Strings of the same hash code, because "Aa" and "BB" have the same hash code.
+     */
+    private static final List<String> COLLIDING_ITEMS = Arrays.asList("AaAa", "AaBB", "BBAa", "BBBB", "žluťoučký");
+
+    @ParameterizedTest
+    @MethodSource("mapParameters")
+    <T> void testWriteAndMap(final XSet<T> xset, final Class<T> type, final T missing, @TempDir final Path directory)
+        throws IOException {
+        final Path path = directory.resolve("test.xset");
+        xset.writeTo(path);
+        final XSet<T> mapped = XSet.map(path, type);
+        final T item = xset.getItems().iterator().next();
+
+        assertAll(xset.toString(),
+            () -> assertThat("mapped", mapped.getItems(), instanceOf(MappedItemSet.class)),
+            () -> assertThat("equals", mapped, is(xset)),
+            () -> assertThat("equals <-", xset, is(mapped)),
+            () -> assertThat("hashCode", mapped.hashCode(), is(xset.hashCode())),
+            () -> assertThat("items", new HashSet<>(mapped.getItems()), is(xset.getItems())),
+            () -> assertThat("contains", mapped.contains(item), is(xset.contains(item))),
+            () -> assertThat("contains missing", mapped.contains(missing), is(xset.contains(missing))),
+            () -> assertThat("union", mapped.union(XSet.of(missing)), is(xset.union(XSet.of(missing)))),
+            () -> assertThat("subtract", mapped.subtract(XSet.of(item)), is(xset.subtract(XSet.of(item)))),
+            () -> assertThat("remapped", XSet.map(path, type), is(mapped))
+        );
+    }
+
+    static Stream<Arguments> mapParameters() {
+        final List<String> strings = IntStream.range(0, LARGE_SIZE).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        strings.addAll(COLLIDING_ITEMS);
+
+        return Stream.of(
+            Arguments.of(LongXSet.of(LONGS).toXSet(), Long.class, 2L),
+            Arguments.of(LongXSet.complementOf(LONGS).toXSet(), Long.class, 2L),
+            Arguments.of(IntXSet.of(INTEGERS).toXSet(), Integer.class, 2),
+            Arguments.of(XSet.of(IntStream.range(-LARGE_SIZE, LARGE_SIZE).boxed().collect(Collectors.toList())), Integer.class, LARGE_SIZE),
+            Arguments.of(XSet.complementOf(COLLIDING_ITEMS), String.class, "AaAaAa"),
+            Arguments.of(XSet.of(strings), String.class, "item-1")
+        );
+    }
+
+    @Test
+    void testEmptyAndFull(@TempDir final Path directory) throws IOException {
+        final Path path = directory.resolve("test.xset");
+        XSet.empty().writeTo(path);
+        final XSet<String> empty = XSet.map(path, String.class);
+        XSet.full().writeTo(path);
+        final XSet<Long> full = XSet.map(path, Long.class);
+
+        assertAll(
+            () -> assertThat("empty", empty, sameInstance(XSet.empty())),
+            () -> assertThat("full", full, sameInstance(XSet.full()))
+        );
+    }
+
+    @Test
+    void testErrors(@TempDir final Path directory) throws IOException {
+        final Path path = directory.resolve("test.xset");
+        final Path invalid = directory.resolve("invalid.xset");
+        final Path truncated = directory.resolve("truncated.xset");
+        XSet.of(1L, 2L).writeTo(path);
+        Files.write(invalid, new byte[Long.BYTES * 2]);
+        final byte[] bytes = Files.readAllBytes(path);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertAll(
+            () -> assertThrows(IOException.class, () -> XSet.map(path, Integer.class), "type"),
+            () -> assertThrows(IOException.class, () -> XSet.map(invalid, Long.class), "invalid"),
+            () -> assertThrows(IOException.class, () -> XSet.map(truncated, Long.class), "truncated"),
+            () -> assertThrows(IOException.class, () -> XSet.map(directory.resolve("missing"), Long.class), "missing"),
+            () -> assertThrows(UnsupportedOperationException.class, () -> XSet.of(1.0, 2.0).writeTo(path), "type"),
+            () -> assertThrows(UnsupportedOperationException.class, () -> XSet.<Object>of(1L, 2).writeTo(path), "mixed"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.of(1L).writeTo(null), "writeTo"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.map(null, Long.class), "map"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.map(path, null), "map type"),
+            () -> assertThat("unchanged", XSet.map(path, Long.class), is(XSet.of(1L, 2L))),
+            () -> assertThat("no temporary files", Files.list(directory).count(), is((long) FILES))
+        );
+    }
+
+    @Test
+    void testPermissions(@TempDir final Path directory) throws IOException {
+        assumeTrue(Files.getFileStore(directory).supportsFileAttributeView(PosixFileAttributeView.class), "POSIX file system");
+
+        final Path path = directory.resolve("test.xset");
+        final Path probe = Files.createFile(directory.resolve("probe"));
+        XSet.of(1L, 2L).writeTo(path);
+        final Set<PosixFilePermission> created = Files.getPosixFilePermissions(path);
+
+        final Set<PosixFilePermission> shared = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(path, shared);
+        XSet.of(0L, 1L, 2L).writeTo(path);
+
+        assertAll(
+            () -> assertThat("umask", created, is(Files.getPosixFilePermissions(probe))),
+            () -> assertThat("kept", Files.getPosixFilePermissions(path), is(shared)),
+            () -> assertThat("rewritten", XSet.map(path, Long.class), is(XSet.of(0L, 1L, 2L)))
+        );
+    }
+
+    @Test
+    void testMappableSize() {
+        final int count = Integer.MAX_VALUE / Long.BYTES;
+
+        assertAll(
+            () -> MappedItemSet.requireMappableSize(Integer.MAX_VALUE - HEADER_SIZE, 1),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> MappedItemSet.requireMappableSize((long) count * Long.BYTES, count), "longs"),
+            () -> assertThrows(IllegalArgumentException.class,
+                () -> MappedItemSet.requireMappableSize(Integer.MAX_VALUE, 1), "header")
+        );
+    }
+
+}
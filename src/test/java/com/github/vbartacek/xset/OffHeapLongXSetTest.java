@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.hamcrest.CoreMatchers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link OffHeapLongXSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class OffHeapLongXSetTest {
+
+    private static final int RANDOM_CASES = 200;
+
+    private static final int RANDOM_DOMAIN = 100;
+
+    private static final int SMALL_SIZE = 10;
+
+    private static final int LARGE_SIZE = 500;
+
+    private static final int LARGE_SIZE_ODDS = 4;
+
+    /**
+     * Tiny segments of 8 items, so that the items are split into many segments.
+     */
+    private static final int SEGMENT_SHIFT = 3;
+
+    private static final long[] ITEMS = {3, 1, 2, 3, 1};
+
+    private static final long[] DISTINCT_ITEMS = {1, 2, 3};
+
+    private static final long MISSING_ITEM = 4;
+
+    private static final long LARGE_SET_SIZE = 1_000_000;
+
+    @Test
+    void testEmptyAndFull() {
+        assertAll(
+            () -> assertThat("empty", OffHeapLongXSet.empty().isEmpty(), is(true)),
+            () -> assertThat("full", OffHeapLongXSet.full().isFull(), is(true)),
+            () -> assertThat("of", OffHeapLongXSet.of(), CoreMatchers.sameInstance(OffHeapLongXSet.empty())),
+            () -> assertThat("complementOf", OffHeapLongXSet.complementOf(), CoreMatchers.sameInstance(OffHeapLongXSet.full())),
+            () -> assertThat("complement", OffHeapLongXSet.empty().complement(), CoreMatchers.sameInstance(OffHeapLongXSet.full()))
+        );
+
+        OffHeapLongXSet.empty().close();
+        assertThat("closed empty", OffHeapLongXSet.empty().contains(1), is(false));
+    }
+
+    @Test
+    void testCreate() {
+        try (OffHeapLongXSet tested = OffHeapLongXSet.of(ITEMS);
+             OffHeapLongXSet sorted = OffHeapLongXSet.ofSorted(LongStream.of(ITEMS).sorted());
+             OffHeapLongXSet complement = OffHeapLongXSet.complementOfSorted(LongStream.of(DISTINCT_ITEMS))) {
+
+            assertAll(
+                () -> assertThat("items", tested.getItemCount(), is((long) DISTINCT_ITEMS.length)),
+                () -> assertThat("contains", tested.contains(2), is(true)),
+                () -> assertThat("not contains", tested.contains(MISSING_ITEM), is(false)),
+                () -> assertThat("sorted", sorted, is(tested)),
+                () -> assertThat("hashCode", sorted.hashCode(), is(LongXSet.of(ITEMS).hashCode())),
+                () -> assertThat("complement", complement.contains(MISSING_ITEM), is(true)),
+                () -> assertThat("toLongXSet", complement.toLongXSet(), is(LongXSet.complementOf(ITEMS))),
+                () -> assertThat("toString", complement.toString(), is("OffHeapLongXSet{~[3 items]}")),
+                () -> assertThrows(IllegalArgumentException.class, () -> OffHeapLongXSet.ofSorted(LongStream.of(2, 1)), "unsorted"),
+                () -> assertThrows(OutOfMemoryError.class, () -> OffHeapLongXSet.ofSorted(LongStream.of(0, 1).peek(item -> {
+                    if (item > 0) {
+                        throw new OutOfMemoryError("Direct buffer memory");
+                    }
+                })), "failed")
+            );
+        }
+    }
+
+    @Test
+    void testClose() {
+        final OffHeapLongXSet tested = OffHeapLongXSet.of(ITEMS);
+        final OffHeapLongXSet complement = tested.complement();
+        final OffHeapLongXSet same = tested.union(OffHeapLongXSet.empty());
+        tested.close();
+        tested.close();
+
+        assertAll(
+            () -> assertThrows(IllegalStateException.class, () -> tested.contains(1), "contains"),
+            () -> assertThrows(IllegalStateException.class, () -> tested.union(same), "union"),
+            () -> assertThrows(IllegalStateException.class, () -> same.union(tested), "union <-"),
+            () -> assertThat("toString", tested.toString(), is("OffHeapLongXSet{[closed]}")),
+            () -> assertThat("shared complement", complement.contains(1), is(false)),
+            () -> assertThat("shared result", same.contains(1), is(true))
+        );
+
+        complement.close();
+        same.close();
+    }
+
+    @Test
+    void testCloseReleasesMemory() {
+        final BufferPoolMXBean directPool = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+            .filter(pool -> "direct".equals(pool.getName()))
+            .findFirst()
+            .orElseThrow(IllegalStateException::new);
+        final long before = directPool.getMemoryUsed();
+
+        final OffHeapLongXSet tested = OffHeapLongXSet.ofSorted(LongStream.range(0, LARGE_SET_SIZE));
+        final long allocated = directPool.getMemoryUsed() - before;
+        tested.close();
+
+        assertAll(
+            () -> assertThat("allocated", allocated >= LARGE_SET_SIZE * Long.BYTES, is(true)),
+            () -> assertThat("released", directPool.getMemoryUsed() - before < allocated, is(true))
+        );
+    }
+
+    @Test
+    void testResultsAreTrimmed() {
+        final long kept = DISTINCT_ITEMS.length;
+        final OffHeapLongs large = OffHeapLongs.copyOf(LongStream.range(0, LARGE_SET_SIZE).toArray(), OffHeapLongs.SEGMENT_SHIFT);
+        final OffHeapLongs shifted = OffHeapLongs.copyOf(LongStream.range(LARGE_SET_SIZE - kept, LARGE_SET_SIZE * 2).toArray(),
+            OffHeapLongs.SEGMENT_SHIFT);
+        final OffHeapLongs head = OffHeapLongs.copyOf(LongStream.range(0, LARGE_SET_SIZE - kept).toArray(), OffHeapLongs.SEGMENT_SHIFT);
+
+        // the results are presized for the operands, but only a few items are left:
+        final OffHeapLongs intersection = OffHeapLongs.intersect(large, shifted);
+        final OffHeapLongs subtraction = OffHeapLongs.minus(large, head);
+        final OffHeapLongs union = OffHeapLongs.union(large, shifted);
+
+        try {
+            assertAll(
+                () -> assertThat("intersection", intersection.size(), is(kept)),
+                () -> assertThat("intersection capacity", intersection.capacity(), is(kept)),
+                () -> assertThat("subtraction", subtraction.size(), is(kept)),
+                () -> assertThat("subtraction capacity", subtraction.capacity(), is(kept)),
+                () -> assertThat("union", union.size(), is(LARGE_SET_SIZE * 2)),
+                () -> assertThat("union capacity", union.capacity() <= union.size() * 2, is(true))
+            );
+        }
+        finally {
+            for (final OffHeapLongs values : Arrays.asList(large, shifted, head, intersection, subtraction, union)) {
+                values.release();
+            }
+        }
+    }
+
+    @Test
+    void testNulls() {
+        try (OffHeapLongXSet tested = OffHeapLongXSet.of(1)) {
+            assertAll(
+                () -> assertThrows(NullPointerException.class, () -> OffHeapLongXSet.of((long[]) null), "of"),
+                () -> assertThrows(NullPointerException.class, () -> OffHeapLongXSet.complementOf((long[]) null), "complementOf"),
+                () -> assertThrows(NullPointerException.class, () -> OffHeapLongXSet.ofSorted(null), "ofSorted"),
+                () -> assertThrows(NullPointerException.class, () -> OffHeapLongXSet.copyOf(null), "copyOf"),
+                () -> assertThrows(NullPointerException.class, () -> tested.containsAll((long[]) null), "containsAll"),
+                () -> assertThrows(NullPointerException.class, () -> tested.containsAny((long[]) null), "containsAny"),
+                () -> assertThrows(NullPointerException.class, () -> tested.containsEach((long[]) null), "containsEach"),
+                () -> assertThrows(NullPointerException.class, () -> tested.intersect(null), "intersect"),
+                () -> assertThrows(NullPointerException.class, () -> tested.union(null), "union"),
+                () -> assertThrows(NullPointerException.class, () -> tested.subtract(null), "subtract")
+            );
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testOperationsMatchLongXSet(final long[] items1, final boolean complementary1, final long[] items2, final boolean complementary2) {
+        final LongXSet xset1 = complementary1 ? LongXSet.complementOf(items1) : LongXSet.of(items1);
+        final LongXSet xset2 = complementary2 ? LongXSet.complementOf(items2) : LongXSet.of(items2);
+
+        try (OffHeapLongXSet set1 = offHeap(xset1);
+             OffHeapLongXSet set2 = offHeap(xset2);
+             OffHeapLongXSet intersection = set1.intersect(set2);
+             OffHeapLongXSet union = set1.union(set2);
+             OffHeapLongXSet difference = set1.subtract(set2);
+             OffHeapLongXSet complement = set1.complement()) {
+
+            assertAll(xset1 + " " + xset2,
+                () -> assertThat("intersect", intersection.toLongXSet(), is(xset1.intersect(xset2))),
+                () -> assertThat("union", union.toLongXSet(), is(xset1.union(xset2))),
+                () -> assertThat("subtract", difference.toLongXSet(), is(xset1.subtract(xset2))),
+                () -> assertThat("complement", complement.toLongXSet(), is(xset1.complement())),
+                () -> assertThat("equals", set1.equals(set2), is(xset1.equals(xset2))),
+                () -> assertThat("containsAll", set1.containsAll(items2), is(xset1.containsAll(items2))),
+                () -> assertThat("containsAny", set1.containsAny(items2), is(xset1.containsAny(items2))),
+                () -> assertThat("containsEach", set1.containsEach(items2), is(xset1.containsEach(items2)))
+            );
+        }
+    }
+
+    private static OffHeapLongXSet offHeap(final LongXSet xset) {
+        return OffHeapLongXSet.ofSorted(Arrays.stream(xset.getItems()), xset.isComplementary(), SEGMENT_SHIFT);
+    }
+
+    static Stream<Arguments> randomParameters() {
+        final Random random = new Random(42);
+
+        return IntStream.range(0, RANDOM_CASES)
+            .mapToObj(i -> Arguments.of(
+                randomItems(random), random.nextBoolean(),
+                randomItems(random), random.nextBoolean()));
+    }
+
+    private static long[] randomItems(final Random random) {
+        final int size = random.nextInt(LARGE_SIZE_ODDS) == 0 ? random.nextInt(LARGE_SIZE) : random.nextInt(SMALL_SIZE);
+        final long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = random.nextInt(RANDOM_DOMAIN) - RANDOM_DOMAIN / 2;
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link RoaringItemSet} and its usage by {@link XSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class RoaringItemSetTest {
+
+    private static final int RANDOM_CASES = 60;
+
+    /**
+     * Domains of random items - the dense ones produce bitmap containers, the sparse ones array containers.
+     */
+    private static final int[] DOMAINS = {8_192, 131_072, 16_777_216};
+
+    private static final int MAX_SIZE = 20_000;
+
+    @Test
+    void testIntegerItemsAreBitmap() {
+        final XSet<Integer> large = XSet.of(range(0, RoaringItemSet.MIN_SIZE));
+        final XSet<Integer> small = XSet.of(-1, 1, RoaringItemSet.MIN_SIZE);
+
+        assertAll(
+            () -> assertThat("large", large.getItems(), instanceOf(RoaringItemSet.class)),
+            () -> assertThat("small", small.getItems(), not(instanceOf(RoaringItemSet.class))),
+            () -> assertThat("union", large.union(small).getItems(), instanceOf(RoaringItemSet.class)),
+            () -> assertThat("subtract", large.subtract(small).getItems(), instanceOf(RoaringItemSet.class)),
+            () -> assertThat("union items", large.union(small).getItems(), is(union(large.getItems(), small.getItems()))),
+            () -> assertThat("intersect", large.intersect(small), is(XSet.of(1))),
+            () -> assertThat("contains", large.contains(RoaringItemSet.MIN_SIZE - 1), is(true)),
+            () -> assertThat("not contains", large.contains(-1), is(false)),
+            () -> assertThat("equals", large.getItems(), is(new HashSet<>(range(0, RoaringItemSet.MIN_SIZE)))),
+            () -> assertThat("hashCode", large.getItems().hashCode(), is(new HashSet<>(range(0, RoaringItemSet.MIN_SIZE)).hashCode()))
+        );
+    }
+
+    @Test
+    void testItemsAreImmutable() {
+        final Set<Integer> items = XSet.of(range(0, RoaringItemSet.MIN_SIZE)).getItems();
+
+        assertAll(
+            () -> assertThrows(UnsupportedOperationException.class, () -> items.add(-1), "add"),
+            () -> assertThrows(UnsupportedOperationException.class, () -> items.remove(1), "remove"),
+            () -> assertThrows(UnsupportedOperationException.class, items::clear, "clear")
+        );
+    }
+
+    @Test
+    void testNonIntegerItems() {
+        final List<Object> items = new ArrayList<>(range(0, RoaringItemSet.MIN_SIZE));
+        items.add("Mon");
+
+        assertAll(
+            () -> assertThat("copyOf", RoaringItemSet.copyOf(items), is((Object) null)),
+            () -> assertThat("xset", XSet.of(items).getItems(), is(new HashSet<>(items)))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testOperationsMatchHashSet(final Set<Integer> items1, final Set<Integer> items2) {
+        final RoaringItemSet set1 = RoaringItemSet.copyOf(items1);
+        final RoaringItemSet set2 = RoaringItemSet.copyOf(items2);
+
+        final Set<Integer> intersection = new HashSet<>(items1);
+        intersection.retainAll(items2);
+        final Set<Integer> difference = new HashSet<>(items1);
+        difference.removeAll(items2);
+
+        assertAll("sizes " + items1.size() + " " + items2.size(),
+            () -> assertThat("copyOf", set1, is(items1)),
+            () -> assertThat("size", set1.size(), is(items1.size())),
+            () -> assertThat("iterator", new HashSet<>(set1), is(items1)),
+            () -> assertThat("intersect", RoaringItemSet.intersect(set1, set2), is(intersection)),
+            () -> assertThat("union", RoaringItemSet.union(set1, set2), is(union(items1, items2))),
+            () -> assertThat("minus", RoaringItemSet.minus(set1, set2), is(difference)),
+            () -> assertThat("self union", RoaringItemSet.union(set1, set1), is(items1)),
+            () -> assertThat("self minus", RoaringItemSet.minus(set1, set1).isEmpty(), is(true))
+        );
+    }
+
+    static Stream<Arguments> randomParameters() {
+        final Random random = new Random(42);
+
+        return IntStream.range(0, RANDOM_CASES)
+            .mapToObj(i -> {
+                final int domain = DOMAINS[random.nextInt(DOMAINS.length)];
+                return Arguments.of(randomItems(random, domain), randomItems(random, domain));
+            });
+    }
+
+    private static Set<Integer> randomItems(final Random random, final int domain) {
+        final int size = random.nextInt(MAX_SIZE);
+        final Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            // include negative items too:
+            result.add(random.nextInt(domain) - domain / 2);
+        }
+        return result;
+    }
+
+    private static Set<Integer> union(final Set<Integer> set1, final Set<Integer> set2) {
+        final Set<Integer> result = new HashSet<>(set1);
+        result.addAll(set2);
+        return result;
+    }
+
+    private static List<Integer> range(final int from, final int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+
+}
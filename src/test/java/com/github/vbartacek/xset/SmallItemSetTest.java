@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link SmallItemSet} and its usage by {@link XSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class SmallItemSetTest {
+
+    private static final int RANDOM_CASES = 200;
+
+    private static final int RANDOM_DOMAIN = 12;
+
+    @Test
+    void testSmallItemsAreArray() {
+        final XSet<String> tested = XSet.of("Mon", "Tue", "Mon", "Wed");
+
+        assertAll(
+            () -> assertThat("items", tested.getItems(), instanceOf(SmallItemSet.class)),
+            () -> assertThat("equals", tested.getItems(), is(new HashSet<>(Arrays.asList("Mon", "Tue", "Wed")))),
+            () -> assertThat("hashCode", tested.getItems().hashCode(), is(new HashSet<>(Arrays.asList("Mon", "Tue", "Wed")).hashCode())),
+            () -> assertThat("contains", tested.contains("Tue"), is(true)),
+            () -> assertThat("toString", tested.toString(), is(XSet.of("Wed", "Tue", "Mon").toString())),
+            () -> assertThat("not contains", tested.contains("Thu"), is(false)),
+            () -> assertThat("duplicates", XSet.of("Mon", "Mon").getItems(), not(instanceOf(SmallItemSet.class))),
+            () -> assertThat("large", XSet.of("1", "2", "3", "4", "5", "6", "7", "8", "9").getItems(), not(instanceOf(SmallItemSet.class))),
+            () -> assertThat("intersect", XSet.of("1", "2", "3", "4", "5", "6", "7", "8", "9").intersect(XSet.of("1", "2", "Mon")).getItems(),
+                instanceOf(SmallItemSet.class))
+        );
+    }
+
+    @Test
+    void testCollidingHashCodes() {
+        // "Aa" and "BB" have the same hash code
+        final XSet<String> tested = XSet.of("Aa", "BB");
+
+        assertAll(
+            () -> assertThat("size", tested.getItems().size(), is(2)),
+            () -> assertThat("contains Aa", tested.contains("Aa"), is(true)),
+            () -> assertThat("contains BB", tested.contains("BB"), is(true)),
+            () -> assertThat("not equals", tested, not(XSet.of("Aa", "CC")))
+        );
+    }
+
+    @Test
+    void testItemsAreImmutable() {
+        final Set<String> items = XSet.of("Sat", "Sun").getItems();
+
+        assertAll(
+            () -> assertThrows(UnsupportedOperationException.class, () -> items.add("Mon"), "add"),
+            () -> assertThrows(UnsupportedOperationException.class, () -> items.remove("Sun"), "remove"),
+            () -> assertThrows(UnsupportedOperationException.class, items::clear, "clear")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testOperationsMatchHashSet(final Set<String> items1, final Set<String> items2) {
+        final XSet<String> set1 = XSet.of(items1);
+        final XSet<String> set2 = XSet.of(items2);
+
+        final Set<String> intersection = new HashSet<>(items1);
+        intersection.retainAll(items2);
+        final Set<String> union = new HashSet<>(items1);
+        union.addAll(items2);
+        final Set<String> difference = new HashSet<>(items1);
+        difference.removeAll(items2);
+
+        assertAll(set1 + " " + set2,
+            () -> assertThat("intersect", set1.intersect(set2).getItems(), is(intersection)),
+            () -> assertThat("union", set1.union(set2).getItems(), is(union)),
+            () -> assertThat("subtract", set1.subtract(set2).getItems(), is(difference)),
+            () -> assertThat("containsAll", set1.containsAll(items2), is(items1.containsAll(items2))),
+            () -> assertThat("equals", set1.equals(set2), is(items1.equals(items2)))
+        );
+    }
+
+    static Stream<Arguments> randomParameters() {
+        final Random random = new Random(42);
+
+        return IntStream.range(0, RANDOM_CASES)
+            .mapToObj(i -> Arguments.of(randomItems(random), randomItems(random)));
+    }
+
+    private static Set<String> randomItems(final Random random) {
+        final Set<String> result = new HashSet<>();
+        final int size = random.nextInt(SmallItemSet.MAX_SIZE + 2);
+        for (int i = 0; i < size; i++) {
+            result.add(Integer.toString(random.nextInt(RANDOM_DOMAIN)));
+        }
+        return result;
+    }
+
+}
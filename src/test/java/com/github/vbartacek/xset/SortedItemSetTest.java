@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link SortedItemSet} and its usage by {@link XSet}.
+ *
+ * @author Vaclav Bartacek
+ */
+class SortedItemSetTest {
+
+    private static final int RANDOM_CASES = 200;
+
+    private static final int RANDOM_DOMAIN = 250;
+
+    private static final int SMALL_SIZE = 20;
+
+    private static final int LARGE_SIZE = 600;
+
+    private static final int PARALLELISM = 4;
+
+    /**
+     * Strings of the same hash code, because "Aa" and "BB" have the same hash code.
+     */
+    private static final String[] COLLIDING_PREFIXES = {"AaAa", "AaBB", "BBAa", "BBBB"};
+
+    private static final List<String> ITEMS = IntStream.range(0, SMALL_SIZE)
+        .mapToObj(i -> "item" + i)
+        .collect(Collectors.toList());
+
+    @Test
+    void testComparableItemsAreSorted() {
+        final List<String> reversed = new ArrayList<>(ITEMS);
+        Collections.reverse(reversed);
+        final XSet<String> tested = XSet.mergeableOf(reversed);
+
+        assertAll(
+            () -> assertThat("items", tested.getItems(), instanceOf(SortedItemSet.class)),
+            () -> assertThat("equals", tested.getItems(), is(new HashSet<>(ITEMS))),
+            () -> assertThat("hashCode", tested.getItems().hashCode(), is(new HashSet<>(ITEMS).hashCode())),
+            () -> assertThat("toString", tested.toString(), is(XSet.mergeableOf(ITEMS).toString())),
+            () -> assertThat("contains", tested.contains("item7"), is(true)),
+            () -> assertThat("not contains", tested.contains("item"), is(false)),
+            () -> assertThat("subtract", tested.subtract(XSet.of("item1")).getItems(), instanceOf(SortedItemSet.class)),
+            () -> assertThat("small", tested.intersect(XSet.of("item1", "item2", "x")).getItems(), instanceOf(SmallItemSet.class))
+        );
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    void testMixedItemsAreSorted() {
+        final List mixed = new ArrayList(ITEMS);
+        mixed.add(1L);
+        final XSet<Object> tested = XSet.mergeableOf((List<Object>) mixed);
+
+        assertAll(
+            () -> assertThat("items", tested.getItems(), instanceOf(SortedItemSet.class)),
+            () -> assertThat("equals", tested.getItems(), is(new HashSet<>(mixed))),
+            () -> assertThat("contains", tested.contains(1L), is(true)),
+            () -> assertThat("not contains", tested.contains(1), is(false))
+        );
+    }
+
+    @Test
+    void testCollidingHashCodes() {
+        final List<String> colliding = Arrays.asList(COLLIDING_PREFIXES);
+        final List<String> reversed = new ArrayList<>(colliding);
+        Collections.reverse(reversed);
+        final XSet<String> tested = XSet.mergeableOf(ITEMS).union(XSet.of(colliding));
+
+        assertAll(
+            () -> assertThat("items", tested.getItems(), instanceOf(SortedItemSet.class)),
+            () -> assertThat("equals", tested, is(XSet.of(ITEMS).union(XSet.of(reversed)))),
+            () -> assertThat("hashCode", tested.hashCode(), is(XSet.of(ITEMS).union(XSet.of(reversed)).hashCode())),
+            () -> assertThat("contains", tested.containsAll(colliding), is(true)),
+            () -> assertThat("not contains", tested.contains("AaAb"), is(false)),
+            () -> assertThat("subtract", tested.subtract(XSet.of("BBAa")).contains("BBAa"), is(false)),
+            () -> assertThat("subtract rest", tested.subtract(XSet.of("BBAa")).containsAll(Arrays.asList("AaAa", "AaBB", "BBBB")), is(true))
+        );
+    }
+
+    @Test
+    void testLongCollidingRuns() {
+        // all the combinations of the colliding prefixes have the same hash code:
+        final List<String> colliding = new ArrayList<>();
+        for (final String first : COLLIDING_PREFIXES) {
+            for (final String second : COLLIDING_PREFIXES) {
+                for (final String third : COLLIDING_PREFIXES) {
+                    colliding.add(first + second + third);
+                }
+            }
+        }
+        final List<String> duplicated = new ArrayList<>(colliding);
+        duplicated.addAll(colliding);
+        Collections.shuffle(duplicated, new Random(colliding.size()));
+
+        final XSet<String> tested = XSet.mergeableOf(duplicated);
+
+        assertAll(
+            () -> assertThat("items", tested.getItems(), instanceOf(SortedItemSet.class)),
+            () -> assertThat("size", tested.getItems().size(), is(colliding.size())),
+            () -> assertThat("equals", tested.getItems(), is(new HashSet<>(colliding))),
+            () -> assertThat("contains", tested.containsAll(colliding), is(true))
+        );
+    }
+
+    @Test
+    void testDefaultStore() {
+        assertAll(
+            () -> assertThat("of", XSet.of(ITEMS).getItems(), instanceOf(HashItemSet.class)),
+            () -> assertThat("union", XSet.of(ITEMS).union(XSet.of("x")).getItems(), instanceOf(HashItemSet.class)),
+            () -> assertThat("mergeable union", XSet.mergeableOf(ITEMS).union(XSet.of("x")).getItems(), instanceOf(SortedItemSet.class)),
+            () -> assertThat("mergeable small", XSet.mergeableOf(ITEMS.subList(0, 2)).getItems(), instanceOf(SmallItemSet.class)),
+            () -> assertThat("mergeable empty", XSet.mergeableOf(Collections.emptyList()), sameInstance(XSet.empty())),
+            () -> assertThrows(NullPointerException.class, () -> XSet.mergeableOf(null), "null collection"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.mergeableOf(Arrays.asList("a", null)), "null item")
+        );
+    }
+
+    @Test
+    void testMixedStores() {
+        // a half of the small mergeable items is in the large default set:
+        final List<String> largeItems = IntStream.range(SMALL_SIZE / 2, LARGE_SIZE)
+            .mapToObj(i -> "item" + i)
+            .collect(Collectors.toList());
+        final XSet<String> large = XSet.of(largeItems);
+        final XSet<String> small = XSet.mergeableOf(ITEMS);
+        final Set<String> union = new HashSet<>(ITEMS);
+        union.addAll(largeItems);
+
+        assertAll(
+            () -> assertThat("union", small.union(large).getItems(), instanceOf(HashItemSet.class)),
+            () -> assertThat("union <-", large.union(small).getItems(), instanceOf(HashItemSet.class)),
+            () -> assertThat("union items", small.union(large).getItems(), is(union)),
+            () -> assertThat("subtract", small.subtract(large).getItems(), instanceOf(HashItemSet.class)),
+            () -> assertThat("subtract items", small.subtract(large).getItems(), is(new HashSet<>(ITEMS.subList(0, SMALL_SIZE / 2)))),
+            () -> assertThat("large mergeable subtract", XSet.mergeableOf(largeItems).subtract(XSet.of(ITEMS)).getItems(),
+                instanceOf(SortedItemSet.class)),
+            () -> assertThat("large mergeable union", XSet.mergeableOf(largeItems).union(XSet.of(ITEMS)).getItems(),
+                instanceOf(SortedItemSet.class))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testOperationsMatchHashSet(final Set<String> items1, final Set<String> items2) {
+        final XSet<String> set1 = XSet.mergeableOf(items1);
+        final XSet<String> set2 = XSet.mergeableOf(items2);
+
+        final Set<String> intersection = new HashSet<>(items1);
+        intersection.retainAll(items2);
+        final Set<String> union = new HashSet<>(items1);
+        union.addAll(items2);
+        final Set<String> difference = new HashSet<>(items1);
+        difference.removeAll(items2);
+
+        assertAll(set1.getItems().size() + " " + set2.getItems().size(),
+            () -> assertThat("intersect", set1.intersect(set2).getItems(), is(intersection)),
+            () -> assertThat("union", set1.union(set2).getItems(), is(union)),
+            () -> assertThat("subtract", set1.subtract(set2).getItems(), is(difference)),
+            () -> assertThat("subtract <-", set2.subtract(set1).getItems().size(), is(items2.size() - intersection.size())),
+            () -> assertThat("containsAll", set1.containsAll(items2), is(items1.containsAll(items2))),
+            () -> assertThat("equals", set1.equals(set2), is(items1.equals(items2)))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("parallelParameters")
+    void testParallelOperationsMatchHashSet(final int size1, final int size2) throws Exception {
+        final Random random = new Random(size1 + size2);
+        final Set<String> items1 = randomItems(random, size1, size1 + size2);
+        final Set<String> items2 = randomItems(random, size2, size1 + size2);
+        final XSet<String> set1 = XSet.mergeableOf(items1);
+        final XSet<String> set2 = XSet.mergeableOf(items2);
+
+        final Set<String> intersection = new HashSet<>(items1);
+        intersection.retainAll(items2);
+        final Set<String> union = new HashSet<>(items1);
+        union.addAll(items2);
+        final Set<String> difference = new HashSet<>(items1);
+        difference.removeAll(items2);
+
+        final ForkJoinPool pool = new ForkJoinPool(PARALLELISM);
+        final ForkJoinPool sequential = new ForkJoinPool(1);
+        try {
+            assertAll(size1 + " " + size2,
+                () -> assertThat("intersect", set1.parallel(pool).intersect(set2).getItems(), is(intersection)),
+                () -> assertThat("union", set1.parallel(pool).union(set2).getItems(), is(union)),
+                () -> assertThat("subtract", set1.parallel(pool).subtract(set2).getItems(), is(difference)),
+                () -> assertThat("subtract <-", set2.parallel(pool).subtract(set1).getItems().size(),
+                    is(items2.size() - intersection.size())),
+                () -> assertThat("in pool", pool.submit(() -> set1.union(set2)).get().getItems(), is(union)),
+                () -> assertThat("common pool", set1.union(set2).getItems(), is(union)),
+                () -> assertThat("sequential", set1.parallel(sequential).union(set2).getItems(), is(union)),
+                () -> assertThat("from another pool", sequential.submit(() -> set1.parallel(pool).union(set2)).get().getItems(),
+                    is(union)),
+                () -> assertThat("hash store", XSet.of(items1).parallel(pool).union(XSet.of(items2)).getItems(), is(union)),
+                () -> assertThrows(NullPointerException.class, () -> set1.parallel(null), "pool"),
+                () -> assertThrows(NullPointerException.class, () -> set1.parallel(pool).union(null), "other")
+            );
+        }
+        finally {
+            pool.shutdown();
+            sequential.shutdown();
+        }
+    }
+
+    static Stream<Arguments> parallelParameters() {
+        // large enough even after removing the duplicities:
+        final int large = SortedItemSet.PARALLEL_MIN_SIZE * 2;
+        final int small = large / SMALL_SIZE / SMALL_SIZE;
+
+        return Stream.of(
+            Arguments.of(large, large),
+            Arguments.of(large, small),
+            Arguments.of(small, large)
+        );
+    }
+
+    static Stream<Arguments> randomParameters() {
+        final Random random = new Random(42);
+
+        return IntStream.range(0, RANDOM_CASES)
+            .mapToObj(i -> Arguments.of(randomItems(random), randomItems(random)));
+    }
+
+    private static Set<String> randomItems(final Random random) {
+        return randomItems(random, random.nextBoolean() ? random.nextInt(SMALL_SIZE) : random.nextInt(LARGE_SIZE), RANDOM_DOMAIN);
+    }
+
+    private static Set<String> randomItems(final Random random, final int size, final int domain) {
+        // the items with the same suffix have the same hash code:
+        final String[] result = new String[size];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = COLLIDING_PREFIXES[random.nextInt(COLLIDING_PREFIXES.length)] + random.nextInt(domain);
+        }
+        return new HashSet<>(Arrays.asList(result));
+    }
+
+}
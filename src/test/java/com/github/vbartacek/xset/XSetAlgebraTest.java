@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test suited for {@link XSetAlgebra}.
+ *
+ * @author Vaclav Bartacek
+ */
+class XSetAlgebraTest {
+
+    private final XSet<String> weekend = XSet.of("Sat", "Sun");
+
+    private final XSet<String> notMonday = XSet.complementOf("Mon");
+
+    @Test
+    void testResults() {
+        final XSetAlgebra algebra = XSetAlgebra.cached(2);
+
+        assertAll(
+            () -> assertThat("intersect", algebra.intersect(weekend, notMonday), is(weekend.intersect(notMonday))),
+            () -> assertThat("union", algebra.union(weekend, notMonday), is(weekend.union(notMonday))),
+            () -> assertThat("subtract", algebra.subtract(weekend, notMonday), is(weekend.subtract(notMonday))),
+            () -> assertThat("subtract <-", algebra.subtract(notMonday, weekend), is(notMonday.subtract(weekend))),
+            () -> assertThat("size", algebra.size(), is(2))
+        );
+    }
+
+    @Test
+    void testHitsAndMisses() {
+        final XSetAlgebra algebra = XSetAlgebra.cached(2);
+
+        final XSet<String> first = algebra.union(weekend, notMonday);
+        final XSet<String> second = algebra.union(weekend, notMonday);
+        final XSet<String> swapped = algebra.union(notMonday, weekend);
+        algebra.union(weekend, XSet.of("Sat", "Sun"));
+        algebra.union(weekend, XSet.empty());
+
+        assertAll(
+            () -> assertThat("cached", second, sameInstance(first)),
+            () -> assertThat("commutative", swapped, sameInstance(first)),
+            () -> assertThat("hits", algebra.hitCount(), is(2L)),
+            () -> assertThat("misses", algebra.missCount(), is(2L))
+        );
+    }
+
+    @Test
+    void testEviction() {
+        final XSetAlgebra algebra = XSetAlgebra.cached(2);
+        final XSet<String> weekday = XSet.of("Mon", "Tue");
+
+        final XSet<String> recent = algebra.union(weekend, notMonday);
+        algebra.intersect(weekend, notMonday);
+        algebra.union(weekend, notMonday);
+        algebra.union(weekday, weekend);
+
+        assertThat("size", algebra.size(), is(2));
+        assertThat("recently used", algebra.union(weekend, notMonday), sameInstance(recent));
+
+        final long misses = algebra.missCount();
+        algebra.intersect(weekend, notMonday);
+
+        assertThat("least recently used evicted", algebra.missCount() - misses, is(1L));
+    }
+
+    @Test
+    void testClear() {
+        final XSetAlgebra algebra = XSetAlgebra.cached(2);
+        algebra.intersect(weekend, notMonday);
+        algebra.clear();
+
+        assertAll(
+            () -> assertThat("size", algebra.size(), is(0)),
+            () -> assertThat("misses", algebra.missCount(), is(1L))
+        );
+    }
+
+    @Test
+    void testInvalidArguments() {
+        final XSetAlgebra algebra = XSetAlgebra.cached(1);
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> XSetAlgebra.cached(0), "cached(0)"),
+            () -> assertThrows(NullPointerException.class, () -> algebra.intersect(weekend, null), "intersect"),
+            () -> assertThrows(NullPointerException.class, () -> algebra.union(null, weekend), "union"),
+            () -> assertThrows(NullPointerException.class, () -> algebra.subtract(weekend, null), "subtract")
+        );
+    }
+
+}
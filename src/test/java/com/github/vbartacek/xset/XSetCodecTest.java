@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link XSetCodec}.
+ *
+ * @author Vaclav Bartacek
+ */
+class XSetCodecTest {
+
+    private static final int LARGE_SIZE = 10_000;
+
+    private static final long PROBE_DOMAIN = 50_000;
+
+    private static final long SEED = 42;
+
+    private static final long[] LONGS = {1, -2, Long.MAX_VALUE, Long.MIN_VALUE, 0};
+
+    private static final int[] INTEGERS = {1, -2, Integer.MAX_VALUE, Integer.MIN_VALUE, 0};
+
+    private static final List<String> STRINGS = Arrays.asList("a", "", "žluťoučký", "AaAa", "BBBB");
+
+    @ParameterizedTest
+    @MethodSource("codecParameters")
+    <T> void testRoundTrip(final XSetCodec<T> codec, final XSet<T> xset) throws IOException {
+        final byte[] bytes = codec.toByteArray(xset);
+
+        final ByteBuffer buffer = ByteBuffer.allocate(bytes.length * 2);
+        codec.encode(xset, buffer);
+        codec.encode(xset.complement(), buffer);
+        buffer.flip();
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.encode(xset, output);
+        codec.encode(xset.complement(), output);
+        final ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+
+        assertAll(xset.toString(),
+            () -> assertThat("bytes", codec.fromByteArray(bytes), is(xset)),
+            () -> assertThat("buffer", codec.decode(buffer), is(xset)),
+            () -> assertThat("buffer 2", codec.decode(buffer), is(xset.complement())),
+            () -> assertThat("buffer consumed", buffer.hasRemaining(), is(false)),
+            () -> assertThat("stream", codec.decode(input), is(xset)),
+            () -> assertThat("stream 2", codec.decode(input), is(xset.complement())),
+            () -> assertThat("stream consumed", input.available(), is(0)),
+            () -> assertThat("stream bytes", Arrays.copyOf(output.toByteArray(), bytes.length), is(bytes))
+        );
+    }
+
+    static Stream<Arguments> codecParameters() {
+        final List<String> strings = IntStream.range(0, LARGE_SIZE).mapToObj(i -> "item" + i).collect(Collectors.toList());
+
+        return Stream.of(
+            Arguments.of(XSetCodec.ofLongs(), XSet.empty()),
+            Arguments.of(XSetCodec.ofLongs(), LongXSet.of(LONGS).toXSet()),
+            Arguments.of(XSetCodec.ofLongs(), LongXSet.complementOf(LONGS).toXSet()),
+            Arguments.of(XSetCodec.ofLongs(), XSet.of(LongStream.range(0, LARGE_SIZE).map(i -> i * i).boxed().collect(Collectors.toList()))),
+            Arguments.of(XSetCodec.ofIntegers(), XSet.full()),
+            Arguments.of(XSetCodec.ofIntegers(), IntXSet.of(INTEGERS).toXSet()),
+            Arguments.of(XSetCodec.ofIntegers(), XSet.of(IntStream.range(-LARGE_SIZE, LARGE_SIZE).boxed().collect(Collectors.toList()))),
+            Arguments.of(XSetCodec.ofStrings(), XSet.of("a")),
+            Arguments.of(XSetCodec.ofStrings(), XSet.complementOf(STRINGS)),
+            Arguments.of(XSetCodec.ofStrings(), XSet.of(strings))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("codecParameters")
+    <T> void testView(final XSetCodec<T> codec, final XSet<T> xset) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(codec.toByteArray(xset));
+        final XSet<T> view = codec.view(buffer);
+        final XSet<T> probed = codec.view(buffer);
+        final List<T> items = new ArrayList<>(xset.getItems());
+        Collections.shuffle(items, new Random(SEED));
+
+        assertAll(xset.toString(),
+            () -> assertThat("equals", view, is(xset)),
+            () -> assertThat("equals <-", xset, is(view)),
+            () -> assertThat("hashCode", view.hashCode(), is(xset.hashCode())),
+            () -> assertThat("contains", items.stream().allMatch(probed::contains), is(items.isEmpty() || !xset.isComplementary())),
+            () -> assertThat("intersect", items.isEmpty() || view.intersect(XSet.of(items.get(0))).equals(xset.intersect(XSet.of(items.get(0)))),
+                is(true)),
+            () -> assertThat("position", buffer.position(), is(0)),
+            () -> assertThat("lazy", xset.getItems().isEmpty() || view.getItems() instanceof EncodedItemSet, is(true))
+        );
+    }
+
+    @Test
+    void testViewProbes() throws IOException {
+        final Random random = new Random(SEED);
+        final long[] values = random.longs(LARGE_SIZE, -PROBE_DOMAIN, PROBE_DOMAIN).toArray();
+        final LongXSet xset = LongXSet.of(values);
+        final ByteBuffer buffer = ByteBuffer.wrap(XSetCodec.ofLongs().toByteArray(xset.toXSet()));
+        final XSet<Long> view = XSetCodec.ofLongs().view(buffer);
+
+        final List<Long> probes = LongStream.rangeClosed(-PROBE_DOMAIN - 1, PROBE_DOMAIN + 1).boxed().collect(Collectors.toList());
+        Collections.shuffle(probes, random);
+
+        for (final Long probe : probes.subList(0, LARGE_SIZE)) {
+            assertThat("cold " + probe, XSetCodec.ofLongs().view(buffer).contains(probe), is(xset.contains(probe)));
+        }
+        for (final Long probe : probes) {
+            assertThat("warm " + probe, view.contains(probe), is(xset.contains(probe)));
+        }
+    }
+
+    @Test
+    void testViewErrors() {
+        final byte[] longs = XSetCodec.ofLongs().toByteArray(LongXSet.of(LONGS).toXSet());
+        final byte[] truncated = Arrays.copyOf(longs, longs.length - 1);
+
+        final byte[] descending = wrapped(XSetCodec.ofLongs(), XSet.of(0L, Long.MAX_VALUE));
+        final byte[] largeInteger = wrapped(XSetCodec.ofIntegers(), XSet.of(0, Integer.MAX_VALUE));
+
+        assertAll(
+            () -> assertThrows(IOException.class, () -> XSetCodec.ofIntegers().view(ByteBuffer.wrap(longs)), "type"),
+            () -> assertThrows(UncheckedIOException.class, () -> XSetCodec.ofLongs().view(ByteBuffer.wrap(descending)).contains(Long.MAX_VALUE),
+                "descending"),
+            () -> assertThrows(UncheckedIOException.class,
+                () -> XSetCodec.ofIntegers().view(ByteBuffer.wrap(largeInteger)).contains(Integer.MAX_VALUE), "int"),
+            () -> assertThrows(EOFException.class, () -> XSetCodec.ofLongs().view(ByteBuffer.wrap(longs, 0, 1)), "no count"),
+            () -> assertThrows(IOException.class, () -> XSetCodec.ofLongs().view(ByteBuffer.wrap(longs, 0, 2)), "count"),
+            () -> assertThrows(UncheckedIOException.class, () -> XSetCodec.ofLongs().view(ByteBuffer.wrap(truncated)).contains(Long.MAX_VALUE),
+                "truncated"),
+            () -> assertThrows(NullPointerException.class, () -> XSetCodec.ofLongs().view(null), "view")
+        );
+    }
+
+    @Test
+    void testCompactness() {
+        final XSet<Long> consecutive = XSet.of(LongStream.range(0, LARGE_SIZE).boxed().collect(Collectors.toList()));
+        final byte[] bytes = XSetCodec.ofLongs().toByteArray(consecutive);
+
+        assertAll(
+            () -> assertThat("empty", XSetCodec.ofLongs().toByteArray(XSet.empty()), is(new byte[] {CompactXSetCodec.LONG_ITEMS, 0})),
+            () -> assertThat("full", XSetCodec.ofStrings().toByteArray(XSet.full()),
+                is(new byte[] {CompactXSetCodec.STRING_ITEMS | CompactXSetCodec.COMPLEMENTARY_FLAG, 0})),
+            () -> assertThat("one byte per delta", bytes.length < LARGE_SIZE + Long.BYTES, is(true)),
+            () -> assertThat("empty decoded", XSetCodec.ofLongs().fromByteArray(new byte[] {CompactXSetCodec.LONG_ITEMS, 0}),
+                sameInstance(XSet.empty()))
+        );
+    }
+
+    @Test
+    void testDelta() throws IOException {
+        final XSet<Long> older = XSet.of(LongStream.range(0, LARGE_SIZE).boxed().collect(Collectors.toList()));
+        final XSet<Long> newer = older.union(XSet.of((long) LARGE_SIZE)).subtract(XSet.of(0L)).complement();
+        final XSetDelta<Long> delta = older.diff(newer);
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        XSetCodec.ofLongs().encodeDelta(delta, output);
+        XSetCodec.ofLongs().encodeDelta(XSetDelta.empty(), output);
+        final byte[] bytes = output.toByteArray();
+        final ByteArrayInputStream input = new ByteArrayInputStream(bytes);
+        final byte[] fullRemoved = {
+            CompactXSetCodec.LONG_ITEMS, 0, CompactXSetCodec.LONG_ITEMS | CompactXSetCodec.COMPLEMENTARY_FLAG, 0,
+        };
+
+        assertAll(
+            () -> assertThat("delta", XSetCodec.ofLongs().decodeDelta(input), is(delta)),
+            () -> assertThat("empty", XSetCodec.ofLongs().decodeDelta(input), sameInstance(XSetDelta.empty())),
+            () -> assertThat("consumed", input.available(), is(0)),
+            () -> assertThat("compact", bytes.length < Long.BYTES * 2, is(true)),
+            () -> assertThat("apply", older.apply(XSetCodec.ofLongs().decodeDelta(new ByteArrayInputStream(bytes))), is(newer)),
+            () -> assertThrows(IOException.class, () -> XSetCodec.ofLongs().decodeDelta(new ByteArrayInputStream(fullRemoved)), "removed"),
+            () -> assertThrows(NullPointerException.class, () -> XSetCodec.ofLongs().encodeDelta(null, output), "encodeDelta"),
+            () -> assertThrows(NullPointerException.class, () -> XSetCodec.ofLongs().decodeDelta(null), "decodeDelta")
+        );
+    }
+
+    @Test
+    void testErrors() {
+        final byte[] longs = XSetCodec.ofLongs().toByteArray(LongXSet.of(LONGS).toXSet());
+        final byte[] largeInteger = XSetCodec.ofLongs().toByteArray(XSet.of(Long.MAX_VALUE));
+        largeInteger[0] = CompactXSetCodec.INTEGER_ITEMS;
+        final byte[] malformed = new byte[Long.BYTES * 2];
+        Arrays.fill(malformed, (byte) -1);
+        malformed[0] = CompactXSetCodec.LONG_ITEMS;
+        final byte[] descending = wrapped(XSetCodec.ofLongs(), XSet.of(0L, Long.MAX_VALUE));
+        final byte[] wrappedInteger = wrapped(XSetCodec.ofIntegers(), XSet.of(0, Integer.MAX_VALUE));
+        // one string item declaring (almost) the maximal length, but followed by no bytes:
+        final byte[] hugeLength = {CompactXSetCodec.STRING_ITEMS, 1, (byte) 0xF7, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+
+        assertAll(
+            () -> assertThrows(IOException.class, () -> XSetCodec.ofIntegers().fromByteArray(longs), "type"),
+            () -> assertThrows(EOFException.class, () -> XSetCodec.ofLongs().fromByteArray(Arrays.copyOf(longs, longs.length - 1)), "truncated"),
+            () -> assertThrows(EOFException.class, () -> XSetCodec.ofLongs().fromByteArray(new byte[0]), "no bytes"),
+            () -> assertThrows(IOException.class, () -> XSetCodec.ofIntegers().fromByteArray(largeInteger), "int"),
+            () -> assertThrows(IOException.class, () -> XSetCodec.ofLongs().fromByteArray(malformed), "malformed"),
+            () -> assertThrows(IOException.class, () -> XSetCodec.ofLongs().fromByteArray(descending), "descending"),
+            () -> assertThrows(IOException.class, () -> XSetCodec.ofIntegers().fromByteArray(wrappedInteger), "wrapped int"),
+            () -> assertThrows(EOFException.class, () -> XSetCodec.ofStrings().fromByteArray(hugeLength), "huge length"),
+            () -> assertThrows(BufferOverflowException.class, () -> XSetCodec.ofLongs().encode(XSet.of(1L), ByteBuffer.allocate(1)), "overflow"),
+            () -> assertThrows(NullPointerException.class, () -> XSetCodec.ofLongs().toByteArray(null), "toByteArray"),
+            () -> assertThrows(NullPointerException.class, () -> XSetCodec.ofLongs().fromByteArray(null), "fromByteArray"),
+            () -> assertThrows(NullPointerException.class, () -> XSetCodec.ofLongs().encode(XSet.of(1L), (ByteBuffer) null), "encode"),
+            () -> assertThrows(NullPointerException.class, () -> XSetCodec.ofLongs().decode((ByteBuffer) null), "decode")
+        );
+    }
+
+    /**
+     * Encodes the items starting with zero and moves the first item to one, so that the following delta overflows.
+     */
+    private static <T> byte[] wrapped(final XSetCodec<T> codec, final XSet<T> xset) {
+        final byte[] bytes = codec.toByteArray(xset);
+        // the flags, the count and the zigzag zero:
+        bytes[2] = (byte) CompactXSetCodec.zigzag(1);
+        return bytes;
+    }
+
+}
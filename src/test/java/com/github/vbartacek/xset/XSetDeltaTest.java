@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link XSetDelta} and {@link XSet#diff(XSet)} with {@link XSet#apply(XSetDelta)}.
+ *
+ * @author Vaclav Bartacek
+ */
+class XSetDeltaTest {
+
+    private static final int RANDOM_CASES = 1000;
+
+    private static final int RANDOM_DOMAIN = 10;
+
+    private static final int BASE_SIZE = HamtItemSet.MIN_SIZE * 2;
+
+    private static final long SEED = 42;
+
+    private static final List<String> BASE_ITEMS = IntStream.range(0, BASE_SIZE)
+        .mapToObj(i -> "item" + i)
+        .collect(Collectors.toList());
+
+    @ParameterizedTest
+    @MethodSource("diffParameters")
+    void testDiff(final XSet<String> older, final XSet<String> newer, final XSetDelta<String> expected) {
+        final XSetDelta<String> delta = older.diff(newer);
+
+        assertAll(older + " -> " + newer,
+            () -> assertThat("diff", delta, is(expected)),
+            () -> assertThat("apply", older.apply(delta), is(newer)),
+            () -> assertThat("reverse", newer.apply(newer.diff(older)), is(older))
+        );
+    }
+
+    static Stream<Arguments> diffParameters() {
+        return Stream.of(
+            Arguments.of(XSet.empty(), XSet.empty(), XSetDelta.empty()),
+            Arguments.of(XSet.of("a"), XSet.of("a"), XSetDelta.empty()),
+            Arguments.of(XSet.empty(), XSet.of("a"), XSetDelta.of(XSet.of("a"), XSet.empty(), false)),
+            Arguments.of(XSet.of("a", "b"), XSet.of("b", "c"), XSetDelta.of(XSet.of("c"), XSet.of("a"), false)),
+            Arguments.of(XSet.complementOf("a", "b"), XSet.complementOf("b", "c"), XSetDelta.of(XSet.of("a"), XSet.of("c"), false)),
+            Arguments.of(XSet.empty(), XSet.full(), XSetDelta.of(XSet.empty(), XSet.empty(), true)),
+            Arguments.of(XSet.of("a", "b"), XSet.complementOf("a", "b"), XSetDelta.of(XSet.empty(), XSet.empty(), true)),
+            Arguments.of(XSet.of("a", "b"), XSet.complementOf("b", "c"), XSetDelta.of(XSet.of("a"), XSet.of("c"), true)),
+            Arguments.of(XSet.of(BASE_ITEMS), XSet.of(BASE_ITEMS).union(XSet.of("new")), XSetDelta.of(XSet.of("new"), XSet.empty(), false))
+        );
+    }
+
+    @Test
+    void testRandomDiffs() {
+        final Random random = new Random(SEED);
+
+        for (int i = 0; i < RANDOM_CASES; i++) {
+            final XSet<Integer> older = randomXSet(random);
+            final XSet<Integer> newer = randomXSet(random);
+            final XSetDelta<Integer> delta = older.diff(newer);
+
+            assertAll(older + " -> " + newer,
+                () -> assertThat("apply", older.apply(delta), is(newer)),
+                () -> assertThat("flip", delta.isComplementFlip(), is(older.isComplementary() != newer.isComplementary())),
+                () -> assertThat("disjoint", delta.getAdded().intersect(delta.getRemoved()).isEmpty(), is(true)),
+                () -> assertThat("minimal", delta.getAdded().getItems().size() + delta.getRemoved().getItems().size()
+                    <= older.getItems().size() + newer.getItems().size(), is(true))
+            );
+        }
+    }
+
+    @Test
+    void testStructureSharing() {
+        final XSet<String> base = XSet.of(BASE_ITEMS);
+        final XSet<String> changed = base.apply(XSetDelta.of(XSet.of("new"), XSet.of(BASE_ITEMS.get(0)), false));
+
+        assertAll(
+            () -> assertThat("changed", changed.contains("new") && !changed.contains(BASE_ITEMS.get(0)), is(true)),
+            () -> assertThat("trie", changed.getItems(), instanceOf(HamtItemSet.class)),
+            () -> assertThat("unchanged", base.apply(XSetDelta.of(XSet.of(BASE_ITEMS.get(0)), XSet.empty(), false)), sameInstance(base)),
+            () -> assertThat("empty", base.apply(XSetDelta.empty()), sameInstance(base)),
+            () -> assertThat("same", base.diff(base).isEmpty(), is(true))
+        );
+    }
+
+    @Test
+    void testOf() {
+        final XSetDelta<String> delta = XSetDelta.of(XSet.of("a"), XSet.of("b"), true);
+
+        assertAll(
+            () -> assertThat("added", delta.getAdded(), is(XSet.of("a"))),
+            () -> assertThat("removed", delta.getRemoved(), is(XSet.of("b"))),
+            () -> assertThat("flip", delta.isComplementFlip(), is(true)),
+            () -> assertThat("not empty", delta.isEmpty(), is(false)),
+            () -> assertThat("empty", XSetDelta.of(XSet.empty(), XSet.empty(), false), sameInstance(XSetDelta.empty())),
+            () -> assertThat("hashCode", delta.hashCode(), is(XSetDelta.of(XSet.of("a"), XSet.of("b"), true).hashCode())),
+            () -> assertThat("toString", delta.toString(), is("XSetDelta{~, +[a], -[b]}")),
+            () -> assertThrows(IllegalArgumentException.class, () -> XSetDelta.of(XSet.full(), XSet.empty(), false), "added"),
+            () -> assertThrows(IllegalArgumentException.class, () -> XSetDelta.of(XSet.empty(), XSet.complementOf("a"), false), "removed")
+        );
+    }
+
+    @Test
+    void testNulls() {
+        assertAll(
+            () -> assertThrows(NullPointerException.class, () -> XSet.empty().diff(null), "diff"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.empty().apply(null), "apply"),
+            () -> assertThrows(NullPointerException.class, () -> XSetDelta.of(null, XSet.empty(), false), "added"),
+            () -> assertThrows(NullPointerException.class, () -> XSetDelta.of(XSet.empty(), null, false), "removed")
+        );
+    }
+
+    private static XSet<Integer> randomXSet(final Random random) {
+        final List<Integer> items = IntStream.range(0, RANDOM_DOMAIN)
+            .filter(i -> random.nextBoolean())
+            .boxed()
+            .collect(Collectors.toList());
+
+        return random.nextBoolean() ? XSet.complementOf(items) : XSet.of(items);
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+
+/**
+ * Test suited for {@link XSetExpr}.
+ *
+ * @author Vaclav Bartacek
+ */
+class XSetExprTest {
+
+    private static final int RANDOM_CASES = 200;
+
+    private static final int RANDOM_DEPTH = 4;
+
+    private static final int OPERATIONS = 4;
+
+    private static final int ITEM_ODDS = 3;
+
+    private static final String[] UNIVERSE = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    private static final XSet<String> MON_TUE = XSet.of("Mon", "Tue");
+
+    private static final XSet<String> TUE_WED = XSet.of("Tue", "Wed");
+
+    @Test
+    void testSimplification() {
+        final XSetExpr<String> monTue = XSetExpr.of(MON_TUE);
+        final XSetExpr<String> tueWed = XSetExpr.of(TUE_WED);
+
+        assertAll(
+            () -> assertThat("subtract", monTue.subtract(tueWed).toString(), is("(XSet{[Mon, Tue]} & XSet{~[Tue, Wed]})")),
+            () -> assertThat("De Morgan", monTue.union(tueWed).complement().toString(), is("(XSet{~[Mon, Tue]} & XSet{~[Tue, Wed]})")),
+            () -> assertThat("double complement", monTue.union(tueWed).complement().complement(), is(monTue.union(tueWed))),
+            () -> assertThat("flatten", monTue.intersect(tueWed).intersect(XSet.of("Sun")).toString(),
+                is("(XSet{[Mon, Tue]} & XSet{[Tue, Wed]} & XSet{[Sun]})")),
+            () -> assertThat("full & a", XSetExpr.of(XSet.<String>full()).intersect(monTue), is(monTue)),
+            () -> assertThat("empty & a", monTue.intersect(XSet.empty()), is(XSetExpr.of(XSet.<String>empty()))),
+            () -> assertThat("empty | a", monTue.union(XSet.empty()), is(monTue)),
+            () -> assertThat("full | a", monTue.union(XSet.full()), is(XSetExpr.of(XSet.<String>full()))),
+            () -> assertThat("a & a", monTue.intersect(XSet.of("Tue", "Mon")), is(monTue)),
+            () -> assertThat("a & ~a", monTue.subtract(monTue), is(XSetExpr.of(XSet.<String>empty()))),
+            () -> assertThat("a | ~a", monTue.union(monTue.complement()), is(XSetExpr.of(XSet.<String>full()))),
+            () -> assertThat("a & (a | b)", monTue.intersect(monTue.union(tueWed)), is(monTue)),
+            () -> assertThat("(a | b) & a", monTue.union(tueWed).intersect(monTue), is(monTue)),
+            () -> assertThat("a | (a & b)", monTue.union(monTue.intersect(tueWed)), is(monTue))
+        );
+    }
+
+    @Test
+    void testNulls() {
+        final XSetExpr<String> tested = XSetExpr.of(MON_TUE);
+
+        assertAll(
+            () -> assertThrows(NullPointerException.class, () -> XSetExpr.of(null), "of"),
+            () -> assertThrows(NullPointerException.class, () -> tested.contains(null), "contains"),
+            () -> assertThrows(NullPointerException.class, () -> tested.intersect((XSetExpr<String>) null), "intersect"),
+            () -> assertThrows(NullPointerException.class, () -> tested.union((XSet<String>) null), "union"),
+            () -> assertThrows(NullPointerException.class, () -> tested.subtract((XSetExpr<String>) null), "subtract")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("randomParameters")
+    void testLazyMatchesEager(final XSetExpr<String> expr, final XSet<String> expected) {
+        final List<String> items = new ArrayList<>();
+        items.add("Other");
+        for (final String item : UNIVERSE) {
+            items.add(item);
+        }
+
+        assertAll(expr.toString(),
+            () -> assertThat("materialize", expr.materialize(), is(expected)),
+            () -> items.forEach(item -> assertThat("contains " + item, expr.contains(item), is(expected.contains(item))))
+        );
+    }
+
+    static Stream<Arguments> randomParameters() {
+        final Random random = new Random(42);
+
+        return IntStream.range(0, RANDOM_CASES)
+            .mapToObj(i -> {
+                final List<XSet<String>> eager = new ArrayList<>(1);
+                final XSetExpr<String> expr = randomExpr(random, RANDOM_DEPTH, eager);
+                return Arguments.of(expr, eager.get(0));
+            });
+    }
+
+    /**
+     * Builds the random expression and the eagerly computed result of it.
+     */
+    private static XSetExpr<String> randomExpr(final Random random, final int depth, final List<XSet<String>> eager) {
+        if (depth == 0 || random.nextInt(RANDOM_DEPTH) == 0) {
+            final XSet<String> xset = randomXSet(random);
+            eager.add(0, xset);
+            return XSetExpr.of(xset);
+        }
+
+        final XSetExpr<String> expr1 = randomExpr(random, depth - 1, eager);
+        final XSet<String> xset1 = eager.remove(0);
+        final XSetExpr<String> expr2 = randomExpr(random, depth - 1, eager);
+        final XSet<String> xset2 = eager.remove(0);
+
+        switch (random.nextInt(OPERATIONS)) {
+            case 0:
+                eager.add(0, xset1.intersect(xset2));
+                return expr1.intersect(expr2);
+            case 1:
+                eager.add(0, xset1.union(xset2));
+                return expr1.union(expr2);
+            case 2:
+                eager.add(0, xset1.subtract(xset2));
+                return expr1.subtract(expr2);
+            default:
+                eager.add(0, xset1.complement());
+                return expr1.complement();
+        }
+    }
+
+    private static XSet<String> randomXSet(final Random random) {
+        final List<String> items = new ArrayList<>();
+        for (final String item : UNIVERSE) {
+            if (random.nextInt(ITEM_ODDS) == 0) {
+                items.add(item);
+            }
+        }
+        return random.nextBoolean() ? XSet.of(items) : XSet.complementOf(items);
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test suited for {@link XSetInterner}.
+ *
+ * @author Vaclav Bartacek
+ */
+class XSetInternerTest {
+
+    @Test
+    void testIntern() {
+        final XSet<String> first = XSet.of("Mon", "Tue").intern();
+        final XSet<String> second = XSet.of("Tue", "Mon").intern();
+        final XSet<String> complement = XSet.complementOf("Mon", "Tue").intern();
+
+        assertAll(
+            () -> assertThat("same", second, sameInstance(first)),
+            () -> assertThat("complement", complement, not(sameInstance(first))),
+            () -> assertThat("complement equals", complement, is(first.complement())),
+            () -> assertThat("empty", XSet.of().intern(), sameInstance(XSet.empty())),
+            () -> assertThat("full", XSet.complementOf().intern(), sameInstance(XSet.full()))
+        );
+    }
+
+    @Test
+    void testWeak() {
+        final XSetInterner interner = XSetInterner.weak();
+        final XSet<String> first = interner.intern(XSet.of("Mon"));
+
+        assertAll(
+            () -> assertThat("same", interner.intern(XSet.of("Mon")), sameInstance(first)),
+            () -> assertThat("trivial", interner.intern(XSet.empty()), sameInstance(XSet.empty())),
+            () -> assertThat("size", interner.size(), is(1))
+        );
+    }
+
+    @Test
+    void testBounded() {
+        final XSetInterner interner = XSetInterner.bounded(2);
+        final XSet<String> mon = interner.intern(XSet.of("Mon"));
+        final XSet<String> tue = interner.intern(XSet.of("Tue"));
+
+        // touch Mon, so Tue becomes the least recently used one:
+        interner.intern(XSet.of("Mon"));
+        interner.intern(XSet.of("Sun"));
+
+        assertAll(
+            () -> assertThat("size", interner.size(), is(2)),
+            () -> assertThat("kept", interner.intern(XSet.of("Mon")), sameInstance(mon)),
+            () -> assertThat("evicted", interner.intern(XSet.of("Tue")), not(sameInstance(tue)))
+        );
+    }
+
+    @Test
+    void testInvalidArguments() {
+        final XSetInterner interner = XSetInterner.weak();
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> XSetInterner.bounded(0), "bounded(0)"),
+            () -> assertThrows(NullPointerException.class, () -> interner.intern(null), "intern(null)")
+        );
+    }
+
+}
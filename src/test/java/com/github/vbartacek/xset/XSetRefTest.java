@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertAll;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test suited for {@link XSetRef}.
+ *
+ * @author Vaclav Bartacek
+ */
+class XSetRefTest {
+
+    private static final int THREADS = 4;
+
+    private static final int ITEMS_PER_THREAD = 2_000;
+
+    @Test
+    void testOperations() {
+        final XSet<String> initial = XSet.of("a", "b");
+        final XSetRef<String> tested = XSetRef.of(initial);
+
+        assertAll(
+            () -> assertThat("initial", tested.get(), sameInstance(initial)),
+            () -> assertThat("initial version", tested.getVersion(), is(0L))
+        );
+
+        final long added = tested.add("c");
+        final XSetRef.Snapshot<String> snapshot = tested.snapshot();
+        final long unchanged = tested.add("c");
+        final long removed = tested.remove("a");
+        final long complemented = tested.complement();
+
+        assertAll(
+            () -> assertThat("add", added, is(1L)),
+            () -> assertThat("snapshot", snapshot.getXSet(), is(XSet.of("a", "b", "c"))),
+            () -> assertThat("snapshot version", snapshot.getVersion(), is(1L)),
+            () -> assertThat("unchanged", unchanged, is(1L)),
+            () -> assertThat("remove", removed, is(2L)),
+            () -> assertThat("complement", complemented, is(removed + 1)),
+            () -> assertThat("result", tested.get(), is(XSet.complementOf("b", "c"))),
+            () -> assertThat("version", tested.getVersion(), is(complemented)),
+            () -> assertThat("toString", tested.snapshot().toString(), is("Snapshot{3: " + tested.get() + "}"))
+        );
+    }
+
+    @Test
+    void testConcurrentChanges() throws Exception {
+        final XSetRef<Integer> tested = XSetRef.of(XSet.empty());
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final int offset = t * ITEMS_PER_THREAD;
+                futures.add(executor.submit(() -> {
+                    long previous = 0;
+                    for (int i = 0; i < ITEMS_PER_THREAD; i++) {
+                        final long version = tested.add(offset + i);
+                        final XSetRef.Snapshot<Integer> snapshot = tested.snapshot();
+
+                        if (version <= previous || snapshot.getVersion() < version || !snapshot.getXSet().contains(offset + i)) {
+                            throw new AssertionError("not published " + (offset + i) + " in " + version);
+                        }
+                        previous = version;
+                    }
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        final List<Integer> all = IntStream.range(0, THREADS * ITEMS_PER_THREAD).boxed().collect(Collectors.toList());
+
+        assertAll(
+            () -> assertThat("result", tested.get(), is(XSet.of(all))),
+            () -> assertThat("batched", tested.getVersion() <= all.size(), is(true))
+        );
+    }
+
+    @Test
+    void testNulls() {
+        final XSetRef<String> tested = XSetRef.of(XSet.empty());
+
+        assertAll(
+            () -> assertThrows(NullPointerException.class, () -> XSetRef.of(null), "of"),
+            () -> assertThrows(NullPointerException.class, () -> tested.add(null), "add"),
+            () -> assertThrows(NullPointerException.class, () -> tested.remove(null), "remove")
+        );
+    }
+
+}
@@ -10,10 +10,16 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.time.DayOfWeek;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import org.hamcrest.CoreMatchers;
@@ -30,6 +36,8 @@ import org.junit.jupiter.params.provider.MethodSource;
  */
 class XSetTest {
 
+    private static final int COLLECT_SIZE = 5000;
+
     @Test
     void testEmpty() {
         assertProperties("empty-set", XSet.empty(), Collections.emptySet(), false);
@@ -54,7 +62,108 @@ class XSetTest {
             () -> assertThrows(NullPointerException.class, () -> XSet.complementOf((String) null), "complementOf single item null"),
             () -> assertThrows(NullPointerException.class, () -> XSet.complementOf("Mon", null), "complementOf one item null"),
             () -> assertThrows(NullPointerException.class, () -> XSet.complementOf(nullCollection), "complementOf collection null"),
-            () -> assertThrows(NullPointerException.class, () -> XSet.complementOf(nullItemCollection), "complementOf collection item null")
+            () -> assertThrows(NullPointerException.class, () -> XSet.complementOf(nullItemCollection), "complementOf collection item null"),
+
+            () -> assertThrows(NullPointerException.class, () -> XSet.of(DayOfWeek.MONDAY, null), "of enum item null"),
+
+            () -> assertThrows(NullPointerException.class, () -> Stream.of("Mon", null).collect(XSet.toXSet()), "toXSet item null"),
+            () -> assertThrows(NullPointerException.class, () -> Stream.of("Mon", null).collect(XSet.toComplementOf()),
+                "toComplementOf item null")
+        );
+    }
+
+    @Test
+    void testBuilder() {
+        final XSet.Builder<String> builder = XSet.<String>builder()
+            .add("Mon").addAll(Arrays.asList("Tue", "Wed")).remove("Wed")
+            .complement().add("Mon").remove("Sun")
+            .intersectWith(complementOf("Sat"))
+            .unionWith(of("Tue"));
+        final XSet<String> built = builder.build();
+
+        assertAll(
+            () -> assertThat("build", built, is(complementOf("Sat", "Sun"))),
+            () -> assertThat("empty", XSet.<String>builder().build(), CoreMatchers.sameInstance(empty())),
+            () -> assertThat("full", XSet.<String>builder().complement().build(), CoreMatchers.sameInstance(full())),
+            () -> assertThrows(IllegalStateException.class, () -> builder.add("Mon"), "add after build"),
+            () -> assertThrows(IllegalStateException.class, builder::complement, "complement after build"),
+            () -> assertThrows(IllegalStateException.class, builder::build, "build after build"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.<String>builder().add(null), "add null"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.<String>builder().remove(null), "remove null"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.<String>builder().addAll(null), "addAll null"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.<String>builder().intersectWith(null), "intersectWith null"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.<String>builder().unionWith(null), "unionWith null")
+        );
+    }
+
+    @Test
+    void testBuilderStores() {
+        final List<String> strings = IntStream.range(0, SmallItemSet.MAX_SIZE * 2).mapToObj(i -> "item" + i).collect(Collectors.toList());
+        final List<Integer> integers = IntStream.range(0, RoaringItemSet.MIN_SIZE).boxed().collect(Collectors.toList());
+        final XSet<String> built = XSet.<String>builder().addAll(strings).build();
+
+        assertAll(
+            () -> assertThat("hash", built.getItems(), CoreMatchers.instanceOf(HashItemSet.class)),
+            () -> assertThat("hash items", built, is(XSet.of(strings))),
+            () -> assertThat("small", XSet.<String>builder().addAll(strings.subList(0, 2)).build().getItems(),
+                CoreMatchers.instanceOf(SmallItemSet.class)),
+            () -> assertThat("roaring", XSet.<Integer>builder().addAll(integers).build().getItems(),
+                CoreMatchers.instanceOf(RoaringItemSet.class)),
+            () -> assertThat("enum", XSet.<DayOfWeek>builder().add(DayOfWeek.MONDAY).build().getItems(),
+                CoreMatchers.instanceOf(EnumItemSet.class))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("builderParameters")
+    void testBuilderOperations(final XSet<String> set1, final XSet<String> set2) {
+        assertAll(set1 + " " + set2,
+            () -> assertThat("intersectWith", builderOf(set1).intersectWith(set2).build(), is(set1.intersect(set2))),
+            () -> assertThat("unionWith", builderOf(set1).unionWith(set2).build(), is(set1.union(set2))),
+            () -> assertThat("complement", builderOf(set1).complement().build(), is(set1.complement())),
+            () -> assertThat("add", builderOf(set1).add("Mon").build(), is(set1.union(of("Mon")))),
+            () -> assertThat("remove", builderOf(set1).remove("Mon").build(), is(set1.subtract(of("Mon"))))
+        );
+    }
+
+    static Stream<Arguments> builderParameters() {
+        final List<XSet<String>> sets = Arrays.asList(
+            empty(), full(), of("Mon"), of("Mon", "Tue"), of("Tue", "Wed"), complementOf("Mon"), complementOf("Tue", "Wed"));
+
+        return sets.stream()
+            .flatMap(set1 -> sets.stream().map(set2 -> Arguments.of(set1, set2)));
+    }
+
+    private static XSet.Builder<String> builderOf(final XSet<String> xset) {
+        final XSet.Builder<String> builder = XSet.<String>builder().addAll(xset.getItems());
+        return xset.isComplementary() ? builder.complement() : builder;
+    }
+
+    @ParameterizedTest
+    @MethodSource("collectParameters")
+    void testCollect(final List<Object> items) {
+        final XSet<Object> expected = XSet.of(items);
+        final XSet<Object> collected = items.stream().collect(XSet.toXSet());
+        final XSet<Object> parallel = items.parallelStream().collect(XSet.toXSet());
+
+        assertAll(
+            () -> assertThat("toXSet", collected, is(expected)),
+            () -> assertThat("toXSet items", collected.getItems().getClass(), CoreMatchers.<Class<?>>is(expected.getItems().getClass())),
+            () -> assertThat("toXSet parallel", parallel, is(expected)),
+            () -> assertThat("toComplementOf", items.stream().collect(XSet.toComplementOf()), is(XSet.complementOf(items))),
+            () -> assertThat("toComplementOf parallel", items.parallelStream().collect(XSet.toComplementOf()), is(XSet.complementOf(items)))
+        );
+    }
+
+    static Stream<Arguments> collectParameters() {
+        return Stream.of(
+            Arguments.of(Collections.emptyList()),
+            Arguments.of(Collections.singletonList("Mon")),
+            Arguments.of(Arrays.asList("Mon", "Tue", "Mon")),
+            Arguments.of(Arrays.asList(DayOfWeek.MONDAY, DayOfWeek.SUNDAY)),
+            Arguments.of(Arrays.asList(DayOfWeek.MONDAY, "Mon")),
+            Arguments.of(IntStream.range(0, COLLECT_SIZE).mapToObj(i -> "item" + i % (COLLECT_SIZE / 2)).collect(Collectors.toList())),
+            Arguments.of(IntStream.range(0, COLLECT_SIZE).boxed().collect(Collectors.toList()))
         );
     }
 
@@ -340,6 +449,57 @@ class XSetTest {
             Arguments.of(full(), Arrays.asList("Mon", "Tue"), true)
         );
     }
+    @Test
+    void testContainsEachNull() {
+        final XSet<String> tested = of("Mon");
+        final List<String> nullItemList = Arrays.asList("Mon", null);
+
+        assertAll(
+            () -> assertThrows(NullPointerException.class, () -> tested.containsEach((List<String>) null), "null list"),
+            () -> assertThrows(NullPointerException.class, () -> tested.containsEach(nullItemList), "null item list"),
+            () -> assertThrows(NullPointerException.class, () -> tested.containsEach(null, new boolean[1]), "null array"),
+            () -> assertThrows(NullPointerException.class, () -> tested.containsEach(new String[] {"Mon"}, null), "null result"),
+            () -> assertThrows(NullPointerException.class, () -> tested.containsEach(new String[] {null}, new boolean[1]), "null item"),
+            () -> assertThrows(IllegalArgumentException.class, () -> tested.containsEach(new String[] {"Mon"}, new boolean[0]), "short result")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("containsEachParameters")
+    void testContainsEach(final XSet<String> set) {
+        final String[] items = {"Mon", "Tue", "Wed", "Sun", "Mon"};
+        final BitSet expected = new BitSet();
+        for (int i = 0; i < items.length; i++) {
+            expected.set(i, set.contains(items[i]));
+        }
+        final boolean[] result = new boolean[items.length + 1];
+        result[items.length] = true;
+        set.containsEach(items, result);
+        final BitSet resultBits = new BitSet();
+        for (int i = 0; i < items.length; i++) {
+            resultBits.set(i, result[i]);
+        }
+
+        assertAll(set.toString(),
+            () -> assertThat("list", set.containsEach(Arrays.asList(items)), is(expected)),
+            () -> assertThat("linked list", set.containsEach(new LinkedList<>(Arrays.asList(items))), is(expected)),
+            () -> assertThat("empty list", set.containsEach(Collections.emptyList()), is(new BitSet())),
+            () -> assertThat("array", resultBits, is(expected)),
+            () -> assertThat("array rest", result[items.length], is(true))
+        );
+    }
+
+    static Stream<Arguments> containsEachParameters() {
+        return Stream.of(
+            Arguments.of(empty()),
+            Arguments.of(of("Mon")),
+            Arguments.of(of("Mon", "Tue")),
+            Arguments.of(complementOf("Mon", "Tue")),
+            Arguments.of(complementOf("Sun")),
+            Arguments.of(full())
+        );
+    }
+
 
     @ParameterizedTest
     @MethodSource("subtractParameters")
@@ -562,6 +722,73 @@ class XSetTest {
         );
     }
 
+    @ParameterizedTest
+    @MethodSource("operandIsReusedParameters")
+    void testOperandIsReused(final String message, final XSet<String> tested, final XSet<String> expected) {
+        assertThat(message, tested, CoreMatchers.sameInstance(expected));
+    }
+
+    static Stream<Arguments> operandIsReusedParameters() {
+        final XSet<String> monTue = of("Mon", "Tue");
+        final XSet<String> notMonTue = complementOf("Mon", "Tue");
+
+        return Stream.of(
+            Arguments.of("of.intersect(superset)", monTue.intersect(of("Mon", "Tue", "Sun")), monTue),
+            Arguments.of("superset.intersect(of)", of("Mon", "Tue", "Sun").intersect(monTue), monTue),
+            Arguments.of("of.intersect(complementOf disjoint)", monTue.intersect(complementOf("Sun")), monTue),
+            Arguments.of("complementOf.intersect(complementOf subset)", notMonTue.intersect(complementOf("Mon")), notMonTue),
+
+            Arguments.of("of.union(subset)", monTue.union(of("Mon")), monTue),
+            Arguments.of("subset.union(of)", of("Tue").union(monTue), monTue),
+            Arguments.of("complementOf.union(of disjoint)", notMonTue.union(of("Sun")), notMonTue),
+            Arguments.of("complementOf.union(complementOf superset)", notMonTue.union(complementOf("Mon", "Tue", "Sun")), notMonTue),
+
+            Arguments.of("of.subtract(of disjoint)", monTue.subtract(of("Sun", "Sat", "Fri")), monTue),
+            Arguments.of("of.subtract(complementOf superset)", monTue.subtract(complementOf("Mon", "Tue", "Sun")), monTue)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("bulkOperationParameters")
+    void testBulkOperationsMatchChained(final String message, final List<XSet<String>> tested) {
+        assertAll(message,
+            () -> assertThat("intersectAll", XSet.intersectAll(tested), is(tested.stream().reduce(full(), XSet::intersect))),
+            () -> assertThat("unionAll", XSet.unionAll(tested), is(tested.stream().reduce(empty(), XSet::union)))
+        );
+    }
+
+    static Stream<Arguments> bulkOperationParameters() {
+        return Stream.of(
+            Arguments.of("none", Collections.emptyList()),
+            Arguments.of("one", Arrays.asList(of("Mon", "Tue"))),
+            Arguments.of("of", Arrays.asList(of("Mon", "Tue", "Wed"), of("Tue", "Wed"), of("Wed", "Tue", "Sun"))),
+            Arguments.of("complementOf", Arrays.asList(complementOf("Mon", "Tue"), complementOf("Tue", "Wed"), complementOf("Sun"))),
+            Arguments.of("mixed", Arrays.asList(of("Mon", "Tue", "Wed"), complementOf("Tue"), of("Wed", "Tue", "Mon"), complementOf("Sun"))),
+            Arguments.of("disjoint", Arrays.asList(of("Mon", "Tue"), of("Wed"), complementOf("Mon", "Wed"))),
+            Arguments.of("trivial", Arrays.asList(of("Mon", "Tue"), full(), empty(), complementOf("Sun")))
+        );
+    }
+
+    @Test
+    void testBulkOperationsShortCircuit() {
+        final XSet<String> monTue = of("Mon", "Tue");
+        final List<XSet<String>> withNull = Arrays.asList(monTue, null);
+
+        assertAll(
+            () -> assertThat("intersectAll none", XSet.intersectAll(Collections.<XSet<String>>emptyList()), CoreMatchers.sameInstance(full())),
+            () -> assertThat("unionAll none", XSet.unionAll(Collections.<XSet<String>>emptyList()), CoreMatchers.sameInstance(empty())),
+            () -> assertThat("intersectAll empty", XSet.intersectAll(Arrays.asList(monTue, empty(), null)), CoreMatchers.sameInstance(empty())),
+            () -> assertThat("unionAll full", XSet.unionAll(Arrays.asList(monTue, full(), null)), CoreMatchers.sameInstance(full())),
+            () -> assertThat("intersectAll reused", XSet.intersectAll(Arrays.asList(of("Mon", "Tue", "Sun"), monTue, complementOf("Wed"))),
+                CoreMatchers.sameInstance(monTue)),
+            () -> assertThat("unionAll reused", XSet.unionAll(Arrays.asList(of("Mon"), monTue, of("Tue"))), CoreMatchers.sameInstance(monTue)),
+            () -> assertThrows(NullPointerException.class, () -> XSet.intersectAll(null), "intersectAll null"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.unionAll(null), "unionAll null"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.intersectAll(withNull), "intersectAll null set"),
+            () -> assertThrows(NullPointerException.class, () -> XSet.unionAll(withNull), "unionAll null set")
+        );
+    }
+
     private static XSet<String> of(final String... items) {
         return XSet.of(items);
     }
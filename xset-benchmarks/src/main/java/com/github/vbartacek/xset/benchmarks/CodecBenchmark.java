@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.vbartacek.xset.XSet;
+import com.github.vbartacek.xset.XSetCodec;
+import com.github.vbartacek.xset.XSetDelta;
+
+
+/**
+ * Benchmarks of {@link XSetCodec} compared to the Java serialization of the items and the complementary flag.
+ * <p>
+ * The update of a set by an encoded {@link XSetDelta} of one added element is compared to decoding the whole new set.
+ * <p>
+ * The sizes of the encoded sets are printed by the set up.
+ * <p>
+ * Run it e.g. like this:
+ * <pre>
+ * java -jar target/benchmarks.jar CodecBenchmark -p elementType=LONG
+ * </pre>
+ *
+ * @author Vaclav Bartacek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"100", "100000"})
+    private int size;
+
+    @Param({"STRING", "INTEGER", "LONG"})
+    private ElementType elementType;
+
+    private XSetCodec<Object> codec;
+
+    private XSet<Object> xset;
+
+    private byte[] encoded;
+
+    private byte[] serialized;
+
+    private XSet<Object> newer;
+
+    private byte[] encodedDelta;
+
+    private Object probe;
+
+    /**
+     * Prepares the sets and their encoded forms.
+     *
+     * @throws IOException if the serialization fails
+     */
+    @Setup
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() throws IOException {
+        if (elementType == ElementType.STRING) {
+            codec = (XSetCodec) XSetCodec.ofStrings();
+        }
+        else if (elementType == ElementType.INTEGER) {
+            codec = (XSetCodec) XSetCodec.ofIntegers();
+        }
+        else if (elementType == ElementType.LONG) {
+            codec = (XSetCodec) XSetCodec.ofLongs();
+        }
+        else {
+            throw new IllegalArgumentException("unsupported element type: " + elementType);
+        }
+
+        final List<Object> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(elementType.element(i));
+        }
+        xset = XSet.of(items);
+        probe = elementType.element(size / 2);
+
+        newer = xset.union(XSet.of(elementType.element(size)));
+
+        encoded = encode();
+        serialized = serialize();
+        encodedDelta = encodeDiff();
+        System.out.println("\nencoded: " + encoded.length + " B, serialized: " + serialized.length + " B, delta: " + encodedDelta.length + " B");
+    }
+
+    /**
+     * Benchmarks {@link XSetCodec#toByteArray(XSet)}.
+     *
+     * @return the encoded set
+     */
+    @Benchmark
+    public byte[] encode() {
+        return codec.toByteArray(xset);
+    }
+
+    /**
+     * Benchmarks {@link XSetCodec#fromByteArray(byte[])}.
+     *
+     * @return the decoded set
+     * @throws IOException never
+     */
+    @Benchmark
+    public XSet<Object> decode() throws IOException {
+        return codec.fromByteArray(encoded);
+    }
+
+    /**
+     * Benchmarks a one-shot {@link XSet#contains(Object)} of the decoded set.
+     *
+     * @return the result
+     * @throws IOException never
+     */
+    @Benchmark
+    public boolean decodeContains() throws IOException {
+        return codec.fromByteArray(encoded).contains(probe);
+    }
+
+    /**
+     * Benchmarks a one-shot {@link XSet#contains(Object)} of the {@link XSetCodec#view(ByteBuffer) view}
+     * of the encoded set.
+     *
+     * @return the result
+     * @throws IOException never
+     */
+    @Benchmark
+    public boolean viewContains() throws IOException {
+        return codec.view(ByteBuffer.wrap(encoded)).contains(probe);
+    }
+
+    /**
+     * Benchmarks {@link XSet#diff(XSet)} of the set changed by one element
+     * and {@link XSetCodec#encodeDelta(XSetDelta, java.io.OutputStream)}.
+     *
+     * @return the encoded delta
+     * @throws IOException never
+     */
+    @Benchmark
+    public byte[] encodeDiff() throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.encodeDelta(xset.diff(newer), output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Benchmarks {@link XSetCodec#decodeDelta(java.io.InputStream)} and {@link XSet#apply(XSetDelta)}
+     * of the delta encoded by {@link #encodeDiff()}.
+     *
+     * @return the changed set
+     * @throws IOException never
+     */
+    @Benchmark
+    public XSet<Object> decodeApply() throws IOException {
+        return xset.apply(codec.decodeDelta(new ByteArrayInputStream(encodedDelta)));
+    }
+
+    /**
+     * Benchmarks the Java serialization of the items as a {@code HashSet} and of the complementary flag.
+     *
+     * @return the serialized set
+     * @throws IOException never
+     */
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeBoolean(xset.isComplementary());
+            output.writeObject(new HashSet<>(xset.getItems()));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Benchmarks the Java deserialization of the set serialized by {@link #serialize()}.
+     *
+     * @return the deserialized set
+     * @throws IOException never
+     * @throws ClassNotFoundException never
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public XSet<Object> deserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            final boolean complementary = input.readBoolean();
+            final Set<Object> items = (Set<Object>) input.readObject();
+            return complementary ? XSet.complementOf(items) : XSet.of(items);
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset.benchmarks;
+
+import java.util.Collection;
+
+import com.github.vbartacek.xset.XSet;
+
+
+/**
+ * All four pairings of finite and complementary operands.
+ *
+ * @author Vaclav Bartacek
+ */
+public enum Combination {
+
+    /**
+     * Both operands are finite sets.
+     */
+    FINITE_FINITE(false, false),
+
+    /**
+     * The left operand is finite, the right one is complementary.
+     */
+    FINITE_COMPLEMENT(false, true),
+
+    /**
+     * The left operand is complementary, the right one is finite.
+     */
+    COMPLEMENT_FINITE(true, false),
+
+    /**
+     * Both operands are complementary sets.
+     */
+    COMPLEMENT_COMPLEMENT(true, true);
+
+    private final boolean leftComplementary;
+
+    private final boolean rightComplementary;
+
+    Combination(final boolean leftComplementary, final boolean rightComplementary) {
+        this.leftComplementary = leftComplementary;
+        this.rightComplementary = rightComplementary;
+    }
+
+    <E> XSet<E> left(final Collection<E> items, final boolean mergeable) {
+        return create(items, leftComplementary, mergeable);
+    }
+
+    <E> XSet<E> right(final Collection<E> items, final boolean mergeable) {
+        return create(items, rightComplementary, mergeable);
+    }
+
+    private static <E> XSet<E> create(final Collection<E> items, final boolean complementary, final boolean mergeable) {
+        if (mergeable) {
+            final XSet<E> finite = XSet.mergeableOf(items);
+            return complementary ? finite.complement() : finite;
+        }
+        return complementary ? XSet.complementOf(items) : XSet.of(items);
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.vbartacek.xset.ConcurrentXSet;
+import com.github.vbartacek.xset.XSet;
+import com.github.vbartacek.xset.XSetRef;
+
+
+/**
+ * Benchmarks of the concurrent updates of a shared extended set.
+ * <p>
+ * The set has {@code size} elements, the threads add and remove single elements of the same domain.
+ * {@link ConcurrentXSet} and {@link XSetRef} are compared to an {@link AtomicReference} of an {@link XSet} updated by CAS.
+ * <p>
+ * Run it e.g. like this:
+ * <pre>
+ * java -jar target/benchmarks.jar ConcurrentBenchmark -t 4
+ * </pre>
+ *
+ * @author Vaclav Bartacek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(2)
+@Fork(1)
+public class ConcurrentBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"STRING", "LONG"})
+    private ElementType elementType;
+
+    private Object[] domain;
+
+    private AtomicReference<XSet<Object>> reference;
+
+    private ConcurrentXSet<Object> concurrent;
+
+    private XSetRef<Object> ref;
+
+    /**
+     * Prepares the shared sets.
+     */
+    @Setup
+    public void setUp() {
+        final List<Object> items = new ArrayList<>(size);
+        domain = new Object[size * 2];
+        for (int i = 0; i < domain.length; i++) {
+            domain[i] = elementType.element(i);
+            if (i % 2 == 0) {
+                items.add(domain[i]);
+            }
+        }
+
+        reference = new AtomicReference<>(XSet.of(items));
+        concurrent = ConcurrentXSet.copyOf(XSet.of(items));
+        ref = XSetRef.of(XSet.of(items));
+    }
+
+    /**
+     * Benchmarks an update of the {@link AtomicReference} by {@link XSet#union(XSet)} or {@link XSet#subtract(XSet)}.
+     *
+     * @return the new set
+     */
+    @Benchmark
+    public XSet<Object> atomicReferenceUpdate() {
+        final XSet<Object> change = XSet.of(randomItem());
+        final boolean adding = ThreadLocalRandom.current().nextBoolean();
+        return reference.updateAndGet(xset -> adding ? xset.union(change) : xset.subtract(change));
+    }
+
+    /**
+     * Benchmarks {@link ConcurrentXSet#add(Object)} or {@link ConcurrentXSet#remove(Object)}.
+     *
+     * @return whether the set changed
+     */
+    @Benchmark
+    public boolean concurrentUpdate() {
+        final Object item = randomItem();
+        return ThreadLocalRandom.current().nextBoolean() ? concurrent.add(item) : concurrent.remove(item);
+    }
+
+    /**
+     * Benchmarks {@link XSetRef#add(Object)} or {@link XSetRef#remove(Object)}.
+     *
+     * @return the published version
+     */
+    @Benchmark
+    public long xsetRefUpdate() {
+        final Object item = randomItem();
+        return ThreadLocalRandom.current().nextBoolean() ? ref.add(item) : ref.remove(item);
+    }
+
+    /**
+     * Benchmarks {@link XSet#contains(Object)} of the {@link AtomicReference}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean atomicReferenceContains() {
+        return reference.get().contains(randomItem());
+    }
+
+    /**
+     * Benchmarks {@link ConcurrentXSet#contains(Object)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean concurrentContains() {
+        return concurrent.contains(randomItem());
+    }
+
+    /**
+     * Benchmarks {@link XSet#contains(Object)} of the {@link XSetRef}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean xsetRefContains() {
+        return ref.get().contains(randomItem());
+    }
+
+    private Object randomItem() {
+        return domain[ThreadLocalRandom.current().nextInt(domain.length)];
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.vbartacek.xset.XSet;
+
+
+/**
+ * Benchmarks of deriving sets from a large base set by small changes.
+ * <p>
+ * The base set has {@code size} elements, the change has {@code changeSize} elements
+ * and a half of them are present in the base set.
+ * <p>
+ * Run it e.g. like this:
+ * <pre>
+ * java -jar target/benchmarks.jar DerivationBenchmark -p size=1000000
+ * </pre>
+ *
+ * @author Vaclav Bartacek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DerivationBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    @Param({"1", "10"})
+    private int changeSize;
+
+    @Param({"STRING", "LONG"})
+    private ElementType elementType;
+
+    private XSet<Object> base;
+
+    private XSet<Object> derived;
+
+    private XSet<Object> change;
+
+    /**
+     * Prepares the operands.
+     */
+    @Setup
+    public void setUp() {
+        final List<Object> baseItems = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            baseItems.add(elementType.element(i));
+        }
+
+        final List<Object> changeItems = new ArrayList<>(changeSize);
+        for (int i = 0; i < changeSize; i++) {
+            changeItems.add(elementType.element(i % 2 == 0 ? i : size + i));
+        }
+
+        base = XSet.of(baseItems);
+        change = XSet.of(changeItems);
+        derived = base.union(XSet.of(elementType.element(size * 2)));
+    }
+
+    /**
+     * Benchmarks {@link XSet#union(XSet)} of the base set and the small change.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> union() {
+        return base.union(change);
+    }
+
+    /**
+     * Benchmarks {@link XSet#subtract(XSet)} of the small change from the base set.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> subtract() {
+        return base.subtract(change);
+    }
+
+    /**
+     * Benchmarks {@link XSet#union(XSet)} of an already derived set and the small change.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> unionOfDerived() {
+        return derived.union(change);
+    }
+
+}
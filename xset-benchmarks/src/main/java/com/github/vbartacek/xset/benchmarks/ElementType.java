@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset.benchmarks;
+
+
+/**
+ * Element types used by the benchmarks.
+ * <p>
+ * Each type maps a non-negative index to a distinct element.
+ * The only exception is {@link #ENUM} which has a limited domain, so its indices wrap around.
+ *
+ * @author Vaclav Bartacek
+ */
+public enum ElementType {
+
+    /**
+     * String elements.
+     */
+    STRING {
+        @Override
+        Object element(final int index) {
+            return "item-" + index;
+        }
+    },
+
+    /**
+     * Integer elements - large sets of them are stored as compressed bitmaps.
+     */
+    INTEGER {
+        @Override
+        Object element(final int index) {
+            return index;
+        }
+    },
+
+    /**
+     * Long elements (e.g. IDs).
+     */
+    LONG {
+        @Override
+        Object element(final int index) {
+            return (long) index;
+        }
+    },
+
+    /**
+     * Enum elements - the index is taken modulo the number of constants.
+     */
+    ENUM {
+        private final BenchmarkEnum[] constants = BenchmarkEnum.values();
+
+        @Override
+        Object element(final int index) {
+            return constants[index % constants.length];
+        }
+    };
+
+    abstract Object element(int index);
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.vbartacek.xset.XSet;
+
+
+/**
+ * Benchmarks of the scaling of the parallel {@link XSet} operations with the number of threads.
+ * <p>
+ * The operations are executed by {@link XSet#parallel(ForkJoinPool)} in a fork/join pool of the given parallelism,
+ * so that the scaling can be measured within one JVM. The parallelism {@code 1} executes the operations sequentially.
+ * Both operands have {@code size} elements, a half of them are shared. They are created by
+ * {@link XSet#mergeableOf(java.util.Collection)}, because only the merges of such sets are parallel.
+ * <p>
+ * Run it e.g. like this:
+ * <pre>
+ * java -jar target/benchmarks.jar ParallelBenchmark -p elementType=LONG
+ * </pre>
+ *
+ * @author Vaclav Bartacek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    @Param({"1000000"})
+    private int size;
+
+    @Param({"STRING", "LONG"})
+    private ElementType elementType;
+
+    private ForkJoinPool pool;
+
+    private XSet<Object> left;
+
+    private XSet<Object> right;
+
+    /**
+     * Prepares the pool and the operands.
+     */
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(parallelism);
+        left = XSet.mergeableOf(elements(0));
+        right = XSet.mergeableOf(elements(size / 2));
+    }
+
+    /**
+     * Shuts down the pool.
+     */
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    private List<Object> elements(final int from) {
+        final List<Object> result = new ArrayList<>(size);
+        for (int i = from; i < from + size; i++) {
+            result.add(elementType.element(i));
+        }
+        return result;
+    }
+
+    /**
+     * Benchmarks {@link XSet.Parallel#intersect(XSet)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> intersect() {
+        return left.parallel(pool).intersect(right);
+    }
+
+    /**
+     * Benchmarks {@link XSet.Parallel#union(XSet)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> union() {
+        return left.parallel(pool).union(right);
+    }
+
+    /**
+     * Benchmarks {@link XSet.Parallel#subtract(XSet)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> subtract() {
+        return left.parallel(pool).subtract(right);
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset.benchmarks;
+
+
+/**
+ * Ratio of the operand sizes.
+ *
+ * @author Vaclav Bartacek
+ */
+public enum Skew {
+
+    /**
+     * Both operands have the same size.
+     */
+    EQUAL(1, 1),
+
+    /**
+     * The left operand is 1000 times larger than the right one.
+     */
+    LEFT_LARGER(1, 1000),
+
+    /**
+     * The right operand is 1000 times larger than the left one.
+     */
+    RIGHT_LARGER(1000, 1);
+
+    private final int leftDivisor;
+
+    private final int rightDivisor;
+
+    Skew(final int leftDivisor, final int rightDivisor) {
+        this.leftDivisor = leftDivisor;
+        this.rightDivisor = rightDivisor;
+    }
+
+    int leftSize(final int size) {
+        return Math.max(1, size / leftDivisor);
+    }
+
+    int rightSize(final int size) {
+        return Math.max(1, size / rightDivisor);
+    }
+
+}
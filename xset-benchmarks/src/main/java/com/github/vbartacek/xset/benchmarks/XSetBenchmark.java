@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+package com.github.vbartacek.xset.benchmarks;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.vbartacek.xset.XSet;
+
+
+/**
+ * Benchmarks of all {@link XSet} operations.
+ * <p>
+ * The operands are generated so that the larger one holds the first {@code n} elements
+ * and a half of the smaller one overlaps with the larger one.
+ * <p>
+ * Run it e.g. like this (the GC profiler is always added by {@link BenchmarkMain}):
+ * <pre>
+ * java -jar target/benchmarks.jar XSetBenchmark -p size=10000 -p elementType=LONG
+ * </pre>
+ *
+ * @author Vaclav Bartacek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XSetBenchmark {
+
+    @Param({"1", "100", "10000", "1000000"})
+    private int size;
+
+    @Param({"STRING", "INTEGER", "LONG", "ENUM"})
+    private ElementType elementType;
+
+    @Param({"FINITE_FINITE", "FINITE_COMPLEMENT", "COMPLEMENT_FINITE", "COMPLEMENT_COMPLEMENT"})
+    private Combination combination;
+
+    @Param({"EQUAL", "LEFT_LARGER", "RIGHT_LARGER"})
+    private Skew skew;
+
+    /**
+     * Whether the operands are created by {@link XSet#mergeableOf(java.util.Collection)}.
+     */
+    @Param({"false", "true"})
+    private boolean mergeable;
+
+    private XSet<Object> left;
+
+    private XSet<Object> right;
+
+    private List<Object> rightItems;
+
+    private Object probe;
+
+    /**
+     * Prepares the operands.
+     */
+    @Setup
+    public void setUp() {
+        final int leftSize = skew.leftSize(size);
+        final int rightSize = skew.rightSize(size);
+        final int largerSize = Math.max(leftSize, rightSize);
+
+        final List<Object> leftItems = leftSize == largerSize ? larger(largerSize) : smaller(leftSize, largerSize);
+        rightItems = rightSize == largerSize && leftSize != largerSize ? larger(largerSize) : smaller(rightSize, largerSize);
+
+        left = combination.left(leftItems, mergeable);
+        right = combination.right(rightItems, mergeable);
+        probe = rightItems.get(rightItems.size() - 1);
+    }
+
+    private List<Object> larger(final int count) {
+        final List<Object> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(elementType.element(i));
+        }
+        return result;
+    }
+
+    private List<Object> smaller(final int count, final int largerCount) {
+        final int step = largerCount / count;
+        final List<Object> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // even items are shared with the larger operand, odd ones are not
+            final int index = i % 2 == 0 ? i * step : largerCount + i * step;
+            result.add(elementType.element(index));
+        }
+        return result;
+    }
+
+    /**
+     * Benchmarks {@link XSet#intersect(XSet)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> intersect() {
+        return left.intersect(right);
+    }
+
+    /**
+     * Benchmarks {@link XSet#union(XSet)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> union() {
+        return left.union(right);
+    }
+
+    /**
+     * Benchmarks {@link XSet#subtract(XSet)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> subtract() {
+        return left.subtract(right);
+    }
+
+    /**
+     * Benchmarks {@link XSet#complement()}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public XSet<Object> complement() {
+        return left.complement();
+    }
+
+    /**
+     * Benchmarks {@link XSet#contains(Object)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean contains() {
+        return left.contains(probe);
+    }
+
+    /**
+     * Benchmarks {@link XSet#containsAll(java.util.Collection)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean containsAll() {
+        return left.containsAll(rightItems);
+    }
+
+    /**
+     * Benchmarks {@link XSet#containsAny(java.util.Collection)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public boolean containsAny() {
+        return left.containsAny(rightItems);
+    }
+
+    /**
+     * Benchmarks {@link XSet#containsEach(List)}.
+     *
+     * @return the result
+     */
+    @Benchmark
+    public BitSet containsEach() {
+        return left.containsEach(rightItems);
+    }
+
+}
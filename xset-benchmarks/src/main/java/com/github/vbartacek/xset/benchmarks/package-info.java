@@ -0,0 +1,9 @@
+/*
+ * Copyright (C) 2020 Vaclav Bartacek
+ * MIT License
+ */
+
+/**
+ * JMH benchmarks of extended sets.
+ */
+package com.github.vbartacek.xset.benchmarks;